@@ -0,0 +1,70 @@
+package org.folio.util;
+
+import static com.google.common.primitives.Ints.min;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.jaxrs.model.Attachment;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.persist.PostgresClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Compares {@link LogUtil#asJson(Object)} with the former implementation, which serialized the
+ * whole object and cropped the result to 10 KB.
+ *
+ * <p>Run with {@code mvn -Pbenchmark verify -DskipTests}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogUtilBenchmark {
+
+  private static final int MAX_OBJECT_JSON_LENGTH = 10 * 1024;
+
+  @Param({"1024", "1048576"})
+  private int attachmentSize;
+
+  private EmailEntity emailEntity;
+
+  @Setup
+  public void setUp() {
+    String data = "a".repeat(attachmentSize);
+    emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("recipient@localhost")
+      .withHeader("header")
+      .withBody("body ".repeat(200))
+      .withAttachments(List.of(new Attachment()
+        .withName("file.pdf")
+        .withContentType("application/pdf")
+        .withData(data)));
+  }
+
+  @Benchmark
+  public String serializeAndCrop() throws JsonProcessingException {
+    String json = PostgresClient.pojo2JsonObject(emailEntity).encode();
+    return json.substring(0, min(json.length(), MAX_OBJECT_JSON_LENGTH));
+  }
+
+  @Benchmark
+  public String boundedStreaming() {
+    return LogUtil.asJson(emailEntity);
+  }
+}
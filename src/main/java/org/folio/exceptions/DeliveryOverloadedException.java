@@ -0,0 +1,42 @@
+package org.folio.exceptions;
+
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.HttpHeaders.RETRY_AFTER;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+
+import javax.ws.rs.core.Response;
+
+public class DeliveryOverloadedException extends RuntimeException {
+
+  public static final int TOO_MANY_REQUESTS = 429;
+
+  private final long retryAfterSeconds;
+
+  /**
+   * Constructs a DeliveryOverloadedException without capturing a stack trace.
+   *
+   * @param message           the error message to return to the client
+   * @param retryAfterSeconds the number of seconds after which the client may retry
+   */
+  public DeliveryOverloadedException(String message, long retryAfterSeconds) {
+    super(message, null, true, false);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * Builds a 429 Too Many Requests {@link Response} with the {@code Retry-After} header.
+   *
+   * @return a JAX-RS Response with plain text error entity
+   */
+  public Response buildErrorResponse() {
+    return Response.status(TOO_MANY_REQUESTS)
+      .header(CONTENT_TYPE, TEXT_PLAIN)
+      .header(RETRY_AFTER, retryAfterSeconds)
+      .entity(getMessage())
+      .build();
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
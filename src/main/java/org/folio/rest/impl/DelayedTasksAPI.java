@@ -7,20 +7,17 @@ import static org.folio.util.LogUtil.headersAsString;
 import static org.folio.util.LogUtil.loggingResponseHandler;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.core.Response;
 
 import org.folio.rest.impl.base.AbstractEmail;
 import org.folio.rest.jaxrs.model.EmailEntity;
-import org.folio.rest.jaxrs.model.EmailEntries;
 import org.folio.rest.jaxrs.resource.DelayedTask;
 import org.folio.util.ClockUtil;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
-import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 
@@ -28,8 +25,7 @@ public class DelayedTasksAPI extends AbstractEmail implements DelayedTask {
 
   private static final int RETRY_AGE_THRESHOLD_MINUTES = 10;
   private static final int RETRY_BATCH_SIZE = 50;
-  private static final String FIND_EMAILS_FOR_RETRY_QUERY_TEMPLATE =
-    "shouldRetry==true and metadata.createdDate > %s sortBy attemptCount/sort.ascending";
+  private static final String RESTORED_EMAILS_MESSAGE = "Restored %d emails";
 
   public DelayedTasksAPI(Vertx vertx, String tenantId) {
     super(vertx, tenantId);
@@ -52,6 +48,24 @@ public class DelayedTasksAPI extends AbstractEmail implements DelayedTask {
       .onComplete(loggingResponseHandler("postEmail", resultHandler, log));
   }
 
+  @Override
+  public void postDelayedTaskRestoreArchivedMessages(String from, String to,
+    Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> resultHandler,
+    Context context) {
+
+    log.debug("postDelayedTaskRestoreArchivedMessages:: parameters from: {}, to: {}, "
+      + "okapiHeaders: {}", () -> from, () -> to, () -> headersAsString(okapiHeaders));
+
+    succeededFuture()
+      .compose(v -> restoreArchivedEmails(from, to))
+      .map(count -> String.format(RESTORED_EMAILS_MESSAGE, count))
+      .map(PostDelayedTaskRestoreArchivedMessagesResponse::respond200WithTextPlain)
+      .map(Response.class::cast)
+      .otherwise(this::mapExceptionToResponse)
+      .onComplete(loggingResponseHandler("postDelayedTaskRestoreArchivedMessages", resultHandler,
+        log));
+  }
+
   @Override
   public void postDelayedTaskRetryFailedEmails(Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
@@ -62,30 +76,26 @@ public class DelayedTasksAPI extends AbstractEmail implements DelayedTask {
     Handler<AsyncResult<Response>> loggingResponseHandler =
       loggingResponseHandler("postDelayedTaskRetryFailedEmails", asyncResultHandler, log);
 
-    if (loggingResponseHandler != null) {
-      loggingResponseHandler.handle(succeededFuture(
-        PostDelayedTaskRetryFailedEmailsResponse.respond202()));
-    }
-
     final long startTimeMillis = currentTimeMillis();
 
-    succeededFuture()
-      .compose(v -> findEmailsForRetry())
-      .compose(emails -> processEmails(emails, okapiHeaders))
+    findEmailsForRetry(getRetryThresholdDate(), RETRY_BATCH_SIZE)
+      .compose(emails -> admitEmails(emails.size()).map(v -> emails))
+      .onComplete(admission -> {
+        if (loggingResponseHandler != null) {
+          loggingResponseHandler.handle(succeededFuture(admission.succeeded()
+            ? PostDelayedTaskRetryFailedEmailsResponse.respond202()
+            : mapExceptionToResponse(admission.cause())));
+        }
+      })
+      .compose(emails -> processEmails(emails, okapiHeaders)
+        .andThen(r -> releaseEmails(emails.size())))
       .onComplete(r -> logRetryResult(r, startTimeMillis));
   }
 
-  private Future<List<EmailEntity>> findEmailsForRetry() {
-    log.debug("findEmailsForRetry::");
-    String thresholdDate = ClockUtil.getZonedDateTime()
+  private static String getRetryThresholdDate() {
+    return ClockUtil.getZonedDateTime()
       .minusMinutes(RETRY_AGE_THRESHOLD_MINUTES)
       .format(ISO_ZONED_DATE_TIME);
-
-    String query = String.format(FIND_EMAILS_FOR_RETRY_QUERY_TEMPLATE, thresholdDate);
-
-    return findEmailEntries(RETRY_BATCH_SIZE, 0, query)
-      .map(EmailEntries::getEmailEntity)
-      .onSuccess(emails -> log.debug("findEmailsForRetry:: result count: {}", emails::size));
   }
 
   private static void logRetryResult(AsyncResult<Collection<EmailEntity>> result,
@@ -4,21 +4,29 @@ import static io.vertx.core.Future.succeededFuture;
 import static org.folio.util.LogUtil.headersAsString;
 import static org.folio.util.LogUtil.loggingResponseHandler;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang3.StringUtils;
 import org.folio.rest.impl.base.AbstractEmail;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.resource.Email;
+import org.folio.services.EmailExportService.ExportFormat;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
 
 public class EmailAPI extends AbstractEmail implements Email {
 
+  private static final String EXCLUDE_NONE = "none";
+
   public EmailAPI(Vertx vertx, String tenantId) {
     super(vertx, tenantId);
   }
@@ -31,7 +39,7 @@ public class EmailAPI extends AbstractEmail implements Email {
       () -> headersAsString(requestHeaders));
 
     succeededFuture()
-      .compose(v -> processEmail(email, requestHeaders))
+      .compose(v -> submitEmail(email, requestHeaders))
       .map(EmailEntity::getMessage)
       .map(PostEmailResponse::respond200WithTextPlain)
       .map(Response.class::cast)
@@ -40,19 +48,89 @@ public class EmailAPI extends AbstractEmail implements Email {
   }
 
   @Override
-  public void getEmail(String query, int offset, int limit, String lang,
+  public void getEmail(String exclude, String query, int offset, int limit, String lang,
+    RoutingContext routingContext, Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> resultHandler, Context context) {
+
+    log.debug("getEmail:: parameters exclude: {}, query: {}, offset: {}, limit: {}, lang: {}, "
+      + "okapiHeaders: {}", () -> exclude, () -> query, () -> offset, () -> limit, () -> lang,
+      () -> headersAsString(okapiHeaders));
+
+    var response = routingContext.response();
+    succeededFuture()
+      .compose(v -> searchEmails(query, offset, limit, parseExcludedFields(exclude), response))
+      .onFailure(cause -> failStreamedResponse("getEmail", response, resultHandler, cause));
+  }
+
+  @Override
+  public void getEmailStatistics(String interval, String from, String to,
     Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> resultHandler,
     Context context) {
 
-    log.debug("getEmail:: parameters query: {}, offset: {}, limit: {}, lang: {}, okapiHeaders: {}",
-      () -> query, () -> offset, () -> limit, () -> lang, () -> headersAsString(okapiHeaders));
+    log.debug("getEmailStatistics:: parameters interval: {}, from: {}, to: {}, okapiHeaders: {}",
+      () -> interval, () -> from, () -> to, () -> headersAsString(okapiHeaders));
+
+    succeededFuture()
+      .compose(v -> getEmailStatistics(interval, from, to))
+      .map(GetEmailStatisticsResponse::respond200WithApplicationJson)
+      .map(Response.class::cast)
+      .otherwise(this::mapExceptionToResponse)
+      .onComplete(loggingResponseHandler("getEmailStatistics", resultHandler, log));
+  }
+
+  @Override
+  public void getEmailQueue(Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> resultHandler, Context context) {
+
+    log.debug("getEmailQueue:: parameters okapiHeaders: {}",
+      () -> headersAsString(okapiHeaders));
 
     succeededFuture()
-      .compose(v -> findEmailEntries(limit, offset, query))
-      .map(GetEmailResponse::respond200WithApplicationJson)
+      .compose(v -> getSendQueue())
+      .map(GetEmailQueueResponse::respond200WithApplicationJson)
       .map(Response.class::cast)
       .otherwise(this::mapExceptionToResponse)
-      .onComplete(loggingResponseHandler("getEmail", resultHandler, log));
+      .onComplete(loggingResponseHandler("getEmailQueue", resultHandler, log));
+  }
+
+  @Override
+  public void getEmailExport(String query, String format, RoutingContext routingContext,
+    Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> resultHandler,
+    Context context) {
+
+    log.debug("getEmailExport:: parameters query: {}, format: {}, okapiHeaders: {}",
+      () -> query, () -> format, () -> headersAsString(okapiHeaders));
+
+    var response = routingContext.response();
+    succeededFuture()
+      .compose(v -> exportEmails(query, ExportFormat.fromValue(format), response))
+      .onFailure(cause -> failStreamedResponse("getEmailExport", response, resultHandler, cause));
+  }
+
+  /**
+   * Answers a failed streamed response with an error response, or resets it if the streaming
+   * has already started, so the client sees a truncated transfer instead of a short result.
+   */
+  private void failStreamedResponse(String methodName, HttpServerResponse response,
+    Handler<AsyncResult<Response>> resultHandler, Throwable cause) {
+
+    if (response.headWritten()) {
+      log.warn("{}:: Streaming failed after it started, resetting the response", methodName);
+      response.reset();
+    } else {
+      loggingResponseHandler(methodName, resultHandler, log)
+        .handle(succeededFuture(mapExceptionToResponse(cause)));
+    }
+  }
+
+  static List<String> parseExcludedFields(String exclude) {
+    if (StringUtils.isBlank(exclude) || EXCLUDE_NONE.equalsIgnoreCase(exclude.trim())) {
+      return List.of();
+    }
+    return Arrays.stream(exclude.split(","))
+      .map(String::trim)
+      .filter(StringUtils::isNotBlank)
+      .toList();
   }
 
 }
@@ -8,7 +8,16 @@ import java.lang.management.ManagementFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.rest.resource.interfaces.InitAPI;
+import org.folio.services.SettingsChangeListener;
 import org.folio.services.email.MailService;
+import org.folio.services.email.impl.FairSendScheduler;
+import org.folio.services.email.impl.MailClientProvider;
+import org.folio.services.email.impl.MailClientWarmUpService;
+import org.folio.services.email.impl.MailServiceImpl;
+import org.folio.services.email.impl.PriorityDispatcher;
+import org.folio.services.email.impl.SendConcurrencyLimiter;
+import org.folio.services.email.impl.SendRateLimiter;
+import org.folio.services.email.impl.SmtpCircuitBreakerProvider;
 import org.folio.services.storage.StorageService;
 
 import io.vertx.core.AsyncResult;
@@ -33,12 +42,18 @@ public class InitAPIs implements InitAPI {
       System.getProperty("http.port", System.getProperty("port", "8080")));
     log.info("init:: {} on port {}", () -> ManagementFactory.getRuntimeMXBean().getName(),
       () -> port);
+    var mailClientProvider = new MailClientProvider(vertx);
     new ServiceBinder(vertx)
       .setAddress(MAIL_SERVICE_ADDRESS)
-      .register(MailService.class, MailService.create(vertx));
+      .register(MailService.class,
+        new MailServiceImpl(mailClientProvider, new PriorityDispatcher(vertx),
+          new SendRateLimiter(vertx), new FairSendScheduler(vertx),
+          new SendConcurrencyLimiter(vertx), new SmtpCircuitBreakerProvider(vertx)));
     new ServiceBinder(vertx)
       .setAddress(STORAGE_SERVICE_ADDRESS)
       .register(StorageService.class, StorageService.create(vertx));
+    new MailClientWarmUpService(vertx, mailClientProvider).start();
+    SettingsChangeListener.get(vertx).start();
 
     handler.handle(Future.succeededFuture(true));
   }
@@ -0,0 +1,26 @@
+package org.folio.rest.impl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.resource.interfaces.ShutdownAPI;
+import org.folio.services.TenantServiceRegistry;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Performs cleanup operations before the verticle is undeployed, e.g. saving the emails held in
+ * the write-behind buffers.
+ */
+public class ShutdownAPIs implements ShutdownAPI {
+
+  private final Logger log = LogManager.getLogger(ShutdownAPIs.class);
+
+  @Override
+  public void shutdown(Vertx vertx, Handler<AsyncResult<Void>> handler) {
+    log.debug("shutdown:: ");
+    TenantServiceRegistry.flushWriteBehindBuffers(vertx)
+      .onComplete(handler);
+  }
+}
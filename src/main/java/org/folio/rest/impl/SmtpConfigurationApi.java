@@ -11,6 +11,8 @@ import org.apache.logging.log4j.Logger;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
 import org.folio.rest.jaxrs.model.SmtpConfigurations;
 import org.folio.rest.persist.PgUtil;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.services.SettingsChangeListener;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
@@ -44,6 +46,7 @@ public class SmtpConfigurationApi implements org.folio.rest.jaxrs.resource.SmtpC
 
     PgUtil.post(SMTP_CONFIGURATION_TABLE_NAME, entity, okapiHeaders, vertxContext,
       PostSmtpConfigurationResponse.class)
+      .onComplete(result -> invalidateSettingsCache(okapiHeaders, vertxContext))
       .onComplete(asyncResultHandler);
   }
 
@@ -72,6 +75,7 @@ public class SmtpConfigurationApi implements org.folio.rest.jaxrs.resource.SmtpC
 
     PgUtil.put(SMTP_CONFIGURATION_TABLE_NAME, entity, smtpConfigurationId, okapiHeaders,
       vertxContext, PutSmtpConfigurationBySmtpConfigurationIdResponse.class)
+      .onComplete(result -> invalidateSettingsCache(okapiHeaders, vertxContext))
       .onComplete(asyncResultHandler);
   }
 
@@ -86,6 +90,17 @@ public class SmtpConfigurationApi implements org.folio.rest.jaxrs.resource.SmtpC
 
     PgUtil.deleteById(SMTP_CONFIGURATION_TABLE_NAME, smtpConfigurationId, okapiHeaders,
       vertxContext, DeleteSmtpConfigurationBySmtpConfigurationIdResponse.class)
+      .onComplete(result -> invalidateSettingsCache(okapiHeaders, vertxContext))
       .onComplete(asyncResultHandler);
   }
+
+  /**
+   * Invalidates the cached SMTP configuration of the tenant on this module instance before the
+   * response is sent, the other instances are invalidated by the change notification.
+   */
+  private static void invalidateSettingsCache(Map<String, String> okapiHeaders,
+    Context context) {
+
+    SettingsChangeListener.get(context.owner()).invalidate(TenantTool.tenantId(okapiHeaders));
+  }
 }
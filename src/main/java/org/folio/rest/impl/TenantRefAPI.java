@@ -0,0 +1,46 @@
+package org.folio.rest.impl;
+
+import static org.folio.util.LogUtil.headersAsString;
+
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.TenantAttributes;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.services.TenantServiceRegistry;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+
+/**
+ * Releases the services cached for a tenant once the module is disabled for the tenant.
+ */
+public class TenantRefAPI extends TenantAPI {
+
+  private static final Logger log = LogManager.getLogger(TenantRefAPI.class);
+
+  @Validate
+  @Override
+  public void postTenant(TenantAttributes tenantAttributes, Map<String, String> headers,
+    Handler<AsyncResult<Response>> handler, Context context) {
+
+    log.debug("postTenant:: parameters moduleFrom: {}, moduleTo: {}, headers: {}",
+      tenantAttributes::getModuleFrom, tenantAttributes::getModuleTo,
+      () -> headersAsString(headers));
+
+    super.postTenant(tenantAttributes, headers, result -> {
+      // without moduleTo the module is disabled for the tenant
+      if (tenantAttributes.getModuleTo() != null) {
+        handler.handle(result);
+        return;
+      }
+      TenantServiceRegistry.remove(context.owner(), TenantTool.tenantId(headers))
+        .onComplete(v -> handler.handle(result));
+    }, context);
+  }
+}
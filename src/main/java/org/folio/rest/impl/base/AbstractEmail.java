@@ -10,14 +10,21 @@ import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
 import static org.folio.rest.jaxrs.model.EmailEntity.Status.DELIVERED;
 import static org.folio.rest.jaxrs.model.EmailEntity.Status.FAILURE;
+import static org.folio.services.email.MailService.RELAY_UNAVAILABLE_FAILURE_CODE;
+import static org.folio.services.storage.StorageService.ARCHIVE_NOT_CONFIGURED_FAILURE_CODE;
 import static org.folio.util.AsyncUtil.mapInOrder;
-import static org.folio.util.EmailUtils.MAIL_SERVICE_ADDRESS;
-import static org.folio.util.EmailUtils.STORAGE_SERVICE_ADDRESS;
 import static org.folio.util.EmailUtils.findStatusByName;
 import static org.folio.util.LogUtil.headersAsString;
+import static org.folio.util.SmtpFailureUtils.getDeliveredRecipients;
+import static org.folio.util.SmtpFailureUtils.getEnhancedStatus;
+import static org.folio.util.SmtpFailureUtils.getReplyCode;
+import static org.folio.util.SmtpFailureUtils.isPermanentFailure;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -27,20 +34,30 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.exceptions.ConfigurationException;
+import org.folio.exceptions.DeliveryOverloadedException;
 import org.folio.exceptions.SmtpConfigurationException;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.model.EmailEntity.Status;
 import org.folio.rest.jaxrs.model.EmailEntries;
+import org.folio.rest.jaxrs.model.EmailQueue;
+import org.folio.rest.jaxrs.model.EmailStatistics;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
-import org.folio.rest.persist.PostgresClient;
-import org.folio.services.MailSettingsService;
+import org.folio.services.AdmissionController;
+import org.folio.services.EmailExportService;
+import org.folio.services.EmailSearchService;
+import org.folio.services.EmailExportService.ExportFormat;
+import org.folio.services.EmailWriteBehindBuffer;
+import org.folio.services.IdempotentSubmissionService;
 import org.folio.services.SmtpConfigurationProvider;
+import org.folio.services.TenantServiceRegistry;
 import org.folio.services.email.MailService;
 import org.folio.services.storage.StorageService;
 import org.folio.util.ClockUtil;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 
 public abstract class AbstractEmail {
@@ -56,28 +73,48 @@ public abstract class AbstractEmail {
   protected final Vertx vertx;
   private final String tenantId;
 
-  private MailService mailService;
-  private StorageService storageService;
-  private SmtpConfigurationProvider smtpConfigurationProvider;
-
+  private final MailService mailService;
+  private final StorageService storageService;
+  private final StorageService archiveStorageService;
+  private final SmtpConfigurationProvider smtpConfigurationProvider;
+  private final IdempotentSubmissionService submissionService;
+  private final AdmissionController admissionController;
+  private final EmailWriteBehindBuffer writeBehindBuffer;
 
   public AbstractEmail(Vertx vertx, String tenantId) {
     this.vertx = vertx;
     this.tenantId = tenantId;
 
-    initServices();
+    var tenantServices = TenantServiceRegistry.get(vertx, tenantId);
+    mailService = tenantServices.mailService();
+    storageService = tenantServices.storageService();
+    archiveStorageService = tenantServices.archiveStorageService();
+    smtpConfigurationProvider = tenantServices.smtpConfigurationProvider();
+    submissionService = tenantServices.submissionService();
+    admissionController = tenantServices.admissionController();
+    writeBehindBuffer = tenantServices.writeBehindBuffer();
   }
 
-  /**
-   * Initialization of the email sending and storage service
-   */
-  private void initServices() {
-    mailService = MailService.createProxy(vertx, MAIL_SERVICE_ADDRESS);
-    storageService = StorageService.createProxy(vertx, STORAGE_SERVICE_ADDRESS);
+  protected Future<EmailEntity> submitEmail(EmailEntity email,
+    Map<String, String> okapiHeaders) {
+
+    log.debug("submitEmail:: parameters requestHeaders={}",
+      () -> headersAsString(okapiHeaders));
 
-    var mailSettingsService = new MailSettingsService();
-    var postgresClient = PostgresClient.getInstance(vertx, tenantId);
-    smtpConfigurationProvider = new SmtpConfigurationProvider(vertx, mailSettingsService, postgresClient);
+    // a repeated submission gets the in-flight or delivered result even when the instance is
+    // overloaded, only new submissions take up admission capacity
+    return submissionService.submit(email,
+      () -> admissionController.execute(1, () -> processEmail(email, okapiHeaders)));
+  }
+
+  protected Future<Void> admitEmails(int emailCount) {
+    log.debug("admitEmails:: parameters emailCount: {}", emailCount);
+    return admissionController.admit(emailCount);
+  }
+
+  protected void releaseEmails(int emailCount) {
+    log.debug("releaseEmails:: parameters emailCount: {}", emailCount);
+    admissionController.release(emailCount);
   }
 
   protected Future<EmailEntity> processEmail(EmailEntity email,
@@ -126,7 +163,9 @@ public abstract class AbstractEmail {
 
   protected EmailEntity handleSuccess(EmailEntity email) {
     String message = format(SUCCESS_SEND_EMAIL, join(",", email.getTo()));
-    EmailEntity emailEntity = updateEmail(email, DELIVERED, message);
+    EmailEntity emailEntity = updateEmail(email, DELIVERED, message)
+      .withSmtpReplyCode(null)
+      .withSmtpEnhancedStatus(null);
     log.debug("handleSuccess:: result status: {}", emailEntity::getStatus);
     return emailEntity;
   }
@@ -136,11 +175,54 @@ public abstract class AbstractEmail {
       log.debug("handleFailure::", throwable);
     }
     String errorMessage = format(ERROR_SENDING_EMAIL, throwable.getMessage());
-    EmailEntity emailEntity = updateEmail(email, FAILURE, errorMessage);
+    EmailEntity emailEntity = isRelayUnavailable(throwable)
+      ? deferEmail(email, errorMessage)
+      : updateEmail(email, FAILURE, errorMessage);
+    emailEntity
+      .withSmtpReplyCode(getReplyCode(throwable))
+      .withSmtpEnhancedStatus(getEnhancedStatus(throwable));
+    addDeliveredRecipients(emailEntity, getDeliveredRecipients(throwable));
+    if (isPermanentFailure(throwable)) {
+      log.info("handleFailure:: SMTP reply {} is permanent, email will not be retried",
+        emailEntity.getSmtpReplyCode());
+      emailEntity.setShouldRetry(false);
+    }
     log.warn("handleFailure:: result status: {}", emailEntity.getStatus());
     return emailEntity;
   }
 
+  /**
+   * Keeps the recipients the routes of the email were delivered to, a retry sends the email to
+   * the recipients of the failed routes only.
+   */
+  private static void addDeliveredRecipients(EmailEntity email, List<String> recipients) {
+    if (recipients.isEmpty()) {
+      return;
+    }
+    var deliveredRecipients = new LinkedHashSet<>(email.getDeliveredRecipients());
+    deliveredRecipients.addAll(recipients);
+    log.info("addDeliveredRecipients:: {} of the recipients were delivered",
+      deliveredRecipients::size);
+    email.setDeliveredRecipients(new ArrayList<>(deliveredRecipients));
+  }
+
+  private static boolean isRelayUnavailable(Throwable throwable) {
+    return throwable instanceof ReplyException replyException
+      && replyException.failureCode() == RELAY_UNAVAILABLE_FAILURE_CODE;
+  }
+
+  /**
+   * The email was not handed over to the SMTP relay, so the attempt is not counted.
+   */
+  private static EmailEntity deferEmail(EmailEntity email, String message) {
+    log.debug("deferEmail:: SMTP relay is unavailable, deferring email for retry");
+    return email
+      .withStatus(FAILURE)
+      .withMessage(message)
+      .withDate(Date.from(ClockUtil.getZonedDateTime().toInstant()))
+      .withShouldRetry(true);
+  }
+
   private static EmailEntity updateEmail(EmailEntity email, Status status, String message) {
     log.debug("updateEmail:: parameters status: {}", () -> status);
     int newAttemptCount = email.getAttemptCount() + 1;
@@ -177,28 +259,81 @@ public abstract class AbstractEmail {
       .onSuccess(result -> log.debug("sendEmail:: result"));
   }
 
+  /**
+   * Saves the email, or appends it to the write-behind buffer if write-behind is enabled.
+   */
   protected Future<EmailEntity> saveEmail(EmailEntity email) {
     log.debug("saveEmail:: parameters");
 
-    return storageService.saveEmailEntity(tenantId, JsonObject.mapFrom(email))
+    var emailJson = JsonObject.mapFrom(email);
+    Future<?> saved = writeBehindBuffer.isEnabled()
+      ? writeBehindBuffer.add(emailJson)
+      : storageService.saveEmailEntity(tenantId, emailJson);
+    return saved
       .map(email)
       .onSuccess(result -> log.debug("saveEmail:: result"));
   }
 
-  protected Future<EmailEntries> findEmailEntries(int limit, int offset, String query) {
-    log.debug("findEmailEntries:: parameters limit: {}, offset: {}, query: {}", limit, offset,
-      query);
+  protected Future<Void> exportEmails(String query, ExportFormat format,
+    HttpServerResponse response) {
+
+    log.debug("exportEmails:: parameters query: {}, format: {}", query, format);
+    return new EmailExportService(vertx, tenantId).export(query, format, response);
+  }
+
+  protected Future<EmailStatistics> getEmailStatistics(String interval, String from, String to) {
+    log.debug("getEmailStatistics:: parameters interval: {}, from: {}, to: {}", interval, from,
+      to);
 
-    return storageService.findEmailEntries(tenantId, limit, offset, query)
-      .map(json -> json.mapTo(EmailEntries.class))
-      .onSuccess(result -> log.debug("findEmailEntries:: result totalRecords: {}",
+    return storageService.getEmailStatistics(tenantId, interval, from, to)
+      .map(json -> json.mapTo(EmailStatistics.class))
+      .onSuccess(result -> log.debug("getEmailStatistics:: result totalRecords: {}",
         result::getTotalRecords));
   }
 
+  protected Future<EmailQueue> getSendQueue() {
+    log.debug("getSendQueue:: parameters tenantId: {}", tenantId);
+
+    return mailService.getSendQueue(tenantId)
+      .map(json -> json.mapTo(EmailQueue.class));
+  }
+
+  protected Future<List<EmailEntity>> findEmailsForRetry(String createdAfter, int limit) {
+    log.debug("findEmailsForRetry:: parameters createdAfter: {}, limit: {}", createdAfter, limit);
+
+    return storageService.findEmailsForRetry(tenantId, createdAfter, limit)
+      .map(json -> json.mapTo(EmailEntries.class).getEmailEntity())
+      .onSuccess(result -> log.debug("findEmailsForRetry:: result count: {}", result::size));
+  }
+
+  protected Future<Void> searchEmails(String query, int offset, int limit,
+    List<String> excludedFields, HttpServerResponse response) {
+
+    log.debug("searchEmails:: parameters query: {}, offset: {}, limit: {}, excludedFields: {}",
+      query, offset, limit, excludedFields);
+    return new EmailSearchService(vertx, tenantId)
+      .search(query, offset, limit, excludedFields, response);
+  }
+
+  protected Future<Integer> restoreArchivedEmails(String from, String to) {
+    log.debug("restoreArchivedEmails:: parameters from: {}, to: {}", from, to);
+
+    return archiveStorageService.restoreArchivedEmails(tenantId, from, to)
+      .recover(cause -> failedFuture(isArchiveNotConfigured(cause)
+        ? new ConfigurationException(cause.getMessage())
+        : cause))
+      .onSuccess(count -> log.info("restoreArchivedEmails:: Restored {} emails", count));
+  }
+
+  private static boolean isArchiveNotConfigured(Throwable throwable) {
+    return throwable instanceof ReplyException replyException
+      && replyException.failureCode() == ARCHIVE_NOT_CONFIGURED_FAILURE_CODE;
+  }
+
   protected Future<Void> deleteEmailsByExpirationDate(String expirationDate, String emailStatus) {
     log.debug("deleteEmailsByExpirationDate:: parameters expirationDate: {}, emailStatus: {}", expirationDate, emailStatus);
 
-    return storageService.deleteEmailEntriesByExpirationDateAndStatus(tenantId, expirationDate, emailStatus)
+    return archiveStorageService.deleteEmailEntriesByExpirationDateAndStatus(tenantId, expirationDate, emailStatus)
       .onSuccess(r -> log.info("deleteEmailsByExpirationDate:: Successfully deleted emails with expiration date {}", expirationDate))
       .onFailure(t -> log.warn("deleteEmailsByExpirationDate:: Failed to delete emails with expiration date {}", expirationDate, t))
       .mapEmpty();
@@ -235,6 +370,11 @@ public abstract class AbstractEmail {
         .build();
     }
 
+    if (t.getClass() == DeliveryOverloadedException.class) {
+      log.warn("mapExceptionToResponse:: exception class is {}, responding with 429", t.getClass());
+      return ((DeliveryOverloadedException) t).buildErrorResponse();
+    }
+
     if (t.getClass() == SmtpConfigurationException.class) {
       log.warn("mapExceptionToResponse:: exception class is {}, responding with 200", t.getClass());
       return Response.status(200)
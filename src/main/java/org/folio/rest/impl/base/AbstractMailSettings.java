@@ -6,6 +6,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static org.folio.rest.jaxrs.resource.EmailSettings.PutEmailSettingsByIdResponse.respond204;
+import static org.folio.services.MailSettingsService.PERSISTENCE_POLICY_KEY;
 import static org.folio.services.MailSettingsService.SETTINGS_TABLE;
 import static org.folio.services.MailSettingsService.SMTP_CONFIG_KEY;
 
@@ -14,6 +15,7 @@ import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 import javax.ws.rs.core.Response;
 import org.apache.logging.log4j.LogManager;
@@ -29,13 +31,17 @@ import org.folio.rest.jaxrs.resource.EmailSettings.GetEmailSettingsResponse;
 import org.folio.rest.jaxrs.resource.EmailSettings.PostEmailSettingsResponse;
 import org.folio.rest.persist.Conn;
 import org.folio.rest.persist.PgUtil;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.services.SettingsChangeListener;
+import org.folio.util.PersistencePolicyValueVerifier;
 import org.folio.util.SmtpConfigurationValueVerifier;
 
 public abstract class AbstractMailSettings {
 
   private static final Logger log = LogManager.getLogger(AbstractMailSettings.class);
   private static final Map<String, Consumer<Object>> MAIL_SETTINGS_VERIFIERS = Map.of(
-    SMTP_CONFIG_KEY, SmtpConfigurationValueVerifier::verify
+    SMTP_CONFIG_KEY, SmtpConfigurationValueVerifier::verify,
+    PERSISTENCE_POLICY_KEY, PersistencePolicyValueVerifier::verify
   );
 
   protected AbstractMailSettings() {
@@ -89,7 +95,8 @@ public abstract class AbstractMailSettings {
     settingVerifier.accept(setting.getValue());
     removeIdFromValueIfPresent(setting);
 
-    return PgUtil.post(SETTINGS_TABLE, setting, okapiHeaders, vertxContext, PostEmailSettingsResponse.class);
+    return PgUtil.post(SETTINGS_TABLE, setting, okapiHeaders, vertxContext, PostEmailSettingsResponse.class)
+      .onComplete(result -> invalidateSettingsCache(okapiHeaders, vertxContext));
   }
 
   /**
@@ -114,7 +121,8 @@ public abstract class AbstractMailSettings {
 
     var postgresClient = PgUtil.postgresClient(vertxContext, okapiHeaders);
     return postgresClient.withTrans(conn -> conn.getById(SETTINGS_TABLE, id)
-      .compose(oldValue -> updateEntity(conn, id, oldValue, newValue)));
+        .compose(oldValue -> updateEntity(conn, id, oldValue, newValue)))
+      .onComplete(result -> invalidateSettingsCache(okapiHeaders, vertxContext));
   }
 
   /**
@@ -126,7 +134,8 @@ public abstract class AbstractMailSettings {
   protected Future<Response> deleteSettingById(String id,
     Map<String, String> okapiHeaders, Context context) {
     return PgUtil.deleteById(SETTINGS_TABLE, id,
-      okapiHeaders, context, DeleteEmailSettingsByIdResponse.class);
+        okapiHeaders, context, DeleteEmailSettingsByIdResponse.class)
+      .onComplete(result -> invalidateSettingsCache(okapiHeaders, context));
   }
 
   protected Response handleServiceError(Throwable throwable) {
@@ -147,6 +156,16 @@ public abstract class AbstractMailSettings {
       .build();
   }
 
+  /**
+   * Invalidates the cached settings of the tenant on this module instance before the response
+   * is sent, the other instances are invalidated by the change notification.
+   */
+  private static void invalidateSettingsCache(Map<String, String> okapiHeaders,
+    Context context) {
+
+    SettingsChangeListener.get(context.owner()).invalidate(TenantTool.tenantId(okapiHeaders));
+  }
+
   private Future<Response> updateEntity(Conn conn, String id, JsonObject prevValue, Setting newValue) {
     if (prevValue == null) {
       throw new EmailSettingsException(getEntityNotFoundErrorEntity(id), NOT_FOUND);
@@ -160,7 +179,7 @@ public abstract class AbstractMailSettings {
   private Error getInvalidKeyErrorEntity() {
     return new Error()
       .withCode("validation_error")
-      .withMessage("Key must be one of: " + MAIL_SETTINGS_VERIFIERS.keySet())
+      .withMessage("Key must be one of: " + new TreeSet<>(MAIL_SETTINGS_VERIFIERS.keySet()))
       .withParameters(List.of(new Parameter().withKey("key").withValue("invalid value")));
   }
 
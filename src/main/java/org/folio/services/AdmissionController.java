@@ -0,0 +1,143 @@
+package org.folio.services;
+
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.exceptions.DeliveryOverloadedException;
+
+/**
+ * Admission control of the emails submitted for delivery to the module instance.
+ *
+ * <p>Every admitted email is pending until it is sent and stored, whether it is still queued or
+ * already in flight. Once {@code MAIL_MAX_PENDING_SENDS} emails are pending, new submissions are
+ * rejected with a {@link DeliveryOverloadedException} instead of queueing until they time out.
+ * The rejection carries the time in which the pending emails are expected to be delivered at the
+ * observed delivery rate, so that callers back off for as long as the backlog lasts.
+ */
+public class AdmissionController {
+
+  private static final Logger log = LogManager.getLogger(AdmissionController.class);
+
+  public static final String MAX_PENDING_SENDS_ENV_NAME = "MAIL_MAX_PENDING_SENDS";
+  public static final String MAX_PENDING_SENDS_PROPERTY_NAME = "mailMaxPendingSends";
+  public static final int MAX_PENDING_SENDS_DEFAULT = 500;
+
+  static final long MIN_RETRY_AFTER_SECONDS = 1;
+  static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+  private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+  private static final double RATE_SMOOTHING = 0.5;
+  private static final String ERROR_OVERLOADED =
+    "Email delivery is overloaded, %d emails are pending, retry after %d seconds";
+
+  private final int maxPendingSends;
+  private int pendingSends;
+  private long completedInWindow;
+  private long windowStartedAt;
+  private double deliveryRate;
+
+  public AdmissionController() {
+    this(getEnvOrDefault(MAX_PENDING_SENDS_PROPERTY_NAME, MAX_PENDING_SENDS_ENV_NAME,
+      MAX_PENDING_SENDS_DEFAULT, Integer::parseInt));
+  }
+
+  AdmissionController(int maxPendingSends) {
+    this.maxPendingSends = Math.max(1, maxPendingSends);
+    this.windowStartedAt = System.nanoTime();
+  }
+
+  /**
+   * Executes the submission if the instance has capacity for the emails.
+   *
+   * @param emailCount number of emails the submission delivers
+   * @param submission the submission
+   * @return the result of the submission, or a failed {@link Future} with
+   *   {@link DeliveryOverloadedException} if the submission is not admitted
+   */
+  public <T> Future<T> execute(int emailCount, Supplier<Future<T>> submission) {
+    return admit(emailCount)
+      .compose(v -> submission.get()
+        .andThen(result -> release(emailCount)));
+  }
+
+  /**
+   * Admits the emails if the instance has capacity for them. Admitted emails must be released
+   * with {@link #release(int)} once they are processed.
+   *
+   * @param emailCount number of emails to admit
+   * @return a succeeded {@link Future} if the emails are admitted, or a failed {@link Future} with
+   *   {@link DeliveryOverloadedException}
+   */
+  public Future<Void> admit(int emailCount) {
+    if (tryAdmit(emailCount)) {
+      return Future.succeededFuture();
+    }
+
+    long retryAfter = getRetryAfterSeconds();
+    int pending = getPendingSends();
+    log.warn("admit:: Rejecting {} emails, pending: {}, retry after: {} s", emailCount, pending,
+      retryAfter);
+    return Future.failedFuture(new DeliveryOverloadedException(
+      String.format(ERROR_OVERLOADED, pending, retryAfter), retryAfter));
+  }
+
+  /**
+   * Releases the admitted emails once they are processed.
+   *
+   * @param emailCount number of processed emails
+   */
+  public synchronized void release(int emailCount) {
+    pendingSends -= emailCount;
+    completedInWindow += emailCount;
+
+    long now = System.nanoTime();
+    long elapsed = now - windowStartedAt;
+    if (elapsed >= RATE_WINDOW_NANOS) {
+      double windowRate = completedInWindow * 1e9 / elapsed;
+      deliveryRate = deliveryRate <= 0
+        ? windowRate
+        : RATE_SMOOTHING * windowRate + (1 - RATE_SMOOTHING) * deliveryRate;
+      completedInWindow = 0;
+      windowStartedAt = now;
+      log.debug("release:: pending: {}, delivery rate: {} emails/s", pendingSends, deliveryRate);
+    }
+  }
+
+  /**
+   * Returns the number of admitted emails that are not delivered yet.
+   *
+   * @return the number of pending emails
+   */
+  public synchronized int getPendingSends() {
+    return pendingSends;
+  }
+
+  /**
+   * Returns the time in seconds in which the pending emails are expected to be delivered.
+   *
+   * @return the number of seconds for the {@code Retry-After} header
+   */
+  public synchronized long getRetryAfterSeconds() {
+    if (deliveryRate <= 0) {
+      return MAX_RETRY_AFTER_SECONDS;
+    }
+    return Math.clamp((long) Math.ceil(pendingSends / deliveryRate), MIN_RETRY_AFTER_SECONDS,
+      MAX_RETRY_AFTER_SECONDS);
+  }
+
+  private synchronized boolean tryAdmit(int emailCount) {
+    if (pendingSends > 0 && pendingSends + emailCount > maxPendingSends) {
+      return false;
+    }
+    if (pendingSends == 0) {
+      // the delivery rate is measured while emails are pending only, idle time is not counted
+      completedInWindow = 0;
+      windowStartedAt = System.nanoTime();
+    }
+    pendingSends += emailCount;
+    return true;
+  }
+}
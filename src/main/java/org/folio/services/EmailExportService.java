@@ -0,0 +1,168 @@
+package org.folio.services;
+
+import static javax.ws.rs.core.HttpHeaders.CONTENT_DISPOSITION;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgConnection;
+import io.vertx.sqlclient.Cursor;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.cql2pgjson.CQL2PgJSON;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.persist.cql.CQLWrapper;
+
+/**
+ * Streams the emails of a tenant matching a CQL query into an HTTP response as NDJSON or CSV.
+ *
+ * <p>The rows are read on the reader database host through a server-side cursor and every batch
+ * is written to the response before the next one is fetched, so the memory used does not depend
+ * on the number of exported emails, and a slow client slows down the export instead of letting
+ * the rows pile up in the write queue.
+ */
+public class EmailExportService {
+
+  private static final Logger log = LogManager.getLogger(EmailExportService.class);
+
+  private static final String ALL_RECORDS_QUERY = "cql.allRecords=1";
+  private static final String SELECT_QUERY = "SELECT (jsonb - $1::text[])::text FROM %s.%s %s";
+  private static final int CURSOR_FETCH_SIZE = 500;
+  private static final List<String> CSV_COLUMNS = List.of("id", "notificationId", "status",
+    "date", "from", "to", "bcc", "header", "outputFormat", "priority", "attemptCount",
+    "shouldRetry", "message", "smtpReplyCode", "smtpEnhancedStatus");
+  private static final List<String> CSV_EXCLUDED_FIELDS = List.of("body", "attachments");
+  private static final String[] FORMULA_PREFIXES = {"=", "+", "-", "@"};
+  private static final String ATTACHMENT_FILE_NAME = "attachment; filename=\"emails.%s\"";
+
+  public enum ExportFormat {
+    NDJSON("application/x-ndjson", List.of(), json -> json + "\n"),
+    CSV("text/csv; charset=utf-8", CSV_EXCLUDED_FIELDS, EmailExportService::toCsvLine);
+
+    private final String contentType;
+    private final List<String> excludedFields;
+    private final Function<String, String> formatter;
+
+    ExportFormat(String contentType, List<String> excludedFields,
+      Function<String, String> formatter) {
+
+      this.contentType = contentType;
+      this.excludedFields = excludedFields;
+      this.formatter = formatter;
+    }
+
+    public static ExportFormat fromValue(String value) {
+      return StringUtils.isBlank(value) ? NDJSON : valueOf(value.trim().toUpperCase());
+    }
+  }
+
+  private final Vertx vertx;
+  private final String tenantId;
+
+  public EmailExportService(Vertx vertx, String tenantId) {
+    this.vertx = vertx;
+    this.tenantId = tenantId;
+  }
+
+  /**
+   * Writes the emails matching the query to the response and ends it. The response headers are
+   * written only once the query is prepared, so a failure before that can still be answered
+   * with an error response.
+   *
+   * @param query    CQL query, all emails are exported when blank
+   * @param format   format of the export
+   * @param response the response to write to
+   * @return a succeeded future once the response is ended
+   */
+  public Future<Void> export(String query, ExportFormat format, HttpServerResponse response) {
+    log.debug("export:: parameters tenantId: {}, query: {}, format: {}", tenantId, query, format);
+
+    String sql;
+    try {
+      var cql = new CQLWrapper(new CQL2PgJSON(EMAIL_STATISTICS_TABLE_NAME + ".jsonb"),
+        StringUtils.isBlank(query) ? ALL_RECORDS_QUERY : query);
+      sql = String.format(SELECT_QUERY, convertToPsqlStandard(tenantId),
+        EMAIL_STATISTICS_TABLE_NAME, cql);
+    } catch (Exception e) {
+      log.warn("export:: Failed to parse query {}", query, e);
+      return Future.failedFuture(e);
+    }
+
+    return PostgresClient.getInstance(vertx, tenantId)
+      .withReadConn(conn -> writeRows(conn.getPgConnection(), sql, format, response))
+      .compose(v -> response.end())
+      .onSuccess(v -> log.info("export:: Exported emails of tenant {} as {}", tenantId, format))
+      .onFailure(cause -> log.warn("export:: Failed to export emails: ", cause));
+  }
+
+  private static Future<Void> writeRows(PgConnection pgConnection, String sql,
+    ExportFormat format, HttpServerResponse response) {
+
+    return pgConnection.begin()
+      .compose(transaction -> pgConnection.prepare(sql)
+        .compose(statement -> {
+          response.setChunked(true)
+            .putHeader(CONTENT_TYPE, format.contentType)
+            .putHeader(CONTENT_DISPOSITION, String.format(ATTACHMENT_FILE_NAME,
+              format.name().toLowerCase()));
+          Future<Void> header = format == ExportFormat.CSV
+            ? response.write(String.join(",", CSV_COLUMNS) + "\r\n")
+            : Future.succeededFuture();
+          var cursor = statement.cursor(Tuple.tuple()
+            .addArrayOfString(format.excludedFields.toArray(String[]::new)));
+          return header.compose(v -> writeBatches(cursor, format, response));
+        })
+        .eventually(transaction::rollback));
+  }
+
+  /**
+   * Writes a batch of rows and fetches the next batch once the write has completed.
+   */
+  private static Future<Void> writeBatches(Cursor cursor, ExportFormat format,
+    HttpServerResponse response) {
+
+    return cursor.read(CURSOR_FETCH_SIZE)
+      .compose(rows -> {
+        var chunk = Buffer.buffer();
+        for (Row row : rows) {
+          chunk.appendString(format.formatter.apply(row.getString(0)));
+        }
+        return response.write(chunk);
+      })
+      .compose(v -> cursor.hasMore() ? writeBatches(cursor, format, response) : cursor.close());
+  }
+
+  static String toCsvLine(String emailJson) {
+    var email = new JsonObject(emailJson);
+    return CSV_COLUMNS.stream()
+      .map(column -> toCsvValue(email.getValue(column)))
+      .collect(Collectors.joining(",", "", "\r\n"));
+  }
+
+  /**
+   * Prefixes values starting like a formula with {@code '}, so a spreadsheet opening the export
+   * shows the text of a header or recipient instead of evaluating it.
+   */
+  private static String toCsvValue(Object value) {
+    String text = Objects.toString(value, "");
+    if (StringUtils.startsWithAny(text, FORMULA_PREFIXES)) {
+      text = "'" + text;
+    }
+    if (StringUtils.containsAny(text, ',', '"', '\r', '\n')) {
+      return '"' + text.replace("\"", "\"\"") + '"';
+    }
+    return text;
+  }
+}
@@ -0,0 +1,202 @@
+package org.folio.services;
+
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.pgclient.PgConnection;
+import io.vertx.sqlclient.Cursor;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.cql2pgjson.CQL2PgJSON;
+import org.folio.rest.persist.Conn;
+import org.folio.rest.persist.Criteria.Limit;
+import org.folio.rest.persist.Criteria.Offset;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.persist.cql.CQLWrapper;
+
+/**
+ * Streams a page of the emails of a tenant matching a CQL query into an HTTP response as
+ * EmailEntries JSON.
+ *
+ * <p>The page is read on the reader database host ({@code DB_HOST_READER}) through a server-side
+ * cursor, and every batch of rows is written to the response from the stored JSON text before the
+ * next one is fetched, so the page is never held as a whole. If the reader lags behind the primary
+ * for more than {@code MAIL_READER_MAX_LAG} milliseconds, or fails before the response is
+ * started, the page is read on the primary. {@code totalRecords} is the count estimate of RMB,
+ * selected with the rows of the page.
+ */
+public class EmailSearchService {
+
+  private static final Logger log = LogManager.getLogger(EmailSearchService.class);
+
+  public static final String READER_MAX_LAG_ENV_NAME = "MAIL_READER_MAX_LAG";
+  public static final String READER_MAX_LAG_PROPERTY_NAME = "mailReaderMaxLag";
+  public static final long READER_MAX_LAG_DEFAULT = 5000L;
+
+  private static final String SELECT_PAGE_QUERY = "SELECT (jsonb - $1::text[])::text, "
+    + "(SELECT %1$s.count_estimate($2)) FROM %1$s.%2$s %3$s";
+  private static final String COUNTED_QUERY = "SELECT jsonb FROM %s.%s %s";
+  private static final String COUNT_QUERY = "SELECT %s.count_estimate($1)";
+  private static final String READER_LAG_QUERY = "SELECT CASE WHEN pg_is_in_recovery() "
+    + "THEN COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) "
+    + "ELSE 0 END AS lag";
+  private static final int CURSOR_FETCH_SIZE = 100;
+
+  private final Vertx vertx;
+  private final String tenantId;
+  private final long readerMaxLagMillis;
+
+  public EmailSearchService(Vertx vertx, String tenantId) {
+    this(vertx, tenantId, getEnvOrDefault(READER_MAX_LAG_PROPERTY_NAME, READER_MAX_LAG_ENV_NAME,
+      READER_MAX_LAG_DEFAULT, Long::parseLong));
+  }
+
+  EmailSearchService(Vertx vertx, String tenantId, long readerMaxLagMillis) {
+    this.vertx = vertx;
+    this.tenantId = tenantId;
+    this.readerMaxLagMillis = readerMaxLagMillis;
+  }
+
+  /**
+   * Writes the page of the emails matching the query to the response and ends it. The response
+   * headers are written only once the first rows are read, so a failure before that can still
+   * be answered with an error response.
+   *
+   * @param query          CQL query
+   * @param offset         number of emails to skip
+   * @param limit          maximum number of emails of the page
+   * @param excludedFields top-level fields removed from the emails by the database
+   * @param response       the response to write to
+   * @return a succeeded future once the response is ended
+   */
+  public Future<Void> search(String query, int offset, int limit, List<String> excludedFields,
+    HttpServerResponse response) {
+
+    log.debug("search:: parameters tenantId: {}, query: {}, offset: {}, limit: {}, "
+      + "excludedFields: {}", tenantId, query, offset, limit, excludedFields);
+
+    Page page;
+    try {
+      var cql = new CQLWrapper(new CQL2PgJSON(EMAIL_STATISTICS_TABLE_NAME + ".jsonb"), query)
+        .setLimit(new Limit(limit))
+        .setOffset(new Offset(offset));
+      var schema = convertToPsqlStandard(tenantId);
+      var countedQuery = String.format(COUNTED_QUERY, schema, EMAIL_STATISTICS_TABLE_NAME,
+        cql.getWithoutLimOff());
+      page = new Page(String.format(SELECT_PAGE_QUERY, schema, EMAIL_STATISTICS_TABLE_NAME, cql),
+        Tuple.tuple()
+          .addArrayOfString(excludedFields.toArray(String[]::new))
+          .addString(countedQuery),
+        String.format(COUNT_QUERY, schema), countedQuery, offset);
+    } catch (Exception e) {
+      log.warn("search:: Failed to parse query {}", query, e);
+      return Future.failedFuture(e);
+    }
+
+    var pgClient = PostgresClient.getInstance(vertx, tenantId);
+    return pgClient.withReadConn(conn -> checkReaderLag(conn)
+        .compose(v -> writePage(conn, page, response)))
+      .recover(cause -> {
+        if (response.headWritten()) {
+          return Future.failedFuture(cause);
+        }
+        log.warn("search:: Reader query failed, falling back to the primary: {}",
+          cause.getMessage());
+        return pgClient.withConn(conn -> writePage(conn, page, response));
+      })
+      .compose(totalRecords -> response.end("],\"totalRecords\":" + totalRecords + "}"))
+      .onFailure(cause -> log.warn("search:: Failed to get email entries: ", cause));
+  }
+
+  /**
+   * Writes the rows of the page and returns the total number of records. The count is selected
+   * with every row, only an empty page past the first one needs a query of its own.
+   */
+  private static Future<Long> writePage(Conn conn, Page page, HttpServerResponse response) {
+    var pgConnection = conn.getPgConnection();
+    var written = new WrittenRows();
+    return readPage(pgConnection, page, response, written)
+      .compose(v -> {
+        if (written.count > 0 || page.offset == 0) {
+          return Future.succeededFuture(written.totalRecords);
+        }
+        return conn.execute(page.countSql, Tuple.of(page.countedQuery))
+          .map(rows -> rows.iterator().next().getLong(0));
+      });
+  }
+
+  /**
+   * Reads the rows through a cursor, only one batch of rows is held in memory at a time.
+   */
+  private static Future<Void> readPage(PgConnection pgConnection, Page page,
+    HttpServerResponse response, WrittenRows written) {
+
+    return pgConnection.begin()
+      .compose(transaction -> pgConnection.prepare(page.sql)
+        .compose(statement -> writeBatches(statement.cursor(page.params), response, written))
+        .eventually(transaction::rollback));
+  }
+
+  /**
+   * Writes a batch of rows and fetches the next batch once the write has completed. The headers
+   * and the start of the EmailEntries JSON are written with the first batch.
+   */
+  private static Future<Void> writeBatches(Cursor cursor, HttpServerResponse response,
+    WrittenRows written) {
+
+    return cursor.read(CURSOR_FETCH_SIZE)
+      .compose(rows -> {
+        var chunk = Buffer.buffer();
+        if (!response.headWritten()) {
+          response.setChunked(true).putHeader(CONTENT_TYPE, APPLICATION_JSON);
+          chunk.appendString("{\"emailEntity\":[");
+        }
+        for (Row row : rows) {
+          if (written.count++ == 0) {
+            written.totalRecords = row.getLong(1);
+          } else {
+            chunk.appendString(",");
+          }
+          chunk.appendString(row.getString(0));
+        }
+        return response.write(chunk);
+      })
+      .compose(v -> cursor.hasMore() ? writeBatches(cursor, response, written) : cursor.close());
+  }
+
+  /**
+   * Fails if the host of the connection is a replica lagging behind the primary for more than
+   * {@code MAIL_READER_MAX_LAG} milliseconds. Without a configured reader host the connection
+   * is to the primary, which never lags.
+   */
+  private Future<Void> checkReaderLag(Conn conn) {
+    return conn.execute(READER_LAG_QUERY)
+      .compose(rows -> {
+        double lagMillis = rows.iterator().next().getNumeric("lag").doubleValue();
+        if (lagMillis > readerMaxLagMillis) {
+          return Future.failedFuture(String.format(
+            "Reader lags behind the primary by %.0f ms", lagMillis));
+        }
+        return Future.succeededFuture();
+      });
+  }
+
+  private record Page(String sql, Tuple params, String countSql, String countedQuery,
+    int offset) {}
+
+  private static final class WrittenRows {
+
+    private int count;
+    private long totalRecords;
+  }
+}
@@ -0,0 +1,304 @@
+package org.folio.services;
+
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.services.storage.StorageService;
+
+/**
+ * Write-behind buffer of the emails of a tenant to be saved after a sending attempt.
+ *
+ * <p>When enabled by {@code MAIL_WRITE_BEHIND_ENABLED}, a saved email is appended to the buffer
+ * and the submission completes without waiting for the database. The buffer is flushed in
+ * batches of {@code MAIL_WRITE_BEHIND_BATCH_SIZE} emails, saved in one transaction, as soon as a
+ * batch is full or {@code MAIL_WRITE_BEHIND_FLUSH_INTERVAL} milliseconds after the first email
+ * was buffered. Once {@code MAIL_WRITE_BEHIND_CAPACITY} emails are buffered, saves wait for the
+ * next flush, so a slow database slows down the submissions instead of letting the buffer grow.
+ *
+ * <p>Emails failing to save are put back into the buffer and retried with an exponential
+ * backoff, starting at the flush interval and capped at {@value #MAX_RETRY_DELAY} milliseconds.
+ * While saving fails, a full buffer does not make saves wait for a retry, they are saved
+ * synchronously and fail with the database error. The buffer is flushed when the module shuts
+ * down.
+ */
+public class EmailWriteBehindBuffer {
+
+  private static final Logger log = LogManager.getLogger(EmailWriteBehindBuffer.class);
+
+  public static final String WRITE_BEHIND_ENABLED_ENV_NAME = "MAIL_WRITE_BEHIND_ENABLED";
+  public static final String WRITE_BEHIND_ENABLED_PROPERTY_NAME = "mailWriteBehindEnabled";
+  public static final String BATCH_SIZE_ENV_NAME = "MAIL_WRITE_BEHIND_BATCH_SIZE";
+  public static final String BATCH_SIZE_PROPERTY_NAME = "mailWriteBehindBatchSize";
+  public static final int BATCH_SIZE_DEFAULT = 100;
+  public static final String FLUSH_INTERVAL_ENV_NAME = "MAIL_WRITE_BEHIND_FLUSH_INTERVAL";
+  public static final String FLUSH_INTERVAL_PROPERTY_NAME = "mailWriteBehindFlushInterval";
+  public static final long FLUSH_INTERVAL_DEFAULT = 100L;
+  public static final String CAPACITY_ENV_NAME = "MAIL_WRITE_BEHIND_CAPACITY";
+  public static final String CAPACITY_PROPERTY_NAME = "mailWriteBehindCapacity";
+  public static final int CAPACITY_DEFAULT = 1000;
+
+  static final long MAX_RETRY_DELAY = 30_000L;
+  private static final long NO_TIMER = -1L;
+  private static final String ID = "id";
+
+  private final Vertx vertx;
+  private final String tenantId;
+  private final StorageService storageService;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final int capacity;
+  private final Deque<JsonObject> emails = new ArrayDeque<>();
+  private List<JsonObject> savingBatch = List.of();
+  private Future<Void> flushing;
+  private long flushTimerId = NO_TIMER;
+  private int failedFlushes;
+
+  public EmailWriteBehindBuffer(Vertx vertx, String tenantId, StorageService storageService) {
+    this(vertx, tenantId, storageService,
+      getEnvOrDefault(WRITE_BEHIND_ENABLED_PROPERTY_NAME, WRITE_BEHIND_ENABLED_ENV_NAME, false,
+        Boolean::parseBoolean),
+      getEnvOrDefault(BATCH_SIZE_PROPERTY_NAME, BATCH_SIZE_ENV_NAME, BATCH_SIZE_DEFAULT,
+        Integer::parseInt),
+      getEnvOrDefault(FLUSH_INTERVAL_PROPERTY_NAME, FLUSH_INTERVAL_ENV_NAME,
+        FLUSH_INTERVAL_DEFAULT, Long::parseLong),
+      getEnvOrDefault(CAPACITY_PROPERTY_NAME, CAPACITY_ENV_NAME, CAPACITY_DEFAULT,
+        Integer::parseInt));
+  }
+
+  EmailWriteBehindBuffer(Vertx vertx, String tenantId, StorageService storageService,
+    boolean enabled, int batchSize, long flushIntervalMillis, int capacity) {
+
+    this.vertx = vertx;
+    this.tenantId = tenantId;
+    this.storageService = storageService;
+    this.enabled = enabled;
+    this.batchSize = Math.max(1, batchSize);
+    this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+    this.capacity = Math.max(this.batchSize, capacity);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Appends the email to the buffer. While the buffer is full, waits for the next flush, or
+   * saves the email synchronously if the last flush failed.
+   *
+   * @param email the {@link org.folio.rest.jaxrs.model.EmailEntity} in a JSON format
+   * @return a succeeded {@link Future} once the email is buffered or saved
+   */
+  public Future<Void> add(JsonObject email) {
+    Future<Void> flush;
+    synchronized (this) {
+      if (emails.size() < capacity) {
+        emails.add(email);
+        if (emails.size() >= batchSize && failedFlushes == 0) {
+          startFlush();
+        } else {
+          scheduleFlush();
+        }
+        return Future.succeededFuture();
+      }
+      if (failedFlushes > 0) {
+        flush = null;
+      } else {
+        flush = startFlush();
+      }
+    }
+    if (flush == null) {
+      log.warn("add:: Buffer of tenant {} is full and saving fails, saving email {} directly",
+        tenantId, email.getString(ID));
+      return storageService.saveEmailEntity(tenantId, email)
+        .onSuccess(saved -> removeOlderVersions(email))
+        .mapEmpty();
+    }
+    log.debug("add:: Buffer of tenant {} is full, waiting for the flush", tenantId);
+    return flush.compose(v -> add(email));
+  }
+
+  /**
+   * Finds the most recently buffered email matching the filter, among the emails waiting in
+   * the buffer and the emails being saved.
+   *
+   * @param filter the filter of the emails
+   * @return the email, {@code null} if no buffered email matches
+   */
+  public synchronized JsonObject findBuffered(Predicate<JsonObject> filter) {
+    var waiting = emails.descendingIterator();
+    while (waiting.hasNext()) {
+      var email = waiting.next();
+      if (filter.test(email)) {
+        return email;
+      }
+    }
+    for (int i = savingBatch.size() - 1; i >= 0; i--) {
+      if (filter.test(savingBatch.get(i))) {
+        return savingBatch.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Saves all buffered emails.
+   *
+   * @return a succeeded {@link Future} once the buffer is empty, a failed one if emails could
+   *   not be saved, they stay in the buffer
+   */
+  public Future<Void> flush() {
+    return startFlush()
+      .compose(v -> {
+        synchronized (this) {
+          if (failedFlushes > 0) {
+            return Future.failedFuture(String.format(
+              "Failed to save %d buffered emails of tenant %s", emails.size(), tenantId));
+          }
+          return emails.isEmpty() ? Future.succeededFuture() : flush();
+        }
+      });
+  }
+
+  public synchronized int getBufferedCount() {
+    return emails.size();
+  }
+
+  /**
+   * Starts saving the next batch unless a batch is being saved already.
+   *
+   * @return the {@link Future} of the batch being saved
+   */
+  private synchronized Future<Void> startFlush() {
+    if (flushing != null) {
+      return flushing;
+    }
+    cancelFlushTimer();
+    if (emails.isEmpty()) {
+      return Future.succeededFuture();
+    }
+
+    List<JsonObject> batch = new ArrayList<>(Math.min(batchSize, emails.size()));
+    while (batch.size() < batchSize && !emails.isEmpty()) {
+      batch.add(emails.poll());
+    }
+    savingBatch = batch;
+    Promise<Void> promise = Promise.promise();
+    flushing = promise.future();
+    save(batch).onComplete(unsaved -> {
+      flushCompleted(unsaved.result());
+      promise.complete();
+    });
+    return promise.future();
+  }
+
+  /**
+   * Puts the emails failing to save back to the head of the buffer, unless a newer version of
+   * the email was buffered meanwhile, and schedules their retry.
+   */
+  private synchronized void flushCompleted(List<JsonObject> unsaved) {
+    flushing = null;
+    savingBatch = List.of();
+    if (unsaved.isEmpty()) {
+      failedFlushes = 0;
+    } else {
+      failedFlushes++;
+      for (int i = unsaved.size() - 1; i >= 0; i--) {
+        var email = unsaved.get(i);
+        if (!isBuffered(email.getString(ID))) {
+          emails.addFirst(email);
+        }
+      }
+      log.warn("flushCompleted:: Failed to save {} emails of tenant {}, retrying in {} ms",
+        unsaved.size(), tenantId, getFlushDelay());
+    }
+    if (emails.size() >= batchSize && failedFlushes == 0) {
+      startFlush();
+    } else if (!emails.isEmpty()) {
+      scheduleFlush();
+    }
+  }
+
+  private boolean isBuffered(String id) {
+    return id != null && emails.stream().anyMatch(email -> id.equals(email.getString(ID)));
+  }
+
+  /**
+   * Removes the buffered versions of an email saved directly, so they do not overwrite it.
+   */
+  private synchronized void removeOlderVersions(JsonObject email) {
+    var id = email.getString(ID);
+    if (id != null) {
+      emails.removeIf(buffered -> id.equals(buffered.getString(ID)));
+    }
+  }
+
+  private void scheduleFlush() {
+    if (flushTimerId == NO_TIMER && flushing == null) {
+      flushTimerId = vertx.setTimer(getFlushDelay(), id -> {
+        synchronized (this) {
+          flushTimerId = NO_TIMER;
+        }
+        startFlush();
+      });
+    }
+  }
+
+  /**
+   * Returns the flush interval, doubled with every flush failed in a row.
+   */
+  private long getFlushDelay() {
+    long delay = flushIntervalMillis;
+    for (int i = 1; i < failedFlushes && delay < MAX_RETRY_DELAY; i++) {
+      delay *= 2;
+    }
+    return failedFlushes == 0 ? delay : Math.min(delay, MAX_RETRY_DELAY);
+  }
+
+  private void cancelFlushTimer() {
+    if (flushTimerId != NO_TIMER) {
+      vertx.cancelTimer(flushTimerId);
+      flushTimerId = NO_TIMER;
+    }
+  }
+
+  /**
+   * Saves the batch in one transaction. If the batch fails, its emails are saved one by one, so
+   * that an email failing to save does not hold back the others. Never fails.
+   *
+   * @return the emails of the batch that could not be saved
+   */
+  private Future<List<JsonObject>> save(List<JsonObject> batch) {
+    log.debug("save:: Saving a batch of {} emails of tenant {}", batch.size(), tenantId);
+    return storageService.saveEmailEntities(tenantId, batch)
+      .<List<JsonObject>>map(v -> List.of())
+      .recover(cause -> {
+        log.warn("save:: Failed to save a batch of {} emails, saving them one by one",
+          batch.size(), cause);
+        var saves = batch.stream().map(this::saveOne).toList();
+        return Future.join(saves).transform(result -> Future.succeededFuture(
+          IntStream.range(0, batch.size())
+            .filter(i -> saves.get(i).failed())
+            .mapToObj(batch::get)
+            .toList()));
+      })
+      .otherwise(cause -> batch);
+  }
+
+  private Future<JsonObject> saveOne(JsonObject email) {
+    return storageService.saveEmailEntity(tenantId, email)
+      .onFailure(cause -> log.error("saveOne:: Failed to save email {} of tenant {}",
+        email.getString(ID), tenantId, cause));
+  }
+}
@@ -0,0 +1,132 @@
+package org.folio.services;
+
+import static org.folio.rest.jaxrs.model.EmailEntity.Status.DELIVERED;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.jaxrs.model.EmailEntries;
+import org.folio.services.storage.StorageService;
+
+/**
+ * Makes email submissions of a tenant idempotent, so a client re-sending a request after a
+ * timeout does not send the email twice.
+ *
+ * <p>A submission is identified by the email {@code id} or, when the id is absent, by its
+ * {@code notificationId} and recipients. A submission whose key is in flight completes with the
+ * result of the in-flight submission; a submission whose key already has a DELIVERED record
+ * completes with that record. Neither contacts the SMTP relay nor stores a new record, and
+ * neither is subject to admission control, which only applies to the processing of new
+ * submissions. Delivered emails still waiting in the write-behind buffer are found before the
+ * database is queried, as they are not saved yet.
+ *
+ * <p>In-flight submissions are tracked per module instance only, so the same submission sent to
+ * two instances at once may still be sent twice.
+ */
+public class IdempotentSubmissionService {
+
+  private static final Logger log = LogManager.getLogger(IdempotentSubmissionService.class);
+
+  private static final String DELIVERED_BY_ID_QUERY = "id==%s and status==" + DELIVERED.value();
+  private static final String DELIVERED_BY_NOTIFICATION_QUERY =
+    "notificationId==%s and to==%s and status==" + DELIVERED.value();
+
+  private final String tenantId;
+  private final StorageService storageService;
+  private final EmailWriteBehindBuffer writeBehindBuffer;
+  private final Map<String, Future<EmailEntity>> inFlightSubmissions = new ConcurrentHashMap<>();
+
+  public IdempotentSubmissionService(String tenantId, StorageService storageService,
+    EmailWriteBehindBuffer writeBehindBuffer) {
+
+    this.tenantId = tenantId;
+    this.storageService = storageService;
+    this.writeBehindBuffer = writeBehindBuffer;
+  }
+
+  /**
+   * Submits the email unless the same submission is in flight or already delivered.
+   *
+   * @param email   the submitted email
+   * @param process processes (sends and stores) the email
+   * @return the result of the submission
+   */
+  public Future<EmailEntity> submit(EmailEntity email, Supplier<Future<EmailEntity>> process) {
+    var key = getIdempotencyKey(email);
+    if (key == null) {
+      return process.get();
+    }
+
+    Promise<EmailEntity> promise = Promise.promise();
+    var inFlight = inFlightSubmissions.putIfAbsent(key, promise.future());
+    if (inFlight != null) {
+      log.info("submit:: Submission {} is in flight, waiting for its result", key);
+      return inFlight;
+    }
+
+    findDelivered(email)
+      .compose(delivered -> delivered != null ? Future.succeededFuture(delivered) : process.get())
+      .onComplete(result -> inFlightSubmissions.remove(key))
+      .onComplete(promise);
+
+    return promise.future();
+  }
+
+  private Future<EmailEntity> findDelivered(EmailEntity email) {
+    var buffered = writeBehindBuffer.findBuffered(bufferedEmail ->
+      DELIVERED.value().equals(bufferedEmail.getString("status"))
+        && isSameSubmission(email, bufferedEmail));
+    if (buffered != null) {
+      log.info("findDelivered:: Email {} is already delivered and waits to be saved, not sending "
+        + "it again", buffered.getString("id"));
+      return Future.succeededFuture(buffered.mapTo(EmailEntity.class));
+    }
+
+    var query = StringUtils.isNotBlank(email.getId())
+      ? String.format(DELIVERED_BY_ID_QUERY, cqlString(email.getId()))
+      : String.format(DELIVERED_BY_NOTIFICATION_QUERY, cqlString(email.getNotificationId()),
+        cqlString(email.getTo()));
+
+    return storageService.findFirstEmailEntry(tenantId, query)
+      .map(json -> json.mapTo(EmailEntries.class).getEmailEntity())
+      .map(emails -> emails.isEmpty() ? null : emails.get(0))
+      .onSuccess(delivered -> {
+        if (delivered != null) {
+          log.info("findDelivered:: Email {} is already delivered, not sending it again",
+            delivered.getId());
+        }
+      });
+  }
+
+  private static boolean isSameSubmission(EmailEntity email, JsonObject bufferedEmail) {
+    if (StringUtils.isNotBlank(email.getId())) {
+      return email.getId().equals(bufferedEmail.getString("id"));
+    }
+    return email.getNotificationId().equals(bufferedEmail.getString("notificationId"))
+      && email.getTo().equals(bufferedEmail.getString("to"));
+  }
+
+  private static String getIdempotencyKey(EmailEntity email) {
+    if (StringUtils.isNotBlank(email.getId())) {
+      return email.getId();
+    }
+    if (StringUtils.isNoneBlank(email.getNotificationId(), email.getTo())) {
+      return email.getNotificationId() + ":" + email.getTo();
+    }
+    return null;
+  }
+
+  /**
+   * Quotes the value as a CQL string matched literally.
+   */
+  private static String cqlString(String value) {
+    return "\"" + value.replaceAll("[\\\\\"*?^]", "\\\\$0") + "\"";
+  }
+}
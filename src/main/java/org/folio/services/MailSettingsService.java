@@ -15,23 +15,24 @@ import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
 import org.folio.rest.persist.Criteria.Limit;
 import org.folio.rest.persist.interfaces.Results;
+import org.folio.services.storage.PersistencePolicy;
 import org.folio.util.EmailUtils;
 
 import static io.vertx.core.Future.failedFuture;
 import static io.vertx.core.Future.succeededFuture;
+import static org.folio.util.PersistencePolicyValueVerifier.POLICY_FIELD;
+
 public class MailSettingsService {
 
   private static final Logger log = LogManager.getLogger(MailSettingsService.class);
   public static final String SETTINGS_TABLE = "settings";
   public static final String SMTP_CONFIG_KEY = "smtp-configuration";
+  public static final String PERSISTENCE_POLICY_KEY = "persistence-policy";
 
   public Future<SmtpConfiguration> getSmtpConfigSetting(Conn conn) {
     log.debug("getSmtpConfiguration::");
-    var searchCriteria = new Criteria().addField("'key'").setOperation("=").setVal(SMTP_CONFIG_KEY);
-    var criterion = new Criterion().addCriterion(searchCriteria).setLimit(new Limit(1));
-
     return conn
-      .get(SETTINGS_TABLE, Setting.class, criterion)
+      .get(SETTINGS_TABLE, Setting.class, getSettingByKeyCriterion(SMTP_CONFIG_KEY))
       .compose(this::getFirstExceptionally)
       .map(Setting::getValue)
       .map(settingValue -> JsonObject.mapFrom(settingValue).mapTo(SmtpConfiguration.class))
@@ -58,6 +59,27 @@ public class MailSettingsService {
       .compose(entityId -> getSmtpConfigSetting(conn));
   }
 
+  /**
+   * Gets the persistence policy of the stored emails, {@link PersistencePolicy#FULL} if it is
+   * not set.
+   */
+  public Future<PersistencePolicy> getPersistencePolicy(Conn conn) {
+    log.debug("getPersistencePolicy::");
+    return conn
+      .get(SETTINGS_TABLE, Setting.class, getSettingByKeyCriterion(PERSISTENCE_POLICY_KEY))
+      .map(results -> results.getResults().stream()
+        .findFirst()
+        .map(setting -> JsonObject.mapFrom(setting.getValue()).getString(POLICY_FIELD))
+        .map(PersistencePolicy::valueOf)
+        .orElse(PersistencePolicy.FULL))
+      .onSuccess(policy -> log.debug("getPersistencePolicy:: result: {}", policy));
+  }
+
+  private static Criterion getSettingByKeyCriterion(String key) {
+    var searchCriteria = new Criteria().addField("'key'").setOperation("=").setVal(key);
+    return new Criterion().addCriterion(searchCriteria).setLimit(new Limit(1));
+  }
+
   private Future<Setting> getFirstExceptionally(Results<Setting> results) {
     return results.getResults().isEmpty()
       ? failedFuture(new SmtpConfigurationNotFoundException())
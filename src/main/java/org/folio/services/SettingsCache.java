@@ -0,0 +1,60 @@
+package org.folio.services;
+
+import io.vertx.core.Future;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache of a configuration value per tenant, invalidated by the {@link SettingsChangeListener}
+ * when the configuration of the tenant changes on any module instance.
+ *
+ * <p>Values are cached only while the listener is listening; while it is not, changes could be
+ * missed, so every lookup loads the value. Failed loads are not cached.
+ *
+ * @param <T> the type of the cached value
+ */
+public class SettingsCache<T> {
+
+  private final Map<String, Future<T>> entries = new ConcurrentHashMap<>();
+  private final BooleanSupplier enabled;
+
+  public SettingsCache(BooleanSupplier enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns the cached value of the tenant, loading it if it is not cached. Concurrent lookups
+   * share the load in progress.
+   *
+   * @param tenantId the tenant identifier
+   * @param loader   loads the value
+   * @return the value
+   */
+  public Future<T> get(String tenantId, Supplier<Future<T>> loader) {
+    if (!enabled.getAsBoolean()) {
+      return loader.get();
+    }
+
+    var cached = entries.get(tenantId);
+    if (cached != null) {
+      return cached;
+    }
+    var loaded = loader.get();
+    var previous = entries.putIfAbsent(tenantId, loaded);
+    if (previous != null) {
+      return previous;
+    }
+    loaded.onFailure(cause -> entries.remove(tenantId, loaded));
+    return loaded;
+  }
+
+  public void invalidate(String tenantId) {
+    entries.remove(tenantId);
+  }
+
+  public void invalidateAll() {
+    entries.clear();
+  }
+}
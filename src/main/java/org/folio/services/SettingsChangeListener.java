@@ -0,0 +1,169 @@
+package org.folio.services;
+
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.internal.VertxInternal;
+import io.vertx.pgclient.PgConnection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.persist.PostgresClient;
+
+/**
+ * Invalidates the {@link SettingsCache}s of the module instance when the configuration of a
+ * tenant changes on any instance.
+ *
+ * <p>The triggers on the {@code settings} and {@code smtp_configuration} tables of every tenant
+ * send the tenant id to the {@value #SETTINGS_CHANGED_CHANNEL} channel when a transaction changes
+ * them. The listener holds one database connection on which it listens to the channel, and
+ * invalidates the cached values of the tenant when a notification arrives. When the connection
+ * is lost all caches are invalidated and bypassed until the listener is listening again, so no
+ * change is missed. The settings APIs also invalidate the caches of the instance serving the
+ * change before responding, so the change applies to the next request without waiting for the
+ * notification. Caching is disabled by {@code MAIL_SETTINGS_CACHE_ENABLED=false}. The listener of
+ * a Vert.x instance stops and is removed when the instance is closed.
+ */
+public class SettingsChangeListener {
+
+  private static final Logger log = LogManager.getLogger(SettingsChangeListener.class);
+
+  public static final String SETTINGS_CHANGED_CHANNEL = "mod_email_settings_changed";
+  public static final String SETTINGS_CACHE_ENABLED_ENV_NAME = "MAIL_SETTINGS_CACHE_ENABLED";
+  public static final String SETTINGS_CACHE_ENABLED_PROPERTY_NAME = "mailSettingsCacheEnabled";
+
+  static final long RECONNECT_DELAY_MILLIS = 5_000L;
+
+  private static final String LISTEN_QUERY = "LISTEN " + SETTINGS_CHANGED_CHANNEL;
+  private static final Map<Vertx, SettingsChangeListener> listeners = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final boolean enabled;
+  private final List<SettingsCache<?>> caches = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private volatile boolean listening;
+  private volatile boolean closed;
+
+  SettingsChangeListener(Vertx vertx, boolean enabled) {
+    this.vertx = vertx;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns the listener of the Vert.x instance, creating it on first use.
+   *
+   * @param vertx the Vert.x instance
+   * @return the listener
+   */
+  public static SettingsChangeListener get(Vertx vertx) {
+    return listeners.computeIfAbsent(vertx, SettingsChangeListener::register);
+  }
+
+  static boolean isRegistered(Vertx vertx) {
+    return listeners.containsKey(vertx);
+  }
+
+  /**
+   * Creates the listener of the Vert.x instance with a close hook removing it, so a closed
+   * instance is not kept reachable and its listener does not reconnect.
+   */
+  private static SettingsChangeListener register(Vertx vertx) {
+    var listener = new SettingsChangeListener(vertx, getEnvOrDefault(
+      SETTINGS_CACHE_ENABLED_PROPERTY_NAME, SETTINGS_CACHE_ENABLED_ENV_NAME, true,
+      Boolean::parseBoolean));
+    ((VertxInternal) vertx).addCloseHook(completion -> {
+      log.debug("register:: Vert.x instance is closed, removing its settings change listener");
+      listener.closed = true;
+      listeners.remove(vertx);
+      completion.succeed();
+    });
+    return listener;
+  }
+
+  /**
+   * Creates a cache invalidated by the listener.
+   *
+   * @param <T> the type of the cached value
+   * @return the cache
+   */
+  public <T> SettingsCache<T> createCache() {
+    var cache = new SettingsCache<T>(this::isListening);
+    caches.add(cache);
+    return cache;
+  }
+
+  public boolean isListening() {
+    return listening;
+  }
+
+  /**
+   * Starts listening to the changes if caching is enabled and the listener is not started yet.
+   */
+  public void start() {
+    if (!enabled) {
+      log.info("start:: Settings cache is disabled");
+      return;
+    }
+    if (started.compareAndSet(false, true)) {
+      listen();
+    }
+  }
+
+  private void listen() {
+    log.debug("listen:: Listening to channel {}", SETTINGS_CHANGED_CHANNEL);
+    PostgresClient.getInstance(vertx)
+      .withConn(conn -> listen(conn.getPgConnection()))
+      .onComplete(result -> {
+        listening = false;
+        invalidateAll();
+        if (closed) {
+          log.info("listen:: Vert.x instance is closed, stopped listening to settings changes");
+          return;
+        }
+        log.warn("listen:: Stopped listening to settings changes, reconnecting in {} ms",
+          RECONNECT_DELAY_MILLIS, result.cause());
+        vertx.setTimer(RECONNECT_DELAY_MILLIS, id -> listen());
+      });
+  }
+
+  /**
+   * Listens on the connection until it is closed, the connection is held that long.
+   */
+  private Future<Void> listen(PgConnection pgConnection) {
+    Promise<Void> closed = Promise.promise();
+    pgConnection.notificationHandler(notification -> {
+      log.info("listen:: Settings of tenant {} changed", notification.getPayload());
+      invalidate(notification.getPayload());
+    });
+    pgConnection.exceptionHandler(closed::tryFail);
+    pgConnection.closeHandler(v -> closed.tryFail("Connection closed"));
+
+    return pgConnection.query(LISTEN_QUERY).execute()
+      .onSuccess(rows -> {
+        // changes made while not listening are unknown
+        invalidateAll();
+        listening = true;
+        log.info("listen:: Listening to settings changes");
+      })
+      .compose(rows -> closed.future());
+  }
+
+  /**
+   * Invalidates the cached values of the tenant on this module instance.
+   *
+   * @param tenantId the tenant identifier
+   */
+  public void invalidate(String tenantId) {
+    caches.forEach(cache -> cache.invalidate(tenantId));
+  }
+
+  private void invalidateAll() {
+    caches.forEach(SettingsCache::invalidateAll);
+  }
+}
@@ -54,22 +54,26 @@ public class SmtpConfigurationProvider {
   private static final String ERROR_LOOKING_UP_MOD_CONFIG =
     "Error looking up config at %s | Expected status code 200, got %s | error message: %s";
 
+  private final String tenantId;
+  private final SettingsCache<SmtpConfiguration> cache;
   private final PostgresClient postgresClient;
   private final MailSettingsService mailSettingsService;
   private final Function<Map<String, String>, OkapiClient> okapiClientSupplier;
   private final Supplier<SmtpConfigurationService> smtpConfigurationServiceSupplier;
 
-  public SmtpConfigurationProvider(Vertx vertx,
+  public SmtpConfigurationProvider(Vertx vertx, String tenantId,
     MailSettingsService settingsService, PostgresClient postgresClient) {
-    this(settingsService, postgresClient,
-      headers -> new OkapiClient(vertx, headers, getWebClientOptions()),
+    this(tenantId, SettingsChangeListener.get(vertx).createCache(), settingsService,
+      postgresClient, headers -> new OkapiClient(vertx, headers, getWebClientOptions()),
       SmtpConfigurationService::new);
   }
 
-  SmtpConfigurationProvider(
+  SmtpConfigurationProvider(String tenantId, SettingsCache<SmtpConfiguration> cache,
     MailSettingsService settingsService, PostgresClient postgresClient,
     Function<Map<String, String>, OkapiClient> okapiClientSupplier,
     Supplier<SmtpConfigurationService> smtpConfigurationServiceSupplier) {
+    this.tenantId = tenantId;
+    this.cache = cache;
     this.postgresClient = postgresClient;
     this.mailSettingsService = settingsService;
     this.okapiClientSupplier = okapiClientSupplier;
@@ -93,6 +97,8 @@ public class SmtpConfigurationProvider {
    *       for the {@code mod-configuration} entries (deletion is best-effort and logged).</li>
    * </ul>
    *
+   * <p>The resolved configuration is cached until the settings of the tenant change.
+   *
    * @param headers Okapi request headers required for mod-config requests
    *                       (e.g. tenant, token); must not be {@code null}
    * @return a {@code Future} that completes with the resolved {@code SmtpConfiguration}
@@ -101,12 +107,12 @@ public class SmtpConfigurationProvider {
   public Future<SmtpConfiguration> lookup(Map<String, String> headers) {
     log.debug("lookupSmtpConfiguration:: parameters requestHeaders: {}", () -> headersAsString(headers));
 
-    return postgresClient.withTrans(conn ->
+    return cache.get(tenantId, () -> postgresClient.withTrans(conn ->
       mailSettingsService.getSmtpConfigSetting(conn)
         .recover(err -> tryFindAndMigrateSettingsFromSmtpRepo(conn, err))
         .recover(err -> tryFindAndMigrateSettingsFromModConfiguration(err, conn, headers))
         .onFailure(err -> log.warn("Failed to find SMTP configuration: {} {}",
-          err.getClass().getSimpleName(), err.getMessage())));
+          err.getClass().getSimpleName(), err.getMessage()))));
   }
 
   private Future<SmtpConfiguration> tryFindAndMigrateSettingsFromSmtpRepo(Conn conn, Throwable err) {
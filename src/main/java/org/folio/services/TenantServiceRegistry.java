@@ -0,0 +1,126 @@
+package org.folio.services;
+
+import static org.folio.util.EmailUtils.MAIL_SERVICE_ADDRESS;
+import static org.folio.util.EmailUtils.STORAGE_SERVICE_ADDRESS;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.internal.VertxInternal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.services.email.MailService;
+import org.folio.services.storage.StorageService;
+
+/**
+ * Caches the services used by the API implementations per Vert.x instance and tenant.
+ *
+ * <p>RMB creates a new API instance for every request; taking the services from the registry
+ * avoids creating the event bus proxies, the settings service and the SMTP configuration
+ * provider for each of them, and lets concurrent requests share the in-flight submissions. The
+ * services of a tenant are removed when the module is disabled for the tenant, the services of
+ * a Vert.x instance when the instance is closed.
+ */
+public class TenantServiceRegistry {
+
+  private static final Logger log = LogManager.getLogger(TenantServiceRegistry.class);
+  private static final Map<Vertx, Map<String, TenantServices>> tenantServices =
+    new ConcurrentHashMap<>();
+  private static final Map<Vertx, AdmissionController> admissionControllers =
+    new ConcurrentHashMap<>();
+
+  private TenantServiceRegistry() {
+  }
+
+  /**
+   * Returns the services of the tenant, creating them on first use.
+   *
+   * @param vertx    the Vert.x instance
+   * @param tenantId the tenant identifier
+   * @return the services of the tenant
+   */
+  public static TenantServices get(Vertx vertx, String tenantId) {
+    return tenantServices.computeIfAbsent(vertx, TenantServiceRegistry::register)
+      .computeIfAbsent(tenantId, id -> createServices(vertx, id));
+  }
+
+  /**
+   * Removes the services of the tenant, saving the emails still held by its write-behind
+   * buffer.
+   *
+   * @param vertx    the Vert.x instance
+   * @param tenantId the tenant identifier
+   * @return a succeeded {@link Future} once the buffered emails are saved
+   */
+  public static Future<Void> remove(Vertx vertx, String tenantId) {
+    var services = tenantServices.getOrDefault(vertx, Map.of()).get(tenantId);
+    if (services == null) {
+      return Future.succeededFuture();
+    }
+    log.info("remove:: Removing the services of tenant {}", tenantId);
+    return services.writeBehindBuffer().flush()
+      .onComplete(v -> tenantServices.getOrDefault(vertx, Map.of()).remove(tenantId));
+  }
+
+  /**
+   * Saves the emails buffered by the write-behind buffers of all tenants of the Vert.x instance.
+   *
+   * @param vertx the Vert.x instance
+   * @return a succeeded {@link Future} once the buffers are empty
+   */
+  public static Future<Void> flushWriteBehindBuffers(Vertx vertx) {
+    var services = tenantServices.getOrDefault(vertx, Map.of()).values();
+    log.info("flushWriteBehindBuffers:: Flushing the buffers of {} tenants", services.size());
+    return Future.join(services.stream()
+        .map(tenant -> tenant.writeBehindBuffer().flush())
+        .toList())
+      .mapEmpty();
+  }
+
+  static boolean isRegistered(Vertx vertx) {
+    return tenantServices.containsKey(vertx) || admissionControllers.containsKey(vertx);
+  }
+
+  /**
+   * Registers a close hook removing the services of the Vert.x instance, so a closed instance
+   * is not kept reachable by the registry.
+   */
+  private static Map<String, TenantServices> register(Vertx vertx) {
+    ((VertxInternal) vertx).addCloseHook(completion -> {
+      log.debug("register:: Vert.x instance is closed, removing its services");
+      tenantServices.remove(vertx);
+      admissionControllers.remove(vertx);
+      completion.succeed();
+    });
+    return new ConcurrentHashMap<>();
+  }
+
+  private static TenantServices createServices(Vertx vertx, String tenantId) {
+    log.debug("createServices:: tenantId: {}", tenantId);
+    var mailSettingsService = new MailSettingsService();
+    var postgresClient = PostgresClient.getInstance(vertx, tenantId);
+    var storageService = StorageService.createProxy(vertx, STORAGE_SERVICE_ADDRESS);
+    var writeBehindBuffer = new EmailWriteBehindBuffer(vertx, tenantId, storageService);
+
+    return new TenantServices(
+      MailService.createProxy(vertx, MAIL_SERVICE_ADDRESS),
+      storageService,
+      StorageService.createArchiveProxy(vertx, STORAGE_SERVICE_ADDRESS),
+      new SmtpConfigurationProvider(vertx, tenantId, mailSettingsService, postgresClient),
+      new IdempotentSubmissionService(tenantId, storageService, writeBehindBuffer),
+      admissionControllers.computeIfAbsent(vertx, v -> new AdmissionController()),
+      writeBehindBuffer);
+  }
+
+  /**
+   * Services of a tenant. The admission controller is shared by all tenants of the Vert.x
+   * instance. The archive storage service is a storage proxy with the longer timeout of the
+   * purge and the restore of archived emails.
+   */
+  public record TenantServices(MailService mailService, StorageService storageService,
+    StorageService archiveStorageService, SmtpConfigurationProvider smtpConfigurationProvider,
+    IdempotentSubmissionService submissionService, AdmissionController admissionController,
+    EmailWriteBehindBuffer writeBehindBuffer) {}
+}
@@ -20,6 +20,13 @@ public interface MailService {
   String SEND_TIMEOUT_PROPERTY_NAME = "mailDeliverySendTimeout";
   long SEND_TIMEOUT_DEFAULT = 30000L;
 
+  /**
+   * Failure code of a send rejected without contacting the SMTP relay because the relay is
+   * known to be unavailable. Such emails are deferred for retry. The code is outside of the range
+   * of SMTP reply codes, which are passed as failure codes of the relay replies.
+   */
+  int RELAY_UNAVAILABLE_FAILURE_CODE = 1000;
+
   static MailService create(Vertx vertx) {
     return new MailServiceImpl(vertx);
   }
@@ -47,4 +54,14 @@ public interface MailService {
    * @param emailEntityJson MailMessage object containing the mail text, from/to, attachments etc
    */
   Future<JsonObject> sendEmail(String tenantId, JsonObject configJson, JsonObject emailEntityJson);
+
+  /**
+   * Returns the state of the send pipeline of the tenant on this module instance: the sends
+   * waiting per priority lane, for the send rate limit and for a send slot, and the current
+   * limit of in-flight sends.
+   *
+   * @param tenantId the tenant identifier
+   * @return the state as {@code emailQueue} JSON
+   */
+  Future<JsonObject> getSendQueue(String tenantId);
 }
@@ -0,0 +1,202 @@
+package org.folio.services.email.impl;
+
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Weighted fair scheduler of the sends of all tenants served by the module instance.
+ *
+ * <p>At most {@code MAIL_MAX_IN_FLIGHT} sends are in progress at a time, and at most
+ * {@code MAIL_TENANT_MAX_IN_FLIGHT} of them belong to the same tenant. When a slot becomes free
+ * it is given to the waiting tenant with the lowest virtual start time (start-time fair
+ * queueing): every started send advances the virtual time of its tenant by {@code 1 / weight},
+ * so under contention each tenant gets a share of the slots proportional to its weight, no matter
+ * how many emails it has queued. Weights are configured in {@code MAIL_TENANT_WEIGHTS} as
+ * {@code tenant:weight} pairs, tenants not listed have weight 1. A send still waiting when its
+ * {@link SendDeadline} passes is failed instead of being started. The queue of a tenant is
+ * dropped once it has neither waiting nor in-flight sends, so a returning tenant starts at the
+ * current virtual time.
+ */
+public class FairSendScheduler {
+
+  private static final Logger log = LogManager.getLogger(FairSendScheduler.class);
+
+  public static final String MAX_IN_FLIGHT_ENV_NAME = "MAIL_MAX_IN_FLIGHT";
+  public static final String MAX_IN_FLIGHT_PROPERTY_NAME = "mailMaxInFlight";
+  public static final int MAX_IN_FLIGHT_DEFAULT = 50;
+  public static final String TENANT_MAX_IN_FLIGHT_ENV_NAME = "MAIL_TENANT_MAX_IN_FLIGHT";
+  public static final String TENANT_MAX_IN_FLIGHT_PROPERTY_NAME = "mailTenantMaxInFlight";
+  public static final int TENANT_MAX_IN_FLIGHT_DEFAULT = 10;
+  public static final String TENANT_WEIGHTS_ENV_NAME = "MAIL_TENANT_WEIGHTS";
+  public static final String TENANT_WEIGHTS_PROPERTY_NAME = "mailTenantWeights";
+
+  private static final double DEFAULT_WEIGHT = 1;
+  private static final String ERROR_WAIT_TOO_LONG =
+    "Email of tenant %s was not sent, it has waited for a send slot for %d ms";
+
+  private final Vertx vertx;
+  private final int maxInFlight;
+  private final int tenantMaxInFlight;
+  private final Map<String, Double> weights;
+  private final Map<String, TenantQueue> queues = new HashMap<>();
+  private int inFlight;
+  private double virtualTime;
+
+  public FairSendScheduler(Vertx vertx) {
+    this(vertx, getEnvOrDefault(MAX_IN_FLIGHT_PROPERTY_NAME, MAX_IN_FLIGHT_ENV_NAME,
+        MAX_IN_FLIGHT_DEFAULT, Integer::parseInt),
+      getEnvOrDefault(TENANT_MAX_IN_FLIGHT_PROPERTY_NAME, TENANT_MAX_IN_FLIGHT_ENV_NAME,
+        TENANT_MAX_IN_FLIGHT_DEFAULT, Integer::parseInt),
+      getEnvOrDefault(TENANT_WEIGHTS_PROPERTY_NAME, TENANT_WEIGHTS_ENV_NAME, Map.of(),
+        FairSendScheduler::parseWeights));
+  }
+
+  FairSendScheduler(Vertx vertx, int maxInFlight, int tenantMaxInFlight,
+    Map<String, Double> weights) {
+
+    this.vertx = vertx;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.tenantMaxInFlight = Math.clamp(tenantMaxInFlight, 1, this.maxInFlight);
+    this.weights = weights;
+  }
+
+  /**
+   * Executes the send once the scheduler gives the tenant a send slot.
+   *
+   * @param tenantId the tenant identifier
+   * @param deadline the deadline of the send
+   * @param send     the send operation
+   * @return the result of the send
+   */
+  public <T> Future<T> execute(String tenantId, SendDeadline deadline,
+    Supplier<Future<T>> send) {
+
+    return acquire(tenantId, deadline)
+      .compose(v -> send.get()
+        .andThen(result -> release(tenantId)));
+  }
+
+  /**
+   * Returns the number of sends of the tenant waiting for a send slot.
+   *
+   * @param tenantId the tenant identifier
+   * @return the queue depth of the tenant
+   */
+  public synchronized int getQueueDepth(String tenantId) {
+    var queue = queues.get(tenantId);
+    return queue == null ? 0 : queue.waiters.size();
+  }
+
+  synchronized int getQueueCount() {
+    return queues.size();
+  }
+
+  static Map<String, Double> parseWeights(String value) {
+    if (StringUtils.isBlank(value)) {
+      return Map.of();
+    }
+    return Arrays.stream(value.split(","))
+      .map(String::trim)
+      .filter(StringUtils::isNotBlank)
+      .map(pair -> pair.split(":"))
+      .collect(Collectors.toMap(pair -> pair[0].trim(),
+        pair -> Double.parseDouble(pair[1].trim())));
+  }
+
+  private synchronized Future<Void> acquire(String tenantId, SendDeadline deadline) {
+    var queue = queues.computeIfAbsent(tenantId, TenantQueue::new);
+    if (queue.waiters.isEmpty() && canStart(queue)) {
+      start(queue);
+      return Future.succeededFuture();
+    }
+
+    var future = queue.waiters.add(deadline);
+    log.debug("acquire:: Waiting for a send slot, tenant: {}, queue depth: {}, in flight: {}",
+      tenantId, queue.waiters.size(), inFlight);
+    return future;
+  }
+
+  private void release(String tenantId) {
+    List<Promise<Void>> ready = new ArrayList<>();
+    synchronized (this) {
+      inFlight--;
+      queues.get(tenantId).inFlight--;
+      TenantQueue next;
+      while ((next = nextQueue()) != null) {
+        ready.add(next.waiters.poll().promise());
+        start(next);
+      }
+      removeIfIdle(tenantId);
+    }
+    // the next sends are started by the event loop, not on the stack of the finished send
+    var context = vertx.getOrCreateContext();
+    ready.forEach(promise -> context.runOnContext(v -> promise.complete()));
+  }
+
+  private synchronized void removeIfIdle(String tenantId) {
+    var queue = queues.get(tenantId);
+    if (queue != null && queue.inFlight == 0 && queue.waiters.isEmpty()) {
+      queues.remove(tenantId);
+    }
+  }
+
+  private TenantQueue nextQueue() {
+    if (inFlight >= maxInFlight) {
+      return null;
+    }
+    TenantQueue next = null;
+    for (var queue : queues.values()) {
+      if (!queue.waiters.isEmpty() && queue.inFlight < tenantMaxInFlight
+        && (next == null || queue.getStartTime() < next.getStartTime())) {
+        next = queue;
+      }
+    }
+    return next;
+  }
+
+  private boolean canStart(TenantQueue queue) {
+    return inFlight < maxInFlight && queue.inFlight < tenantMaxInFlight;
+  }
+
+  private void start(TenantQueue queue) {
+    double startTime = queue.getStartTime();
+    virtualTime = startTime;
+    queue.finishTime = startTime + 1 / queue.weight;
+    queue.inFlight++;
+    inFlight++;
+  }
+
+  private final class TenantQueue {
+
+    private final String tenantId;
+    private final double weight;
+    private final SendWaitQueue<Void> waiters;
+    private int inFlight;
+    private double finishTime;
+
+    private TenantQueue(String tenantId) {
+      this.tenantId = tenantId;
+      this.waiters = new SendWaitQueue<>(vertx, FairSendScheduler.this,
+        waitedMillis -> String.format(ERROR_WAIT_TOO_LONG, tenantId, waitedMillis),
+        () -> removeIfIdle(tenantId));
+      this.weight = Math.max(Double.MIN_NORMAL, weights.getOrDefault(tenantId, DEFAULT_WEIGHT));
+    }
+
+    private double getStartTime() {
+      return Math.max(virtualTime, finishTime);
+    }
+  }
+}
@@ -1,23 +1,38 @@
 package org.folio.services.email.impl;
 
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.net.NetSocket;
 import io.vertx.ext.mail.MailClient;
 import io.vertx.ext.mail.MailConfig;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.folio.rest.jaxrs.model.Relay;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
 import org.folio.util.EmailUtils;
 
 public class MailClientProvider {
 
   private static final Logger log = LogManager.getLogger(MailClientProvider.class);
+  private static final int DEFAULT_CHECK_TIMEOUT_MILLIS = 10_000;
+  private static final String SMTP_GREETING_CODE = "220";
+  private static final String SMTP_CHECK_COMMANDS = "NOOP\r\nQUIT\r\n";
 
   private final Vertx vertx;
   private final Map<String, MailClientHolder> mailClientsCache;
+  private final Map<String, SharedMailClient> sharedClients = new ConcurrentHashMap<>();
+  private final Map<String, Future<Void>> reachabilityChecks = new ConcurrentHashMap<>();
 
   /**
    * Creates a new MailClientProvider using the given Vert.x instance.
@@ -30,32 +45,54 @@ public class MailClientProvider {
   }
 
   /**
-   * Returns a {@link MailClient} for the given tenant id and SMTP configuration.
+   * Returns a {@link MailClient} of the {@code host}/{@code port} relay for the given tenant id
+   * and SMTP configuration.
+   *
+   * @param tenantId          the tenant identifier
+   * @param smtpConfiguration the SMTP configuration to use for creating the client
+   * @return a {@link Future} that completes with the {@link MailClient} instance or fails if creation fails
+   * @see #get(String, SmtpConfiguration, Relay)
+   */
+  public Future<MailClient> get(String tenantId, SmtpConfiguration smtpConfiguration) {
+    return get(tenantId, smtpConfiguration, SmtpRelaySelector.getRelays(smtpConfiguration).get(0));
+  }
+
+  /**
+   * Returns a {@link MailClient} of the relay for the given tenant id and SMTP configuration.
    *
    * <p>
-   * If a cached client exists and its configuration equals the provided
-   * {@code smtpConfiguration}, the cached client is returned. Otherwise, a new
+   * The clients of a tenant are cached per relay. If the cached clients were created for a
+   * configuration equal to the provided {@code smtpConfiguration}, the client of the relay is
+   * returned, created on first use. Otherwise, all clients of the tenant are released and a new
    * client is created, cached and returned.
    *
+   * <p>
+   * A client and its connection pool are shared by all tenants connecting to the relay with the
+   * same connection settings, see {@link #acquire(MailConfig)}.
+   *
    * @param tenantId          the tenant identifier
    * @param smtpConfiguration the SMTP configuration to use for creating the client
+   * @param relay             the relay of the configuration to connect to
    * @return a {@link Future} that completes with the {@link MailClient} instance or fails if creation fails
    */
-  public Future<MailClient> get(String tenantId, SmtpConfiguration smtpConfiguration) {
-    log.debug("getOrCreateClient:: tenantId: {}, smtpConfiguration present",
-      () -> tenantId);
+  public Future<MailClient> get(String tenantId, SmtpConfiguration smtpConfiguration,
+    Relay relay) {
 
-    var currentTenantClient = mailClientsCache.get(tenantId);
-    if (shouldInitNewClient(currentTenantClient, smtpConfiguration)) {
+    log.debug("getOrCreateClient:: tenantId: {}, relay: {}", () -> tenantId,
+      () -> SmtpRelaySelector.getEndpoint(relay));
+
+    var currentTenantClients = mailClientsCache.get(tenantId);
+    if (shouldInitNewClient(currentTenantClients, smtpConfiguration)) {
       return Future.future(promise -> {
         log.info("getOrCreateClient:: Creating new mail client...");
-        createNewClient(tenantId, smtpConfiguration)
+        createNewClients(tenantId, smtpConfiguration)
+          .map(holder -> getClient(holder, relay))
           .onSuccess(promise::complete)
           .onFailure(promise::fail);
       });
     }
 
-    return Future.succeededFuture(currentTenantClient.client());
+    return Future.succeededFuture(getClient(currentTenantClients, relay));
   }
 
   /**
@@ -89,6 +126,39 @@ public class MailClientProvider {
     return Future.all(mailClients).mapEmpty();
   }
 
+  /**
+   * Creates the mail clients of the given tenant ahead of traffic and checks that their relays
+   * are reachable.
+   *
+   * <p>The client of every relay is created (or refreshed when the configuration has changed) and
+   * cached, so the first send does not pay for the client initialization. Then the reachability
+   * of every relay is checked: a separate connection is opened (using SSL when configured), the
+   * {@code 220} greeting is awaited and {@code NOOP}/{@code QUIT} are sent. The check uses its
+   * own connection, not the connection pool of the mail client, so it neither opens pooled
+   * connections nor TLS sessions for the sends; it only reports an unreachable relay before the
+   * first email is sent.
+   *
+   * @param tenantId          the tenant identifier
+   * @param smtpConfiguration the SMTP configuration of the tenant
+   * @return a {@link Future} that completes when all relays have answered the check
+   */
+  public Future<Void> warmUp(String tenantId, SmtpConfiguration smtpConfiguration) {
+    log.debug("warmUp:: tenantId: {}", tenantId);
+    long start = System.currentTimeMillis();
+
+    var relays = SmtpRelaySelector.getRelays(smtpConfiguration);
+    return get(tenantId, smtpConfiguration)
+      .compose(unused -> Future.all(relays.stream()
+        .map(relay -> get(tenantId, smtpConfiguration, relay)
+          .compose(client -> checkReachabilityOnce(getMailClientConfig(smtpConfiguration, relay))))
+        .toList()))
+      .<Void>mapEmpty()
+      .onSuccess(v -> log.info("warmUp:: SMTP relays for tenant {} are reachable, checked in {} ms",
+        tenantId, System.currentTimeMillis() - start))
+      .onFailure(t -> log.warn("warmUp:: Failed to warm up SMTP relay for tenant {}: {}",
+        tenantId, t.getMessage()));
+  }
+
   /**
    * Returns the {@link SmtpConfiguration} currently associated with the given tenant.
    *
@@ -96,7 +166,7 @@ public class MailClientProvider {
    * @return the {@link SmtpConfiguration} for the tenant, or {@code null} if no client/configuration is present
    */
   public SmtpConfiguration getConfiguration(String tenantId) {
-    var emptyConfiguration = new MailClientHolder(null, null);
+    var emptyConfiguration = new MailClientHolder(Map.of(), null);
     return mailClientsCache.getOrDefault(tenantId, emptyConfiguration).configuration();
   }
 
@@ -104,35 +174,181 @@ public class MailClientProvider {
     return mch == null || !mch.configuration().equals(newConfig);
   }
 
-  private Future<MailClient> createNewClient(String tenantId, SmtpConfiguration smtpConfiguration) {
-    log.debug("createNewClient:: tenantId: {}", tenantId);
-    return Optional.ofNullable(mailClientsCache.get(tenantId))
-      .map(MailClientProvider::closeClient)
+  private Future<MailClientHolder> createNewClients(String tenantId,
+    SmtpConfiguration smtpConfiguration) {
+
+    log.debug("createNewClients:: tenantId: {}", tenantId);
+    // the holder is swapped atomically: of overlapping calls for the same configuration only
+    // the first one replaces the holder, and only the replaced holder is released, exactly once
+    var replaced = new AtomicReference<MailClientHolder>();
+    var holder = mailClientsCache.compute(tenantId, (key, current) -> {
+      if (current != null && current.configuration().equals(smtpConfiguration)) {
+        return current;
+      }
+      replaced.set(current);
+      return new MailClientHolder(new ConcurrentHashMap<>(), smtpConfiguration);
+    });
+    return Optional.ofNullable(replaced.get())
+      .map(this::closeClient)
       .orElseGet(Future::succeededFuture)
-      .compose(unused -> {
-        var newClient = MailClient.create(vertx, getMailClientConfig(smtpConfiguration));
-        mailClientsCache.put(tenantId, new MailClientHolder(newClient, smtpConfiguration));
+      .map(holder);
+  }
 
-        log.debug("createNewClient:: Successfully created mail client");
-        return Future.succeededFuture(newClient);
+  private MailClient getClient(MailClientHolder holder, Relay relay) {
+    var mailConfig = getMailClientConfig(holder.configuration(), relay);
+    return holder.clients().computeIfAbsent(getClientKey(mailConfig), key -> acquire(mailConfig))
+      .client();
+  }
+
+  /**
+   * Returns the shared client of the connection settings, creating it on first use, and counts
+   * the reference. The client is keyed by a SHA-256 hash of the settings, so a relay used by many
+   * tenants with the same settings, e.g. by the members of a consortium, has one connection pool
+   * and the connections opened by the sends of one tenant are reused by the others. Headers and
+   * identities are applied to every message, so they do not prevent the sharing.
+   */
+  private PooledMailClient acquire(MailConfig mailConfig) {
+    var poolKey = getPoolKey(mailConfig);
+    var shared = sharedClients.compute(poolKey, (key, client) -> {
+      if (client == null) {
+        log.debug("acquire:: Creating mail client for relay {}:{}", mailConfig.getHostname(),
+          mailConfig.getPort());
+        return new SharedMailClient(MailClient.create(vertx, mailConfig), 1);
+      }
+      return new SharedMailClient(client.client(), client.references() + 1);
+    });
+    return new PooledMailClient(poolKey, shared.client());
+  }
+
+  /**
+   * Releases a reference to the shared client, the client is closed with its last reference.
+   */
+  private Future<Void> release(PooledMailClient pooledClient) {
+    var closed = new AtomicBoolean();
+    sharedClients.computeIfPresent(pooledClient.poolKey(), (key, client) -> {
+      if (client.references() > 1) {
+        return new SharedMailClient(client.client(), client.references() - 1);
+      }
+      closed.set(true);
+      return null;
+    });
+    return closed.get() ? pooledClient.client().close() : Future.succeededFuture();
+  }
+
+  static String getPoolKey(MailConfig mailConfig) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256")
+        .digest(mailConfig.toJson().encode().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  int getSharedClientCount() {
+    return sharedClients.size();
+  }
+
+  /**
+   * Returns the key of the client of a relay: {@code username@host:port} followed by the pool key,
+   * so relays of the same endpoint and username with different passwords or auth settings, e.g.
+   * a failover relay and a route, never get each other's client.
+   */
+  static String getClientKey(MailConfig mailConfig) {
+    return mailConfig.getUsername() + "@" + mailConfig.getHostname() + ":" + mailConfig.getPort()
+      + "#" + getPoolKey(mailConfig);
+  }
+
+  /**
+   * Checks the relay unless a check of the same shared client is in progress, so the tenants
+   * sharing a client are checked once.
+   */
+  private Future<Void> checkReachabilityOnce(MailConfig mailConfig) {
+    var poolKey = getPoolKey(mailConfig);
+    var check = reachabilityChecks.computeIfAbsent(poolKey,
+      key -> checkReachability(mailConfig));
+    check.onComplete(result -> reachabilityChecks.remove(poolKey, check));
+    return check;
+  }
+
+  /**
+   * Opens a connection of its own, outside the pool of the mail client, and awaits the greeting.
+   */
+  private Future<Void> checkReachability(MailConfig mailConfig) {
+    int connectTimeout = mailConfig.getConnectTimeout() > 0
+      ? mailConfig.getConnectTimeout()
+      : DEFAULT_CHECK_TIMEOUT_MILLIS;
+
+    var netClient = vertx.createNetClient(new NetClientOptions()
+      .setSsl(mailConfig.isSsl())
+      .setTrustAll(mailConfig.isTrustAll())
+      .setHostnameVerificationAlgorithm(mailConfig.isTrustAll() ? "" : "HTTPS")
+      .setConnectTimeout(connectTimeout));
+
+    return netClient.connect(mailConfig.getPort(), mailConfig.getHostname())
+      .compose(socket -> awaitGreeting(socket, connectTimeout))
+      .eventually(netClient::close);
+  }
+
+  private Future<Void> awaitGreeting(NetSocket socket, long timeout) {
+    Promise<Void> promise = Promise.promise();
+    long timerId = vertx.setTimer(timeout,
+      id -> promise.tryFail("No greeting from the SMTP relay within " + timeout + " ms"));
+
+    socket.handler(buffer -> {
+      var greeting = buffer.toString();
+      if (greeting.startsWith(SMTP_GREETING_CODE)) {
+        socket.write(SMTP_CHECK_COMMANDS);
+        promise.tryComplete();
+      } else {
+        promise.tryFail("Unexpected SMTP greeting: " + greeting.trim());
+      }
+    });
+    socket.exceptionHandler(promise::tryFail);
+    socket.closeHandler(v -> promise.tryFail("Connection closed by the SMTP relay"));
+
+    return promise.future()
+      .onComplete(ar -> {
+        vertx.cancelTimer(timerId);
+        socket.close();
       });
   }
 
-  private static Future<Void> closeClient(MailClientHolder clientHolder) {
-    log.debug("closeClient:: Closing existing mail client...");
+  private Future<Void> closeClient(MailClientHolder clientHolder) {
+    log.debug("closeClient:: Releasing existing mail clients...");
 
-    return clientHolder.client().close()
-      .onSuccess(v -> log.debug("closeClient:: Successfully closed mail client"))
-      .onFailure(error -> log.warn("closeClient:: Failed to close mail client", error));
+    return Future.all(clientHolder.clients().values().stream().map(this::release).toList())
+      .<Void>mapEmpty()
+      .onSuccess(v -> log.debug("closeClient:: Successfully released mail clients"))
+      .onFailure(error -> log.warn("closeClient:: Failed to release mail clients", error));
   }
 
-  private static MailConfig getMailClientConfig(SmtpConfiguration smtpConfiguration) {
+  private static MailConfig getMailClientConfig(SmtpConfiguration smtpConfiguration,
+    Relay relay) {
+
     log.debug("getMailConfig:: parameters smtpConfiguration present");
-    return EmailUtils.getMailConfig(smtpConfiguration);
+    var mailConfig = EmailUtils.getMailConfig(smtpConfiguration)
+      .setHostname(relay.getHost())
+      .setPort(relay.getPort());
+    Optional.ofNullable(relay.getUsername()).ifPresent(mailConfig::setUsername);
+    Optional.ofNullable(relay.getPassword()).ifPresent(mailConfig::setPassword);
+    return mailConfig;
   }
 
   /**
-   * Internal class to hold a MailClient and its associated configuration.
+   * Internal class to hold the MailClients of the relays, by {@link #getClientKey(MailConfig)},
+   * and their associated configuration.
+   */
+  private record MailClientHolder(Map<String, PooledMailClient> clients,
+    SmtpConfiguration configuration) {}
+
+  /**
+   * A shared client of a tenant and the key of the client in the shared clients.
+   */
+  private record PooledMailClient(String poolKey, MailClient client) {}
+
+  /**
+   * A client shared by the tenants and the number of tenant relays referencing it.
    */
-  private record MailClientHolder(MailClient client, SmtpConfiguration configuration) {}
+  private record SharedMailClient(MailClient client, int references) {}
 }
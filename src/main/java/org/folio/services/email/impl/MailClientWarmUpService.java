@@ -0,0 +1,111 @@
+package org.folio.services.email.impl;
+
+import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.services.MailSettingsService;
+
+/**
+ * Creates the mail clients of the tenants that have an SMTP configuration stored in
+ * {@code settings}, so the first email after a deploy does not pay for the client
+ * initialization, and checks that their relays are reachable. The check does not open pooled
+ * connections, the first send of a client still connects to the relay.
+ *
+ * <p>The warm-up is disabled by default. When enabled it runs once on startup and, if an interval
+ * is configured, periodically afterwards.
+ */
+public class MailClientWarmUpService {
+
+  public static final String WARMUP_ENABLED_ENV_NAME = "MAIL_CLIENT_WARMUP_ENABLED";
+  public static final String WARMUP_ENABLED_PROPERTY_NAME = "mailClientWarmupEnabled";
+  public static final String WARMUP_INTERVAL_ENV_NAME = "MAIL_CLIENT_WARMUP_INTERVAL";
+  public static final String WARMUP_INTERVAL_PROPERTY_NAME = "mailClientWarmupInterval";
+  public static final long WARMUP_INTERVAL_DEFAULT = 0L;
+
+  private static final Logger log = LogManager.getLogger(MailClientWarmUpService.class);
+  private static final String FIND_MODULE_SCHEMAS_QUERY =
+    "SELECT nspname FROM pg_catalog.pg_namespace WHERE nspname LIKE '%%%s'";
+
+  private final Vertx vertx;
+  private final MailClientProvider mailClientProvider;
+  private final MailSettingsService mailSettingsService;
+
+  public MailClientWarmUpService(Vertx vertx, MailClientProvider mailClientProvider) {
+    this(vertx, mailClientProvider, new MailSettingsService());
+  }
+
+  MailClientWarmUpService(Vertx vertx, MailClientProvider mailClientProvider,
+    MailSettingsService mailSettingsService) {
+
+    this.vertx = vertx;
+    this.mailClientProvider = mailClientProvider;
+    this.mailSettingsService = mailSettingsService;
+  }
+
+  /**
+   * Schedules the warm-up if it is enabled by {@code MAIL_CLIENT_WARMUP_ENABLED}.
+   */
+  public void start() {
+    boolean enabled = getEnvOrDefault(WARMUP_ENABLED_PROPERTY_NAME, WARMUP_ENABLED_ENV_NAME,
+      false, Boolean::parseBoolean);
+    if (!enabled) {
+      log.debug("start:: SMTP warm-up is disabled");
+      return;
+    }
+
+    long interval = getEnvOrDefault(WARMUP_INTERVAL_PROPERTY_NAME, WARMUP_INTERVAL_ENV_NAME,
+      WARMUP_INTERVAL_DEFAULT, Long::parseLong);
+    log.info("start:: Starting SMTP warm-up, interval: {} ms", interval);
+
+    vertx.runOnContext(v -> warmUpAll());
+    if (interval > 0) {
+      vertx.setPeriodic(interval, interval, id -> warmUpAll());
+    }
+  }
+
+  /**
+   * Warms up the mail clients of all tenants with a stored SMTP configuration.
+   *
+   * @return a {@link Future} that completes when all tenants have been processed
+   */
+  public Future<Void> warmUpAll() {
+    log.debug("warmUpAll:: warming up SMTP connections");
+
+    return findTenants()
+      .compose(tenants -> Future.join(tenants.stream().map(this::warmUp).toList()))
+      .onFailure(t -> log.warn("warmUpAll:: SMTP warm-up failed: {}", t.getMessage()))
+      .mapEmpty();
+  }
+
+  private Future<Void> warmUp(String tenantId) {
+    log.debug("warmUp:: tenantId: {}", tenantId);
+
+    return PostgresClient.getInstance(vertx, tenantId)
+      .withConn(mailSettingsService::getSmtpConfigSetting)
+      .compose(smtpConfiguration -> mailClientProvider.warmUp(tenantId, smtpConfiguration))
+      .onFailure(t -> log.debug("warmUp:: Skipping tenant {}: {}", tenantId, t.getMessage()))
+      .otherwiseEmpty();
+  }
+
+  private Future<List<String>> findTenants() {
+    String schemaSuffix = convertToPsqlStandard(StringUtils.EMPTY);
+    String query = String.format(FIND_MODULE_SCHEMAS_QUERY, schemaSuffix.replace("_", "\\_"));
+
+    return PostgresClient.getInstance(vertx)
+      .select(query)
+      .map(rows -> StreamSupport.stream(rows.spliterator(), false)
+        .map(row -> row.getString("nspname"))
+        .map(schema -> StringUtils.removeEnd(schema, schemaSuffix))
+        .filter(StringUtils::isNotBlank)
+        .toList())
+      .onSuccess(tenants -> log.debug("findTenants:: found {} tenants", tenants::size));
+  }
+}
@@ -7,13 +7,20 @@ import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang3.StringUtils.isNoneBlank;
 import static org.folio.rest.impl.base.AbstractEmail.RETRY_MAX_ATTEMPTS;
 import static org.folio.util.EmailUtils.getMessageConfig;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+import static org.folio.util.SmtpFailureUtils.isFailureBeforeTransaction;
+import static org.folio.util.SmtpFailureUtils.toServiceException;
+import static org.folio.util.SmtpFailureUtils.withDeliveredRecipients;
 
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.ws.rs.core.MediaType;
 
@@ -25,15 +32,19 @@ import org.folio.rest.jaxrs.model.Attachment;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.model.EmailHeader;
 import org.folio.rest.jaxrs.model.Identity;
+import org.folio.rest.jaxrs.model.Relay;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
 import org.folio.services.email.MailService;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mail.MailAttachment;
 import io.vertx.ext.mail.MailMessage;
+import io.vertx.ext.mail.MailResult;
+import io.vertx.serviceproxy.ServiceException;
 
 public class MailServiceImpl implements MailService {
 
@@ -41,11 +52,38 @@ public class MailServiceImpl implements MailService {
   private static final String ERROR_SENDING_EMAIL = "Error in the 'mod-email' module, the module didn't send email | message: %s";
   private static final String ERROR_ATTACHMENT_DATA = "Error attaching the `%s` file to email!";
   private static final String INCORRECT_ATTACHMENT_DATA = "No data attachment!";
+  private static final String ERROR_DEADLINE_PASSED =
+    "Email was not sent, the send timeout of %d ms passed before it reached the SMTP relay";
 
   private final MailClientProvider mailClientProvider;
+  private final PriorityDispatcher priorityDispatcher;
+  private final SendRateLimiter sendRateLimiter;
+  private final FairSendScheduler fairSendScheduler;
+  private final SendConcurrencyLimiter sendConcurrencyLimiter;
+  private final SmtpCircuitBreakerProvider circuitBreakerProvider;
+  private final SmtpRelaySelector relaySelector;
+  private final long sendTimeoutMillis;
 
   public MailServiceImpl(Vertx vertx) {
-    this.mailClientProvider = new MailClientProvider(vertx);
+    this(new MailClientProvider(vertx), new PriorityDispatcher(vertx), new SendRateLimiter(vertx),
+      new FairSendScheduler(vertx), new SendConcurrencyLimiter(vertx),
+      new SmtpCircuitBreakerProvider(vertx));
+  }
+
+  public MailServiceImpl(MailClientProvider mailClientProvider,
+    PriorityDispatcher priorityDispatcher, SendRateLimiter sendRateLimiter,
+    FairSendScheduler fairSendScheduler, SendConcurrencyLimiter sendConcurrencyLimiter,
+    SmtpCircuitBreakerProvider circuitBreakerProvider) {
+
+    this.mailClientProvider = mailClientProvider;
+    this.priorityDispatcher = priorityDispatcher;
+    this.sendRateLimiter = sendRateLimiter;
+    this.fairSendScheduler = fairSendScheduler;
+    this.sendConcurrencyLimiter = sendConcurrencyLimiter;
+    this.circuitBreakerProvider = circuitBreakerProvider;
+    this.relaySelector = new SmtpRelaySelector(circuitBreakerProvider);
+    this.sendTimeoutMillis = getEnvOrDefault(SEND_TIMEOUT_PROPERTY_NAME, SEND_TIMEOUT_ENV_NAME,
+      SEND_TIMEOUT_DEFAULT, Long::parseLong);
   }
 
   @Override
@@ -58,12 +96,19 @@ public class MailServiceImpl implements MailService {
       EmailEntity emailEntity = emailJson.mapTo(EmailEntity.class);
       MailMessage mailMessage = getMailMessage(emailEntity, smtpConfiguration);
       long start = currentTimeMillis();
+      // the caller gives up on the reply after the same timeout
+      var deadline = SendDeadline.after(sendTimeoutMillis);
 
       log.info("sendEmail:: Sending email: attempt {}/{} for tenant {}",
         emailEntity.getAttemptCount() + 1, RETRY_MAX_ATTEMPTS, tenantId);
 
-      return mailClientProvider.get(tenantId, smtpConfiguration)
-        .compose(mailClient -> mailClient.sendMail(mailMessage))
+      return priorityDispatcher.execute(tenantId, emailEntity.getPriority(), deadline,
+          () -> sendRateLimiter.acquire(tenantId, smtpConfiguration.getRateLimit(), deadline)
+            .compose(v -> fairSendScheduler.execute(tenantId, deadline,
+              () -> sendConcurrencyLimiter.execute(tenantId, deadline,
+                () -> sendRouted(tenantId, smtpConfiguration, mailMessage,
+                  new HashSet<>(emailEntity.getDeliveredRecipients()), deadline)))))
+        .recover(t -> failedFuture(toServiceException(t)))
         .onSuccess(r -> log.info("sendEmail:: Email sent in {} ms", currentTimeMillis() - start))
         .onFailure(t -> log.warn("sendEmail:: Failed to send email: ", t))
         .map(emailJson);
@@ -73,10 +118,98 @@ public class MailServiceImpl implements MailService {
     }
   }
 
+  /**
+   * Sends the message through the relays its recipients are routed to, split into one message
+   * per route, leaving out the recipients delivered by an earlier attempt. Completes once all
+   * messages are sent. If any of them fails, the failure carries the recipients of the routes
+   * sent successfully, so a retry does not send to them again.
+   */
+  private Future<Void> sendRouted(String tenantId, SmtpConfiguration smtpConfiguration,
+    MailMessage mailMessage, Set<String> deliveredRecipients, SendDeadline deadline) {
+
+    var routedMessages = RecipientDomainRouter.route(mailMessage, smtpConfiguration,
+      deliveredRecipients);
+    var sends = routedMessages.stream()
+      .map(routed -> sendThroughRelays(tenantId, smtpConfiguration, routed.message(),
+        routed.relay() == null
+          ? relaySelector.select(tenantId, smtpConfiguration)
+          : List.of(routed.relay()), 0, deadline))
+      .toList();
+    return Future.join(sends)
+      .<Void>mapEmpty()
+      .recover(t -> failedFuture(withDeliveredRecipients(t, IntStream.range(0, sends.size())
+        .filter(i -> sends.get(i).succeeded())
+        .mapToObj(i -> RecipientDomainRouter.listRecipients(routedMessages.get(i).message()))
+        .flatMap(List::stream)
+        .toList())));
+  }
+
+  /**
+   * Sends the message through the relay at the index, passing it to the next relay when the
+   * relay has surely not accepted it: its circuit is open, the connection failed or it replied
+   * {@code 421} before {@code MAIL FROM}. A failure later on, e.g. the connection dropped after
+   * {@code DATA}, is not passed on, the relay may have delivered the message. The message is
+   * dropped once the deadline has passed, the caller has given up on it and will retry it.
+   */
+  private Future<MailResult> sendThroughRelays(String tenantId,
+    SmtpConfiguration smtpConfiguration, MailMessage mailMessage, List<Relay> relays, int index,
+    SendDeadline deadline) {
+
+    if (deadline.isExpired()) {
+      log.warn("sendThroughRelays:: Send timeout of tenant {} passed, email is not sent",
+        tenantId);
+      return failedFuture(format(ERROR_DEADLINE_PASSED, sendTimeoutMillis));
+    }
+    var relay = relays.get(index);
+    long start = currentTimeMillis();
+    return circuitBreakerProvider.execute(SmtpRelaySelector.getEndpoint(relay),
+        () -> mailClientProvider.get(tenantId, smtpConfiguration, relay)
+          .compose(mailClient -> mailClient.sendMail(mailMessage)))
+      .onSuccess(result -> relaySelector.recordLatency(relay, currentTimeMillis() - start))
+      .recover(t -> {
+        if (index + 1 < relays.size() && isFailoverSafe(t)) {
+          log.warn("sendThroughRelays:: SMTP relay {} failed, trying the next relay: {}",
+            SmtpRelaySelector.getEndpoint(relay), t.getMessage());
+          return sendThroughRelays(tenantId, smtpConfiguration, mailMessage, relays, index + 1,
+            deadline);
+        }
+        return failedFuture(t);
+      });
+  }
+
+  private static boolean isFailoverSafe(Throwable throwable) {
+    return isFailureBeforeTransaction(throwable)
+      || throwable instanceof ServiceException serviceException
+        && serviceException.failureCode() == RELAY_UNAVAILABLE_FAILURE_CODE;
+  }
+
   public SmtpConfiguration getMailConfig(String tenantId) {
     return mailClientProvider.getConfiguration(tenantId);
   }
 
+  @Override
+  public Future<JsonObject> getSendQueue(String tenantId) {
+    log.debug("getSendQueue:: parameters tenantId: {}", tenantId);
+    var priorityLanes = new JsonArray();
+    priorityDispatcher.getStats(tenantId).forEach((priority, stats) -> priorityLanes.add(
+      new JsonObject()
+        .put("priority", priority.value())
+        .put("queueDepth", stats.queueDepth())
+        .put("inFlight", stats.inFlight())
+        .put("dispatchedSends", stats.dispatchedSends())
+        .put("waitedMillis", stats.waitedMillis())));
+    var rateLimiterStats = sendRateLimiter.getStats(tenantId);
+
+    return Future.succeededFuture(new JsonObject()
+      .put("priorityLanes", priorityLanes)
+      .put("rateLimiter", new JsonObject()
+        .put("queueDepth", rateLimiterStats.queueDepth())
+        .put("waitedSends", rateLimiterStats.waitedSends())
+        .put("waitedMillis", rateLimiterStats.waitedMillis()))
+      .put("schedulerQueueDepth", fairSendScheduler.getQueueDepth(tenantId))
+      .put("concurrencyLimit", sendConcurrencyLimiter.getLimit(tenantId)));
+  }
+
   private MailMessage getMailMessage(EmailEntity emailEntity, SmtpConfiguration smtpConfiguration) {
     log.debug("getMailMessage:: smtpConfiguration present");
 
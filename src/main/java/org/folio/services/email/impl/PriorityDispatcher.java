@@ -0,0 +1,236 @@
+package org.folio.services.email.impl;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.folio.rest.jaxrs.model.EmailEntity.Priority.BULK;
+import static org.folio.rest.jaxrs.model.EmailEntity.Priority.HIGH;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.jaxrs.model.EmailEntity.Priority;
+
+/**
+ * Dispatches the sends of a tenant through separate priority lanes.
+ *
+ * <p>Each lane has its own budget of in-flight sends, so a large batch of {@code BULK} emails
+ * cannot occupy the whole send pipeline. {@code HIGH} priority sends preempt bulk sends: a bulk
+ * send is started only while no high priority send is waiting. Within a lane sends are started in
+ * FIFO order. An email without a priority is sent as {@code BULK}, the default of the email
+ * schema, so a client has to opt in to preempting other sends. The {@code BULK} lane is not
+ * limited by default, so the sends of clients not setting a priority are not throttled. A send
+ * still waiting when its {@link SendDeadline} passes is failed instead of being started, because
+ * the caller has already given up on the reply. The lanes of a tenant are removed once they are
+ * idle.
+ */
+public class PriorityDispatcher {
+
+  private static final Logger log = LogManager.getLogger(PriorityDispatcher.class);
+
+  public static final String HIGH_PRIORITY_CONCURRENCY_ENV_NAME = "MAIL_HIGH_PRIORITY_CONCURRENCY";
+  public static final String HIGH_PRIORITY_CONCURRENCY_PROPERTY_NAME =
+    "mailHighPriorityConcurrency";
+  public static final int HIGH_PRIORITY_CONCURRENCY_DEFAULT = 10;
+  public static final String BULK_PRIORITY_CONCURRENCY_ENV_NAME = "MAIL_BULK_PRIORITY_CONCURRENCY";
+  public static final String BULK_PRIORITY_CONCURRENCY_PROPERTY_NAME =
+    "mailBulkPriorityConcurrency";
+  public static final int BULK_PRIORITY_CONCURRENCY_DEFAULT = 0;
+
+  private static final String ERROR_WAIT_TOO_LONG =
+    "Email of %s priority was not sent, it has waited in the queue for %d ms";
+
+  private final Vertx vertx;
+  private final Map<Priority, Integer> budgets = new EnumMap<>(Priority.class);
+  private final Map<String, TenantLanes> tenantLanes = new ConcurrentHashMap<>();
+
+  public PriorityDispatcher(Vertx vertx) {
+    this(vertx, getEnvOrDefault(HIGH_PRIORITY_CONCURRENCY_PROPERTY_NAME,
+        HIGH_PRIORITY_CONCURRENCY_ENV_NAME, HIGH_PRIORITY_CONCURRENCY_DEFAULT, Integer::parseInt),
+      getEnvOrDefault(BULK_PRIORITY_CONCURRENCY_PROPERTY_NAME,
+        BULK_PRIORITY_CONCURRENCY_ENV_NAME, BULK_PRIORITY_CONCURRENCY_DEFAULT, Integer::parseInt));
+  }
+
+  PriorityDispatcher(Vertx vertx, int highPriorityConcurrency, int bulkPriorityConcurrency) {
+    this.vertx = vertx;
+    budgets.put(HIGH, Math.max(1, highPriorityConcurrency));
+    // 0 - the bulk lane is not limited, as all sends were before the priority lanes
+    budgets.put(BULK, bulkPriorityConcurrency > 0 ? bulkPriorityConcurrency : Integer.MAX_VALUE);
+  }
+
+  /**
+   * Executes the send once its lane has a free slot and no send of a higher priority is waiting.
+   *
+   * @param tenantId the tenant identifier
+   * @param priority the priority of the email, {@code null} means {@code BULK}
+   * @param deadline the deadline of the send
+   * @param send     the send operation
+   * @return the result of the send
+   */
+  public <T> Future<T> execute(String tenantId, Priority priority, SendDeadline deadline,
+    Supplier<Future<T>> send) {
+
+    var lane = priority == null ? BULK : priority;
+    // acquired within compute, so idle lanes are never removed between the lookup and acquire
+    var acquired = new AtomicReference<Future<Void>>();
+    var lanes = tenantLanes.compute(tenantId, (key, current) -> {
+      var tenant = current == null ? new TenantLanes(key) : current;
+      acquired.set(tenant.acquire(lane, deadline));
+      return tenant;
+    });
+    return acquired.get()
+      .compose(v -> start(send)
+        .andThen(result -> lanes.release(lane)));
+  }
+
+  /**
+   * Starts the send, a send throwing instead of returning a failed future still releases its
+   * slot.
+   */
+  private static <T> Future<T> start(Supplier<Future<T>> send) {
+    try {
+      return send.get();
+    } catch (RuntimeException e) {
+      return Future.failedFuture(e);
+    }
+  }
+
+  private void removeIfIdle(String tenantId) {
+    tenantLanes.computeIfPresent(tenantId, (key, lanes) -> lanes.isIdle() ? null : lanes);
+  }
+
+  int getTenantCount() {
+    return tenantLanes.size();
+  }
+
+  /**
+   * Returns the statistics of the priority lanes of the tenant.
+   *
+   * @param tenantId the tenant identifier
+   * @return statistics per lane since the lanes of the tenant were last idle, all zero if the
+   *   tenant has no send in progress
+   */
+  public Map<Priority, LaneStats> getStats(String tenantId) {
+    var lanes = tenantLanes.get(tenantId);
+    if (lanes == null) {
+      Map<Priority, LaneStats> stats = new EnumMap<>(Priority.class);
+      budgets.keySet().forEach(lane -> stats.put(lane, new LaneStats(0, 0, 0, 0)));
+      return stats;
+    }
+    return lanes.getStats();
+  }
+
+  /**
+   * Snapshot of a priority lane of a tenant.
+   *
+   * @param queueDepth      number of sends waiting for a slot of the lane
+   * @param inFlight        number of sends in progress
+   * @param dispatchedSends number of sends started from the lane
+   * @param waitedMillis    total time the started sends spent waiting in the lane
+   */
+  public record LaneStats(int queueDepth, int inFlight, long dispatchedSends, long waitedMillis) {}
+
+  private static final class Lane {
+
+    private final SendWaitQueue<Void> waiters;
+    private int inFlight;
+    private long dispatchedSends;
+    private long waitedNanos;
+
+    private Lane(SendWaitQueue<Void> waiters) {
+      this.waiters = waiters;
+    }
+  }
+
+  private final class TenantLanes {
+
+    private final String tenantId;
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+
+    private TenantLanes(String tenantId) {
+      this.tenantId = tenantId;
+      // an expired waiter of a higher lane may be the only thing holding back a lower lane
+      budgets.keySet().forEach(priority -> lanes.put(priority, new Lane(new SendWaitQueue<>(
+        vertx, this, waitedMillis -> String.format(ERROR_WAIT_TOO_LONG, priority, waitedMillis),
+        this::dispatch))));
+    }
+
+    private synchronized Future<Void> acquire(Priority priority, SendDeadline deadline) {
+      var lane = lanes.get(priority);
+      if (lane.waiters.isEmpty() && canStart(priority)) {
+        lane.inFlight++;
+        lane.dispatchedSends++;
+        return Future.succeededFuture();
+      }
+
+      var future = lane.waiters.add(deadline);
+      log.debug("acquire:: Waiting in {} priority lane, tenant: {}, queue depth: {}",
+        priority, tenantId, lane.waiters.size());
+      return future;
+    }
+
+    private void release(Priority priority) {
+      synchronized (this) {
+        lanes.get(priority).inFlight--;
+      }
+      dispatch();
+      // a waiter exists only behind an in-flight send, so lanes become idle only on release
+      removeIfIdle(tenantId);
+    }
+
+    private synchronized boolean isIdle() {
+      return lanes.values().stream()
+        .allMatch(lane -> lane.inFlight == 0 && lane.waiters.isEmpty());
+    }
+
+    private void dispatch() {
+      List<Promise<Void>> ready = new ArrayList<>();
+      synchronized (this) {
+        long now = System.nanoTime();
+        for (var entry : lanes.entrySet()) {
+          var lane = entry.getValue();
+          while (!lane.waiters.isEmpty() && canStart(entry.getKey())) {
+            var waiter = lane.waiters.poll();
+            lane.inFlight++;
+            lane.dispatchedSends++;
+            lane.waitedNanos += now - waiter.enqueuedAt();
+            ready.add(waiter.promise());
+          }
+        }
+        log.debug("dispatch:: tenant: {}, dispatched: {}", tenantId, ready.size());
+      }
+      ready.forEach(Promise::complete);
+    }
+
+    private boolean canStart(Priority priority) {
+      if (lanes.get(priority).inFlight >= budgets.get(priority)) {
+        return false;
+      }
+      // lanes are ordered by priority, a lane may start only if no higher lane is waiting
+      for (var entry : lanes.entrySet()) {
+        if (entry.getKey() == priority) {
+          return true;
+        }
+        if (!entry.getValue().waiters.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private synchronized Map<Priority, LaneStats> getStats() {
+      Map<Priority, LaneStats> stats = new EnumMap<>(Priority.class);
+      lanes.forEach((priority, lane) -> stats.put(priority, new LaneStats(lane.waiters.size(),
+        lane.inFlight, lane.dispatchedSends, NANOSECONDS.toMillis(lane.waitedNanos))));
+      return stats;
+    }
+  }
+}
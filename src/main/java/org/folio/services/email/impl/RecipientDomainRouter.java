@@ -0,0 +1,167 @@
+package org.folio.services.email.impl;
+
+import io.vertx.ext.mail.MailMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.folio.rest.jaxrs.model.Relay;
+import org.folio.rest.jaxrs.model.Route;
+import org.folio.rest.jaxrs.model.SmtpConfiguration;
+
+/**
+ * Splits a message by the relays its recipients are routed to.
+ *
+ * <p>The {@code routes} of an SMTP configuration send the recipients of their domains through a
+ * dedicated relay. A recipient matches the route of its most specific domain: with routes for
+ * {@code folio.org} and {@code staff.folio.org}, {@code jane@it.staff.folio.org} is routed by the
+ * latter. Every route gets a copy of the message with only its own recipients, so a relay never
+ * receives recipients routed elsewhere. Recipients not matching any route are sent through the
+ * relays of the configuration.
+ */
+public final class RecipientDomainRouter {
+
+  private RecipientDomainRouter() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * A message and the relay of the route it is sent through.
+   *
+   * @param relay   the relay of the route, {@code null} for the relays of the configuration
+   * @param message the message with the recipients of the route
+   */
+  public record RoutedMessage(Relay relay, MailMessage message) {}
+
+  /**
+   * Splits the message by the routes of its recipients.
+   *
+   * @param mailMessage       the message to send
+   * @param smtpConfiguration the SMTP configuration with the routes
+   * @return the messages per route, the original message if all recipients share a route
+   * @see #route(MailMessage, SmtpConfiguration, Set)
+   */
+  public static List<RoutedMessage> route(MailMessage mailMessage,
+    SmtpConfiguration smtpConfiguration) {
+
+    return route(mailMessage, smtpConfiguration, Set.of());
+  }
+
+  /**
+   * Splits the message by the routes of its recipients, leaving out the recipients already
+   * delivered by an earlier attempt. A route without any other recipient is not sent again.
+   *
+   * @param mailMessage         the message to send
+   * @param smtpConfiguration   the SMTP configuration with the routes
+   * @param deliveredRecipients the recipients already delivered
+   * @return the messages per route with recipients left, the original message if all
+   *   recipients share a route and none of them is delivered
+   */
+  public static List<RoutedMessage> route(MailMessage mailMessage,
+    SmtpConfiguration smtpConfiguration, Set<String> deliveredRecipients) {
+
+    var routes = smtpConfiguration.getRoutes();
+    if ((routes == null || routes.isEmpty()) && deliveredRecipients.isEmpty()) {
+      return List.of(new RoutedMessage(null, mailMessage));
+    }
+
+    Map<String, Route> routesByDomain = new HashMap<>();
+    CollectionUtils.emptyIfNull(routes).forEach(route ->
+      CollectionUtils.emptyIfNull(route.getDomains()).forEach(domain ->
+        routesByDomain.putIfAbsent(domain.trim().toLowerCase(Locale.ROOT), route)));
+
+    // the key null stands for the recipients not matching any route
+    Map<Route, Recipients> recipientsByRoute = new LinkedHashMap<>();
+    Predicate<String> pending = address -> !deliveredRecipients.contains(address);
+    splitAddresses(mailMessage.getTo()).stream().filter(pending).forEach(address ->
+      getRecipients(recipientsByRoute, routesByDomain, address).to().add(address));
+    splitAddresses(mailMessage.getCc()).stream().filter(pending).forEach(address ->
+      getRecipients(recipientsByRoute, routesByDomain, address).cc().add(address));
+    splitAddresses(mailMessage.getBcc()).stream().filter(pending).forEach(address ->
+      getRecipients(recipientsByRoute, routesByDomain, address).bcc().add(address));
+
+    if (recipientsByRoute.size() <= 1 && deliveredRecipients.isEmpty()) {
+      var route = recipientsByRoute.keySet().stream().findFirst().orElse(null);
+      return List.of(new RoutedMessage(toRelay(route), mailMessage));
+    }
+
+    return recipientsByRoute.entrySet().stream()
+      .map(entry -> new RoutedMessage(toRelay(entry.getKey()), new MailMessage(mailMessage)
+        .setTo(entry.getValue().to())
+        .setCc(entry.getValue().cc())
+        .setBcc(entry.getValue().bcc())))
+      .toList();
+  }
+
+  /**
+   * Returns the To, Cc and Bcc recipients of the message, one address per entry.
+   *
+   * @param mailMessage the message
+   * @return the recipients of the message
+   */
+  public static List<String> listRecipients(MailMessage mailMessage) {
+    return Stream.of(mailMessage.getTo(), mailMessage.getCc(), mailMessage.getBcc())
+      .map(RecipientDomainRouter::splitAddresses)
+      .flatMap(List::stream)
+      .toList();
+  }
+
+  private static Recipients getRecipients(Map<Route, Recipients> recipientsByRoute,
+    Map<String, Route> routesByDomain, String address) {
+
+    return recipientsByRoute.computeIfAbsent(findRoute(routesByDomain, address),
+      route -> new Recipients(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+  }
+
+  /**
+   * Finds the route of the most specific domain of the address, e.g. {@code it.staff.folio.org},
+   * then {@code staff.folio.org}, then {@code folio.org}.
+   */
+  private static Route findRoute(Map<String, Route> routesByDomain, String address) {
+    var domain = StringUtils.substringAfterLast(address, "@")
+      .replace(">", "")
+      .trim()
+      .toLowerCase(Locale.ROOT);
+    while (!domain.isEmpty()) {
+      var route = routesByDomain.get(domain);
+      if (route != null) {
+        return route;
+      }
+      domain = StringUtils.substringAfter(domain, ".");
+    }
+    return null;
+  }
+
+  private static List<String> splitAddresses(List<String> addresses) {
+    if (addresses == null) {
+      return List.of();
+    }
+    return addresses.stream()
+      .filter(StringUtils::isNotBlank)
+      .flatMap(addressList -> Arrays.stream(addressList.split(",")))
+      .map(String::trim)
+      .filter(StringUtils::isNotBlank)
+      .toList();
+  }
+
+  private static Relay toRelay(Route route) {
+    if (route == null) {
+      return null;
+    }
+    return new Relay()
+      .withHost(route.getHost())
+      .withPort(route.getPort())
+      .withUsername(route.getUsername())
+      .withPassword(route.getPassword());
+  }
+
+  private record Recipients(List<String> to, List<String> cc, List<String> bcc) {}
+}
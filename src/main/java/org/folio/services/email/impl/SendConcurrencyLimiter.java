@@ -0,0 +1,184 @@
+package org.folio.services.email.impl;
+
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+import static org.folio.util.SmtpFailureUtils.isThrottlingFailure;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Adaptive (AIMD) limit of in-flight sends per tenant.
+ *
+ * <p>Every send completed successfully within {@code MAIL_CONCURRENCY_LATENCY_THRESHOLD}
+ * milliseconds raises the limit by {@code 1 / limit}, i.e. by one per round of sends. A
+ * throttling reply of the relay ({@code 421}, {@code 451}) or a send slower than the threshold
+ * halves the limit; the limit is cut at most once per round, only by sends started after the
+ * previous cut. The limit stays between 1 and {@code MAIL_CONCURRENCY_MAX_LIMIT}. Sends above the
+ * limit wait in FIFO order for an in-flight send to complete, at most
+ * {@code MAIL_CONCURRENCY_MAX_QUEUE_SIZE} of them per tenant and each until its
+ * {@link SendDeadline}. Sends beyond the queue size are rejected at once.
+ */
+public class SendConcurrencyLimiter {
+
+  private static final Logger log = LogManager.getLogger(SendConcurrencyLimiter.class);
+
+  public static final String INITIAL_LIMIT_ENV_NAME = "MAIL_CONCURRENCY_INITIAL_LIMIT";
+  public static final String INITIAL_LIMIT_PROPERTY_NAME = "mailConcurrencyInitialLimit";
+  public static final int INITIAL_LIMIT_DEFAULT = 2;
+  public static final String MAX_LIMIT_ENV_NAME = "MAIL_CONCURRENCY_MAX_LIMIT";
+  public static final String MAX_LIMIT_PROPERTY_NAME = "mailConcurrencyMaxLimit";
+  public static final int MAX_LIMIT_DEFAULT = 10;
+  public static final String LATENCY_THRESHOLD_ENV_NAME = "MAIL_CONCURRENCY_LATENCY_THRESHOLD";
+  public static final String LATENCY_THRESHOLD_PROPERTY_NAME = "mailConcurrencyLatencyThreshold";
+  public static final long LATENCY_THRESHOLD_DEFAULT = 10000L;
+  public static final String MAX_QUEUE_SIZE_ENV_NAME = "MAIL_CONCURRENCY_MAX_QUEUE_SIZE";
+  public static final String MAX_QUEUE_SIZE_PROPERTY_NAME = "mailConcurrencyMaxQueueSize";
+  public static final int MAX_QUEUE_SIZE_DEFAULT = 1000;
+
+  private static final int MIN_LIMIT = 1;
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final String ERROR_QUEUE_FULL =
+    "Email of tenant %s was not sent, %d emails are waiting for an in-flight send";
+  private static final String ERROR_WAIT_TOO_LONG =
+    "Email of tenant %s was not sent, it has waited for an in-flight send for %d ms";
+
+  private final Vertx vertx;
+  private final int initialLimit;
+  private final int maxLimit;
+  private final long latencyThresholdMillis;
+  private final int maxQueueSize;
+  private final Map<String, TenantLimit> limits = new ConcurrentHashMap<>();
+
+  public SendConcurrencyLimiter(Vertx vertx) {
+    this(vertx, getEnvOrDefault(INITIAL_LIMIT_PROPERTY_NAME, INITIAL_LIMIT_ENV_NAME,
+        INITIAL_LIMIT_DEFAULT, Integer::parseInt),
+      getEnvOrDefault(MAX_LIMIT_PROPERTY_NAME, MAX_LIMIT_ENV_NAME, MAX_LIMIT_DEFAULT,
+        Integer::parseInt),
+      getEnvOrDefault(LATENCY_THRESHOLD_PROPERTY_NAME, LATENCY_THRESHOLD_ENV_NAME,
+        LATENCY_THRESHOLD_DEFAULT, Long::parseLong),
+      getEnvOrDefault(MAX_QUEUE_SIZE_PROPERTY_NAME, MAX_QUEUE_SIZE_ENV_NAME,
+        MAX_QUEUE_SIZE_DEFAULT, Integer::parseInt));
+  }
+
+  SendConcurrencyLimiter(Vertx vertx, int initialLimit, int maxLimit, long latencyThresholdMillis,
+    int maxQueueSize) {
+
+    this.vertx = vertx;
+    this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+    this.initialLimit = Math.clamp(initialLimit, MIN_LIMIT, this.maxLimit);
+    this.latencyThresholdMillis = latencyThresholdMillis;
+    this.maxQueueSize = Math.max(0, maxQueueSize);
+  }
+
+  /**
+   * Executes the send once the number of in-flight sends of the tenant is below its limit, and
+   * adjusts the limit by the outcome and the latency of the send.
+   *
+   * @param tenantId the tenant identifier
+   * @param deadline the deadline of the send
+   * @param send     the send operation
+   * @return the result of the send
+   */
+  public <T> Future<T> execute(String tenantId, SendDeadline deadline,
+    Supplier<Future<T>> send) {
+
+    var tenantLimit = limits.computeIfAbsent(tenantId, TenantLimit::new);
+    return tenantLimit.acquire(deadline)
+      .compose(startedAt -> send.get()
+        .andThen(result -> tenantLimit.release(startedAt, result.succeeded(),
+          result.failed() && isThrottlingFailure(result.cause()))));
+  }
+
+  /**
+   * Returns the current in-flight sends limit of the tenant.
+   *
+   * @param tenantId the tenant identifier
+   * @return the current limit
+   */
+  public int getLimit(String tenantId) {
+    var tenantLimit = limits.get(tenantId);
+    return tenantLimit == null ? initialLimit : tenantLimit.getLimit();
+  }
+
+  private final class TenantLimit {
+
+    private final String tenantId;
+    private final SendWaitQueue<Long> waiters;
+    private double limit = initialLimit;
+    private int inFlight;
+    private long decreasedAt = Long.MIN_VALUE;
+
+    private TenantLimit(String tenantId) {
+      this.tenantId = tenantId;
+      this.waiters = new SendWaitQueue<>(vertx, this,
+        waitedMillis -> String.format(ERROR_WAIT_TOO_LONG, tenantId, waitedMillis), () -> {});
+    }
+
+    private synchronized int getLimit() {
+      return (int) limit;
+    }
+
+    private synchronized Future<Long> acquire(SendDeadline deadline) {
+      if (waiters.isEmpty() && inFlight < (int) limit) {
+        inFlight++;
+        return Future.succeededFuture(System.nanoTime());
+      }
+      if (waiters.size() >= maxQueueSize) {
+        log.warn("acquire:: Queue of tenant {} waiting for an in-flight send is full, limit: {}",
+          tenantId, (int) limit);
+        return Future.failedFuture(String.format(ERROR_QUEUE_FULL, tenantId, waiters.size()));
+      }
+      var future = waiters.add(deadline);
+      log.debug("acquire:: Waiting for an in-flight send, tenant: {}, limit: {}, queue depth: {}",
+        tenantId, (int) limit, waiters.size());
+      return future;
+    }
+
+    private void release(long startedAt, boolean succeeded, boolean throttled) {
+      long latencyMillis = (System.nanoTime() - startedAt) / 1_000_000;
+      List<Promise<Long>> ready = new ArrayList<>();
+      synchronized (this) {
+        inFlight--;
+        adjustLimit(startedAt, latencyMillis, succeeded, throttled);
+        while (!waiters.isEmpty() && inFlight < (int) limit) {
+          inFlight++;
+          ready.add(waiters.poll().promise());
+        }
+      }
+      long now = System.nanoTime();
+      ready.forEach(waiter -> waiter.complete(now));
+    }
+
+    private void adjustLimit(long startedAt, long latencyMillis, boolean succeeded,
+      boolean throttled) {
+
+      if (throttled || latencyMillis > latencyThresholdMillis) {
+        if (startedAt > decreasedAt) {
+          limit = Math.max(MIN_LIMIT, limit * DECREASE_FACTOR);
+          decreasedAt = System.nanoTime();
+          log.info("adjustLimit:: In-flight sends limit of tenant {} decreased to {}, "
+            + "throttled: {}, latency: {} ms", tenantId, (int) limit, throttled, latencyMillis);
+        }
+        return;
+      }
+      if (!succeeded) {
+        return;
+      }
+
+      int previousLimit = (int) limit;
+      limit = Math.min(maxLimit, limit + 1 / limit);
+      if ((int) limit > previousLimit) {
+        log.info("adjustLimit:: In-flight sends limit of tenant {} increased to {}",
+          tenantId, (int) limit);
+      }
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.folio.services.email.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Point in time by which a send must have been handed over to the SMTP relay.
+ *
+ * <p>The caller of the mail service gives up on the reply after
+ * {@code MAIL_DELIVERY_SEND_TIMEOUT} and retries the email later. A send still waiting in the
+ * send pipeline past that point must not reach the relay, it would deliver the email a second
+ * time. The deadline is taken once when the send enters the mail service and is passed through
+ * all stages of the pipeline.
+ *
+ * @param expiresAt the {@link System#nanoTime()} at which the deadline passes
+ */
+public record SendDeadline(long expiresAt) {
+
+  /**
+   * Returns the deadline passing after the timeout from now.
+   *
+   * @param timeoutMillis the timeout in milliseconds
+   * @return the deadline
+   */
+  public static SendDeadline after(long timeoutMillis) {
+    return new SendDeadline(System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis));
+  }
+
+  public boolean isExpired() {
+    return System.nanoTime() - expiresAt >= 0;
+  }
+
+  /**
+   * Returns the time left until the deadline.
+   *
+   * @return the remaining milliseconds, 0 if the deadline has passed
+   */
+  public long remainingMillis() {
+    return Math.max(0, NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
+  }
+}
@@ -0,0 +1,195 @@
+package org.folio.services.email.impl;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.jaxrs.model.RateLimit;
+
+/**
+ * Per-tenant token bucket limiting the rate at which emails are handed over to the SMTP relay.
+ *
+ * <p>The bucket of a tenant is refilled with {@code messagesPerSecond} tokens per second up to
+ * {@code burst} tokens. A send takes one token; when no token is available the send is queued
+ * and dispatched in FIFO order as soon as a token becomes available. A send is rejected when its
+ * expected wait exceeds {@code MAIL_RATE_LIMIT_MAX_WAIT} or the time left until its
+ * {@link SendDeadline}, and a waiting send is failed when its deadline passes, because the
+ * caller has given up on the reply by then.
+ */
+public class SendRateLimiter {
+
+  private static final Logger log = LogManager.getLogger(SendRateLimiter.class);
+
+  public static final String MAX_WAIT_ENV_NAME = "MAIL_RATE_LIMIT_MAX_WAIT";
+  public static final String MAX_WAIT_PROPERTY_NAME = "mailRateLimitMaxWait";
+  public static final long MAX_WAIT_DEFAULT = 20000L;
+
+  private static final String ERROR_WAIT_TOO_LONG =
+    "Send rate limit of %s messages per second exceeded, %d emails are waiting for the SMTP relay";
+  private static final String ERROR_DEADLINE_PASSED =
+    "Email of tenant %s was not sent, it has waited for a send token for %d ms";
+
+  private final Vertx vertx;
+  private final long maxWaitMillis;
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+  public SendRateLimiter(Vertx vertx) {
+    this(vertx, getEnvOrDefault(MAX_WAIT_PROPERTY_NAME, MAX_WAIT_ENV_NAME, MAX_WAIT_DEFAULT,
+      Long::parseLong));
+  }
+
+  SendRateLimiter(Vertx vertx, long maxWaitMillis) {
+    this.vertx = vertx;
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  /**
+   * Takes a send token of the tenant.
+   *
+   * @param tenantId  the tenant identifier
+   * @param rateLimit the rate limit of the tenant's SMTP configuration, may be {@code null}
+   * @param deadline  the deadline of the send
+   * @return a {@link Future} that completes when the email may be sent, or fails when the
+   *   expected wait exceeds the maximum wait or the deadline passes
+   */
+  public Future<Void> acquire(String tenantId, RateLimit rateLimit, SendDeadline deadline) {
+    if (!isEnabled(rateLimit)) {
+      buckets.remove(tenantId);
+      return Future.succeededFuture();
+    }
+
+    return buckets.computeIfAbsent(tenantId, TokenBucket::new)
+      .acquire(rateLimit.getMessagesPerSecond(), getBurst(rateLimit), deadline);
+  }
+
+  /**
+   * Returns the rate limiter statistics of the tenant.
+   *
+   * @param tenantId the tenant identifier
+   * @return statistics of the tenant, all zero if the tenant is not rate limited
+   */
+  public RateLimiterStats getStats(String tenantId) {
+    var bucket = buckets.get(tenantId);
+    return bucket == null ? new RateLimiterStats(0, 0, 0) : bucket.getStats();
+  }
+
+  private static boolean isEnabled(RateLimit rateLimit) {
+    return rateLimit != null && rateLimit.getMessagesPerSecond() != null
+      && rateLimit.getMessagesPerSecond() > 0;
+  }
+
+  private static int getBurst(RateLimit rateLimit) {
+    return rateLimit.getBurst() != null
+      ? rateLimit.getBurst()
+      : (int) Math.ceil(rateLimit.getMessagesPerSecond());
+  }
+
+  /**
+   * Snapshot of the rate limiter state of a tenant.
+   *
+   * @param queueDepth  number of sends currently waiting for a token
+   * @param waitedSends number of sends which had to wait for a token
+   * @param waitedMillis total time the sends spent waiting for a token
+   */
+  public record RateLimiterStats(int queueDepth, long waitedSends, long waitedMillis) {}
+
+  private final class TokenBucket {
+
+    private final String tenantId;
+    private final SendWaitQueue<Void> waiters;
+    private double messagesPerSecond;
+    private int burst;
+    private double tokens;
+    private long refilledAt;
+    private long timerId = -1;
+    private long waitedSends;
+    private long waitedNanos;
+
+    private TokenBucket(String tenantId) {
+      this.tenantId = tenantId;
+      this.waiters = new SendWaitQueue<>(vertx, this,
+        waitedMillis -> String.format(ERROR_DEADLINE_PASSED, tenantId, waitedMillis), () -> {});
+      this.refilledAt = System.nanoTime();
+      this.tokens = Double.NaN;
+    }
+
+    private synchronized Future<Void> acquire(double messagesPerSecond, int burst,
+      SendDeadline deadline) {
+
+      if (Double.isNaN(tokens)) {
+        tokens = burst;
+      }
+      this.messagesPerSecond = messagesPerSecond;
+      this.burst = burst;
+      refill();
+
+      if (waiters.isEmpty() && tokens >= 1) {
+        tokens--;
+        return Future.succeededFuture();
+      }
+
+      double expectedWaitMillis = (waiters.size() + 1 - tokens) * 1000 / messagesPerSecond;
+      if (expectedWaitMillis > Math.min(maxWaitMillis, deadline.remainingMillis())) {
+        log.warn("acquire:: Send rate limit exceeded for tenant {}, queue depth: {}",
+          tenantId, waiters.size());
+        return Future.failedFuture(String.format(ERROR_WAIT_TOO_LONG, messagesPerSecond,
+          waiters.size()));
+      }
+
+      var future = waiters.add(deadline);
+      log.debug("acquire:: Waiting for a send token, tenant: {}, queue depth: {}",
+        tenantId, waiters.size());
+      scheduleDispatch();
+      return future;
+    }
+
+    private synchronized RateLimiterStats getStats() {
+      return new RateLimiterStats(waiters.size(), waitedSends, NANOSECONDS.toMillis(waitedNanos));
+    }
+
+    private void refill() {
+      long now = System.nanoTime();
+      tokens = Math.min(burst, tokens + (now - refilledAt) * messagesPerSecond / 1e9);
+      refilledAt = now;
+    }
+
+    private void scheduleDispatch() {
+      if (timerId >= 0) {
+        return;
+      }
+      long delay = Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / messagesPerSecond));
+      timerId = vertx.setTimer(delay, id -> dispatch());
+    }
+
+    private void dispatch() {
+      List<Promise<Void>> ready = new ArrayList<>();
+      synchronized (this) {
+        timerId = -1;
+        refill();
+        long now = System.nanoTime();
+        while (!waiters.isEmpty() && tokens >= 1) {
+          tokens--;
+          var waiter = waiters.poll();
+          waitedSends++;
+          waitedNanos += now - waiter.enqueuedAt();
+          ready.add(waiter.promise());
+        }
+        if (!waiters.isEmpty()) {
+          scheduleDispatch();
+        }
+        log.debug("dispatch:: tenant: {}, dispatched: {}, queue depth: {}, waited sends: {}, "
+          + "waited ms: {}", tenantId, ready.size(), waiters.size(), waitedSends,
+          NANOSECONDS.toMillis(waitedNanos));
+      }
+      ready.forEach(Promise::complete);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package org.folio.services.email.impl;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.LongFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * FIFO queue of the sends waiting in a stage of the send pipeline.
+ *
+ * <p>Every waiting send has a timer for its {@link SendDeadline}. A send still waiting when the
+ * timer fires is removed from the queue and failed, so it neither reaches the SMTP relay nor
+ * holds a place in the queue. The queue is guarded by the lock of the stage: {@link #add},
+ * {@link #poll}, {@link #size} and {@link #isEmpty} must be called while holding it.
+ *
+ * @param <T> the type the promise of a waiting send is completed with
+ */
+final class SendWaitQueue<T> {
+
+  private static final Logger log = LogManager.getLogger(SendWaitQueue.class);
+
+  private final Vertx vertx;
+  private final Object lock;
+  private final LongFunction<String> expiredMessage;
+  private final Runnable onExpired;
+  private final Deque<Waiter<T>> waiters = new ArrayDeque<>();
+
+  /**
+   * @param vertx          the Vert.x instance running the deadline timers
+   * @param lock           the lock of the stage guarding the queue
+   * @param expiredMessage the failure message of an expired send by its wait in milliseconds
+   * @param onExpired      called without the lock once an expired send has been removed,
+   *                       before it is failed
+   */
+  SendWaitQueue(Vertx vertx, Object lock, LongFunction<String> expiredMessage,
+    Runnable onExpired) {
+
+    this.vertx = vertx;
+    this.lock = lock;
+    this.expiredMessage = expiredMessage;
+    this.onExpired = onExpired;
+  }
+
+  Future<T> add(SendDeadline deadline) {
+    var waiter = new Waiter<T>(System.nanoTime());
+    waiters.add(waiter);
+    waiter.timerId = vertx.setTimer(Math.max(1, deadline.remainingMillis()),
+      id -> expire(waiter));
+    return waiter.promise.future();
+  }
+
+  Waiter<T> poll() {
+    var waiter = waiters.poll();
+    if (waiter != null) {
+      vertx.cancelTimer(waiter.timerId);
+    }
+    return waiter;
+  }
+
+  int size() {
+    return waiters.size();
+  }
+
+  boolean isEmpty() {
+    return waiters.isEmpty();
+  }
+
+  private void expire(Waiter<T> waiter) {
+    synchronized (lock) {
+      if (!waiters.remove(waiter)) {
+        return;
+      }
+    }
+    var message = expiredMessage.apply(
+      NANOSECONDS.toMillis(System.nanoTime() - waiter.enqueuedAt));
+    log.warn("expire:: {}", message);
+    onExpired.run();
+    waiter.promise.fail(message);
+  }
+
+  static final class Waiter<T> {
+
+    private final Promise<T> promise = Promise.promise();
+    private final long enqueuedAt;
+    private long timerId;
+
+    private Waiter(long enqueuedAt) {
+      this.enqueuedAt = enqueuedAt;
+    }
+
+    Promise<T> promise() {
+      return promise;
+    }
+
+    long enqueuedAt() {
+      return enqueuedAt;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package org.folio.services.email.impl;
+
+import static org.folio.services.email.MailService.RELAY_UNAVAILABLE_FAILURE_CODE;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+import static org.folio.util.SmtpFailureUtils.isRelayFailure;
+
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.circuitbreaker.CircuitBreakerOptions;
+import io.vertx.circuitbreaker.CircuitBreakerState;
+import io.vertx.circuitbreaker.OpenCircuitException;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.serviceproxy.ServiceException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.jaxrs.model.SmtpConfiguration;
+
+/**
+ * Provides a circuit breaker per SMTP endpoint ({@code host:port}).
+ *
+ * <p>Only failures indicating an unavailable relay (connection failures, timeouts, closed
+ * connections and {@code 421} replies) are counted. Replies rejecting a particular message and
+ * local failures, e.g. an invalid address, are not, as the circuit is shared by all tenants
+ * sending through the endpoint. After
+ * {@code MAIL_CIRCUIT_BREAKER_MAX_FAILURES} such failures within the failures rolling window
+ * (10 seconds) the circuit of the endpoint opens and further sends fail immediately with
+ * {@link org.folio.services.email.MailService#RELAY_UNAVAILABLE_FAILURE_CODE} instead of waiting
+ * for the connect or the event bus timeout. After {@code MAIL_CIRCUIT_BREAKER_RESET_TIMEOUT}
+ * milliseconds the circuit becomes half-open and lets a single send through: its success closes
+ * the circuit, its failure opens it again.
+ */
+public class SmtpCircuitBreakerProvider {
+
+  private static final Logger log = LogManager.getLogger(SmtpCircuitBreakerProvider.class);
+
+  public static final String MAX_FAILURES_ENV_NAME = "MAIL_CIRCUIT_BREAKER_MAX_FAILURES";
+  public static final String MAX_FAILURES_PROPERTY_NAME = "mailCircuitBreakerMaxFailures";
+  public static final int MAX_FAILURES_DEFAULT = 5;
+  public static final String RESET_TIMEOUT_ENV_NAME = "MAIL_CIRCUIT_BREAKER_RESET_TIMEOUT";
+  public static final String RESET_TIMEOUT_PROPERTY_NAME = "mailCircuitBreakerResetTimeout";
+  public static final long RESET_TIMEOUT_DEFAULT = 30000L;
+
+  private static final String ERROR_RELAY_UNAVAILABLE =
+    "SMTP relay %s is unavailable, the email is deferred for retry";
+
+  private final Vertx vertx;
+  private final CircuitBreakerOptions options;
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  public SmtpCircuitBreakerProvider(Vertx vertx) {
+    this(vertx,
+      getEnvOrDefault(MAX_FAILURES_PROPERTY_NAME, MAX_FAILURES_ENV_NAME, MAX_FAILURES_DEFAULT,
+        Integer::parseInt),
+      getEnvOrDefault(RESET_TIMEOUT_PROPERTY_NAME, RESET_TIMEOUT_ENV_NAME, RESET_TIMEOUT_DEFAULT,
+        Long::parseLong));
+  }
+
+  SmtpCircuitBreakerProvider(Vertx vertx, int maxFailures, long resetTimeout) {
+    this.vertx = vertx;
+    this.options = new CircuitBreakerOptions()
+      .setMaxFailures(maxFailures)
+      .setResetTimeout(resetTimeout)
+      // the mail client applies its own connect and idle timeouts; timing out a send here could
+      // fail a message which is eventually delivered and send it twice on retry
+      .setTimeout(-1);
+  }
+
+  /**
+   * Executes the send through the circuit breaker of the SMTP endpoint.
+   *
+   * @param smtpConfiguration the SMTP configuration identifying the endpoint
+   * @param send              the send operation
+   * @return the result of the send, or a failed {@link Future} with a {@link ServiceException}
+   *   ({@link org.folio.services.email.MailService#RELAY_UNAVAILABLE_FAILURE_CODE}) when the
+   *   circuit is open
+   */
+  public <T> Future<T> execute(SmtpConfiguration smtpConfiguration, Supplier<Future<T>> send) {
+    return execute(getEndpoint(smtpConfiguration), send);
+  }
+
+  /**
+   * Executes the send through the circuit breaker of the SMTP endpoint.
+   *
+   * @param endpoint the SMTP endpoint ({@code host:port})
+   * @param send     the send operation
+   * @return the result of the send, or a failed {@link Future} with a {@link ServiceException}
+   *   ({@link org.folio.services.email.MailService#RELAY_UNAVAILABLE_FAILURE_CODE}) when the
+   *   circuit is open
+   */
+  public <T> Future<T> execute(String endpoint, Supplier<Future<T>> send) {
+    if (options.getMaxFailures() <= 0) {
+      return send.get();
+    }
+
+    return circuitBreakers.computeIfAbsent(endpoint, this::createCircuitBreaker)
+      .execute(send)
+      .recover(t -> t instanceof OpenCircuitException
+        ? ServiceException.fail(RELAY_UNAVAILABLE_FAILURE_CODE,
+            String.format(ERROR_RELAY_UNAVAILABLE, endpoint))
+        : Future.failedFuture(t));
+  }
+
+  /**
+   * Returns the state of the circuit of the SMTP endpoint.
+   *
+   * @param smtpConfiguration the SMTP configuration identifying the endpoint
+   * @return the state of the circuit, {@link CircuitBreakerState#CLOSED} if nothing was sent yet
+   */
+  public CircuitBreakerState getState(SmtpConfiguration smtpConfiguration) {
+    return getState(getEndpoint(smtpConfiguration));
+  }
+
+  /**
+   * Returns the state of the circuit of the SMTP endpoint.
+   *
+   * @param endpoint the SMTP endpoint ({@code host:port})
+   * @return the state of the circuit, {@link CircuitBreakerState#CLOSED} if nothing was sent yet
+   */
+  public CircuitBreakerState getState(String endpoint) {
+    var circuitBreaker = circuitBreakers.get(endpoint);
+    return circuitBreaker == null ? CircuitBreakerState.CLOSED : circuitBreaker.state();
+  }
+
+  private CircuitBreaker createCircuitBreaker(String endpoint) {
+    log.debug("createCircuitBreaker:: endpoint: {}", endpoint);
+    return CircuitBreaker.create("smtp-" + endpoint, vertx, new CircuitBreakerOptions(options))
+      .failurePolicy(result -> result.failed() && isRelayFailure(result.cause()))
+      .openHandler(v -> log.warn("circuitBreaker:: SMTP relay {} is unavailable, circuit opened",
+        endpoint))
+      .halfOpenHandler(v -> log.info("circuitBreaker:: Probing SMTP relay {}, circuit half-open",
+        endpoint))
+      .closeHandler(v -> log.info("circuitBreaker:: SMTP relay {} is available, circuit closed",
+        endpoint));
+  }
+
+  private static String getEndpoint(SmtpConfiguration smtpConfiguration) {
+    return getEndpoint(smtpConfiguration.getHost(), smtpConfiguration.getPort());
+  }
+
+  static String getEndpoint(String host, Integer port) {
+    return host + ":" + port;
+  }
+}
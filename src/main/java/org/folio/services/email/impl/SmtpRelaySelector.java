@@ -0,0 +1,100 @@
+package org.folio.services.email.impl;
+
+import static java.util.Optional.ofNullable;
+
+import io.vertx.circuitbreaker.CircuitBreakerState;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.folio.rest.jaxrs.model.Relay;
+import org.folio.rest.jaxrs.model.SmtpConfiguration;
+import org.folio.rest.jaxrs.model.SmtpConfiguration.RelayStrategy;
+
+/**
+ * Chooses the order in which the SMTP relays of a tenant are tried by a send.
+ *
+ * <p>The relays of a configuration are its {@code host}/{@code port} followed by its
+ * {@code relays}. {@code PRIORITY} tries them in the configured order, {@code ROUND_ROBIN}
+ * starts every send of the tenant with the next relay, and {@code LEAST_LATENCY} starts with the
+ * relay having the lowest exponentially weighted average send latency, relays not measured yet
+ * first. With every strategy the relays whose circuit is open are moved to the end, so they are
+ * tried only after all other relays have failed.
+ */
+public class SmtpRelaySelector {
+
+  static final double LATENCY_SMOOTHING_FACTOR = 0.2;
+
+  private final SmtpCircuitBreakerProvider circuitBreakerProvider;
+  private final Map<String, AtomicInteger> sendCounters = new ConcurrentHashMap<>();
+  private final Map<String, Double> averageLatencies = new ConcurrentHashMap<>();
+
+  public SmtpRelaySelector(SmtpCircuitBreakerProvider circuitBreakerProvider) {
+    this.circuitBreakerProvider = circuitBreakerProvider;
+  }
+
+  /**
+   * Returns the relays of the configuration in the order they should be tried by the next send.
+   *
+   * @param tenantId          the tenant identifier
+   * @param smtpConfiguration the SMTP configuration of the tenant
+   * @return the relays, never empty
+   */
+  public List<Relay> select(String tenantId, SmtpConfiguration smtpConfiguration) {
+    var relays = getRelays(smtpConfiguration);
+    if (relays.size() == 1) {
+      return relays;
+    }
+
+    var strategy = ofNullable(smtpConfiguration.getRelayStrategy())
+      .orElse(RelayStrategy.PRIORITY);
+    switch (strategy) {
+      case ROUND_ROBIN -> Collections.rotate(relays, -Math.floorMod(
+        sendCounters.computeIfAbsent(tenantId, id -> new AtomicInteger()).getAndIncrement(),
+        relays.size()));
+      case LEAST_LATENCY -> relays.sort(Comparator.comparingDouble(
+        relay -> averageLatencies.getOrDefault(getEndpoint(relay), 0.0)));
+      case PRIORITY -> {
+        // the configured order
+      }
+    }
+    // the sort is stable, so the order of the strategy is kept among healthy relays
+    relays.sort(Comparator.comparing(relay ->
+      circuitBreakerProvider.getState(getEndpoint(relay)) == CircuitBreakerState.OPEN));
+    return relays;
+  }
+
+  /**
+   * Updates the average latency of the relay with a successful send.
+   *
+   * @param relay         the relay the email was sent through
+   * @param latencyMillis the duration of the send in milliseconds
+   */
+  public void recordLatency(Relay relay, long latencyMillis) {
+    averageLatencies.merge(getEndpoint(relay), (double) latencyMillis,
+      (average, latency) -> average + LATENCY_SMOOTHING_FACTOR * (latency - average));
+  }
+
+  /**
+   * Returns the relays of the configuration: its {@code host}/{@code port} followed by the
+   * additional {@code relays}.
+   *
+   * @param smtpConfiguration the SMTP configuration
+   * @return a new mutable list of the relays
+   */
+  public static List<Relay> getRelays(SmtpConfiguration smtpConfiguration) {
+    var relays = new ArrayList<Relay>();
+    relays.add(new Relay()
+      .withHost(smtpConfiguration.getHost())
+      .withPort(smtpConfiguration.getPort()));
+    ofNullable(smtpConfiguration.getRelays()).ifPresent(relays::addAll);
+    return relays;
+  }
+
+  public static String getEndpoint(Relay relay) {
+    return SmtpCircuitBreakerProvider.getEndpoint(relay.getHost(), relay.getPort());
+  }
+}
@@ -0,0 +1,86 @@
+package org.folio.services.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.collections4.CollectionUtils;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.jaxrs.model.EmailEntity.Status;
+
+/**
+ * Persistence policy of the emails of a tenant, set by the {@code persistence-policy} setting.
+ *
+ * <p>The body and the attachments are the bulk of a stored email, but they are only needed while
+ * the email may still be sent. Once an email is delivered, or has failed without a retry, the
+ * policy decides whether they are kept as is, dropped, or kept gzip compressed.
+ */
+public enum PersistencePolicy {
+
+  /**
+   * Emails are stored as they are.
+   */
+  FULL,
+
+  /**
+   * The body and the attachments of terminal emails are dropped, only the delivery metadata is
+   * kept.
+   */
+  METADATA_ONLY,
+
+  /**
+   * The body and the attachments of terminal emails are replaced by {@code compressedContent},
+   * the base64 encoded gzip of the JSON object {@code {"body": ..., "attachments": [...]}}.
+   */
+  COMPRESSED;
+
+  /**
+   * Applies the policy to the email before it is stored. Emails that may still be sent are left
+   * unchanged.
+   *
+   * @param email the email to store, changed in place
+   * @return the email
+   */
+  public EmailEntity apply(EmailEntity email) {
+    if (this == FULL || !isTerminal(email) || !hasContent(email)) {
+      return email;
+    }
+    if (this == COMPRESSED) {
+      email.setCompressedContent(compress(email));
+    }
+    email.setBody(null);
+    email.setAttachments(new ArrayList<>());
+    return email;
+  }
+
+  static boolean isTerminal(EmailEntity email) {
+    return email.getStatus() == Status.DELIVERED
+      || email.getStatus() == Status.FAILURE && !Boolean.TRUE.equals(email.getShouldRetry());
+  }
+
+  private static boolean hasContent(EmailEntity email) {
+    return email.getBody() != null || CollectionUtils.isNotEmpty(email.getAttachments());
+  }
+
+  private static String compress(EmailEntity email) {
+    var attachments = Objects.requireNonNullElse(email.getAttachments(), new ArrayList<>());
+    var content = new JsonObject()
+      .put("body", email.getBody())
+      .put("attachments", new JsonArray(attachments.stream().map(JsonObject::mapFrom).toList()));
+
+    var bytes = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(content.encode().getBytes(UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return Base64.getEncoder().encodeToString(bytes.toByteArray());
+  }
+}
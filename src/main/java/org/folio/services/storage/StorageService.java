@@ -1,10 +1,15 @@
 package org.folio.services.storage;
 
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import java.util.List;
+
 import org.folio.services.storage.impl.StorageServiceImpl;
 
 import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -13,6 +18,15 @@ import io.vertx.core.json.JsonObject;
 @ProxyGen
 public interface StorageService {
 
+  /**
+   * Failure code of a restore requested while the email archive is not configured.
+   */
+  int ARCHIVE_NOT_CONFIGURED_FAILURE_CODE = 1001;
+
+  String ARCHIVE_SEND_TIMEOUT_ENV_NAME = "MAIL_ARCHIVE_SEND_TIMEOUT";
+  String ARCHIVE_SEND_TIMEOUT_PROPERTY_NAME = "mailArchiveSendTimeout";
+  long ARCHIVE_SEND_TIMEOUT_DEFAULT = 1800000L;
+
   static StorageService create(Vertx vertx) {
     return new StorageServiceImpl(vertx);
   }
@@ -29,13 +43,50 @@ public interface StorageService {
   }
 
   /**
-   * Persists an emailEntityJson object to the database for metrics
+   * Creates proxy instance for the purge and the restore of the archived emails, which can run
+   * for much longer than the default send timeout of the event bus
+   *
+   * @param vertx   vertx instance
+   * @param address host address
+   * @return StorageService instance
+   */
+  static StorageService createArchiveProxy(Vertx vertx, String address) {
+    var timeout = getEnvOrDefault(ARCHIVE_SEND_TIMEOUT_PROPERTY_NAME,
+      ARCHIVE_SEND_TIMEOUT_ENV_NAME, ARCHIVE_SEND_TIMEOUT_DEFAULT, Long::parseLong);
+    return new StorageServiceVertxEBProxy(vertx, address,
+      new DeliveryOptions().setSendTimeout(timeout));
+  }
+
+  /**
+   * Persists an emailEntityJson object to the database for metrics, and counts it in the email
+   * statistics rollup
    *
    * @param emailEntityJson the object contains an {@link org.folio.rest.jaxrs.model.EmailEntity}
    *                        entity representation in a JSON format
    */
   Future<JsonObject> saveEmailEntity(String tenantId, JsonObject emailEntityJson);
 
+  /**
+   * Persists a batch of emails in one transaction with a multi-row upsert, and counts them in the
+   * email statistics rollup. An email contained in the batch more than once is saved as its
+   * last version.
+   *
+   * @param emailEntityJsons {@link org.folio.rest.jaxrs.model.EmailEntity} entities in a JSON
+   *                         format
+   */
+  Future<Void> saveEmailEntities(String tenantId, List<JsonObject> emailEntityJsons);
+
+  /**
+   * Get the number of emails by status per hour or day, from the rollup maintained when emails
+   * are saved. Emails are counted by their current status in the period they were last sent in.
+   *
+   * @param interval {@code hour} or {@code day}
+   * @param from     first day counted in format {@code yyyy-MM-dd}, or {@code null}
+   * @param to       last day counted in format {@code yyyy-MM-dd}, or {@code null}
+   * @return the {@link org.folio.rest.jaxrs.model.EmailStatistics} in a JSON format
+   */
+  Future<JsonObject> getEmailStatistics(String tenantId, String interval, String from, String to);
+
   /**
    * Find all EmailEntries by query
    * The query parameter may contain email status, expiration date or other parameters
@@ -43,7 +94,38 @@ public interface StorageService {
   Future<JsonObject> findEmailEntries(String tenantId, int limit, int offset, String query);
 
   /**
-   * Delete EmailEntries by expiration date and email status
+   * Find the first email matching the query. Unlike {@link #findEmailEntries} the matching emails
+   * are not counted, so the lookup costs a single indexed read.
+   *
+   * @return the {@link org.folio.rest.jaxrs.model.EmailEntries} with the first matching email,
+   *   or without any email if none matches
+   */
+  Future<JsonObject> findFirstEmailEntry(String tenantId, String query);
+
+  /**
+   * Find the emails to be retried, created after the given date, those with the fewest attempts
+   * first. The query is served by the partial retry queue index, so its cost depends on the
+   * number of emails to be retried only, not on the size of the email history.
+   *
+   * @param createdAfter the date after which the emails were created, in ISO date-time format
+   * @param limit        maximum number of emails to return
+   */
+  Future<JsonObject> findEmailsForRetry(String tenantId, String createdAfter, int limit);
+
+  /**
+   * Saves the emails archived when they were purged back to the email table, so that they can
+   * be queried again. Fails with {@link #ARCHIVE_NOT_CONFIGURED_FAILURE_CODE} if the archive is
+   * not configured.
+   *
+   * @param from first day restored in format: `yyyy-MM-dd`
+   * @param to   last day restored in format: `yyyy-MM-dd`, {@code null} restores one day
+   * @return the number of restored emails
+   */
+  Future<Integer> restoreArchivedEmails(String tenantId, String from, String to);
+
+  /**
+   * Delete EmailEntries by expiration date and email status, archiving them first if the email
+   * archive is configured
    *
    * @param expirationDate the expiration date of email in format: `yyyy-MM-dd`
    * @param emailStatus    the status of email {@link org.folio.rest.jaxrs.model.EmailEntity.Status}
@@ -0,0 +1,299 @@
+package org.folio.services.storage.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+import static org.folio.util.EnvUtils.getEnvOrDefault;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.persist.Conn;
+import org.folio.rest.persist.PostgresClient;
+
+/**
+ * Cold archive of purged emails in gzip compressed NDJSON files.
+ *
+ * <p>The emails of a tenant are sharded by the UTC day they were last sent on, or the day they
+ * were purged on if they were never sent, into
+ * {@code <MAIL_ARCHIVE_PATH>/<tenant>/<yyyy-MM-dd>.<purge id>.ndjson.gz}. A purge deletes the
+ * emails in batches, and writes exactly the deleted rows to temporary files, which are renamed
+ * only once the transaction is committed, and removed if it is rolled back. Every batch is
+ * appended to its file as a new gzip member, gzip readers decompress the members as one stream.
+ * The archive is disabled while {@code MAIL_ARCHIVE_PATH} is not set.
+ */
+public class EmailArchive {
+
+  private static final Logger log = LogManager.getLogger(EmailArchive.class);
+
+  public static final String ARCHIVE_PATH_ENV_NAME = "MAIL_ARCHIVE_PATH";
+  public static final String ARCHIVE_PATH_PROPERTY_NAME = "mailArchivePath";
+
+  static final String FILE_EXTENSION = ".ndjson.gz";
+  static final String STAGING_EXTENSION = ".tmp";
+  static final int BATCH_SIZE = 500;
+
+  private final Vertx vertx;
+  private final Path archivePath;
+
+  public EmailArchive(Vertx vertx) {
+    this(vertx, getEnvOrDefault(ARCHIVE_PATH_PROPERTY_NAME, ARCHIVE_PATH_ENV_NAME,
+      StringUtils.EMPTY, String::trim));
+  }
+
+  EmailArchive(Vertx vertx, String archivePath) {
+    this.vertx = vertx;
+    this.archivePath = StringUtils.isBlank(archivePath) ? null : Path.of(archivePath);
+  }
+
+  public boolean isEnabled() {
+    return archivePath != null;
+  }
+
+  /**
+   * Deletes the emails in batches and archives the deleted rows. The statement must delete at
+   * most as many rows as its last parameter, the batch size, and return the email JSON text and
+   * the day of the shard of every deleted row. The statement is repeated in one transaction
+   * until it deletes less than a full batch.
+   *
+   * @return the number of deleted and archived emails
+   */
+  public Future<Integer> purge(PostgresClient pgClient, String tenantId, String deleteSql,
+    Tuple params) {
+
+    log.debug("purge:: parameters tenantId: {}", tenantId);
+    var staging = new Staging(getTenantPath(tenantId), UUID.randomUUID().toString());
+    var batchParams = withBatchSize(params);
+    return pgClient.withTrans(conn -> purgeBatches(conn, deleteSql, batchParams, staging, 0))
+      .compose(
+        purged -> vertx.executeBlocking(() -> staging.publish(purged)),
+        cause -> vertx.executeBlocking(staging::discard)
+          .transform(v -> Future.failedFuture(cause)))
+      .onSuccess(purged -> log.info("purge:: Archived {} emails of tenant {}", purged, tenantId));
+  }
+
+  /**
+   * Saves the archived emails of the days back to the email table. Emails already in the table
+   * are overwritten by their archived version, files are restored in the order they were
+   * written, so the latest archived version of an email wins.
+   *
+   * @return the number of restored emails
+   */
+  public Future<Integer> restore(PostgresClient pgClient, String tenantId, LocalDate from,
+    LocalDate to) {
+
+    log.debug("restore:: parameters tenantId: {}, from: {}, to: {}", tenantId, from, to);
+    return vertx.executeBlocking(() -> findFiles(getTenantPath(tenantId), from, to))
+      .compose(files -> {
+        Future<Integer> restored = Future.succeededFuture(0);
+        for (Path file : files) {
+          restored = restored.compose(count -> restoreFile(pgClient, file)
+            .map(fileCount -> count + fileCount));
+        }
+        return restored;
+      })
+      .onSuccess(count -> log.info("restore:: Restored {} emails of tenant {}", count, tenantId));
+  }
+
+  private Path getTenantPath(String tenantId) {
+    return archivePath.resolve(tenantId);
+  }
+
+  private Future<Integer> purgeBatches(Conn conn, String deleteSql, Tuple params,
+    Staging staging, int purged) {
+
+    return conn.execute(deleteSql, params)
+      .compose(rows -> {
+        Map<String, List<String>> shards = new TreeMap<>();
+        for (Row row : rows) {
+          shards.computeIfAbsent(row.getString(1), day -> new ArrayList<>()).add(row.getString(0));
+        }
+        return vertx.executeBlocking(() -> staging.write(shards));
+      })
+      .compose(count -> count < BATCH_SIZE
+        ? Future.succeededFuture(purged + count)
+        : purgeBatches(conn, deleteSql, params, staging, purged + count));
+  }
+
+  private static Tuple withBatchSize(Tuple params) {
+    var batchParams = Tuple.tuple();
+    for (int i = 0; i < params.size(); i++) {
+      batchParams.addValue(params.getValue(i));
+    }
+    return batchParams.addInteger(BATCH_SIZE);
+  }
+
+  /**
+   * Finds the archive files of the days, ordered by the time they were last written.
+   */
+  private static List<Path> findFiles(Path tenantPath, LocalDate from, LocalDate to)
+    throws IOException {
+
+    if (!Files.isDirectory(tenantPath)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(tenantPath)) {
+      List<Path> found = new ArrayList<>();
+      for (Path file : (Iterable<Path>) files::iterator) {
+        LocalDate day = getShardDay(file);
+        if (day != null && !day.isBefore(from) && !day.isAfter(to)) {
+          found.add(file);
+        }
+      }
+      found.sort(Comparator.comparing(EmailArchive::getLastModifiedTime)
+        .thenComparing(Path::getFileName));
+      return found;
+    }
+  }
+
+  /**
+   * Returns the day of the shard of an archive file named {@code <day>.ndjson.gz} or
+   * {@code <day>.<purge id>.ndjson.gz}, {@code null} for any other file.
+   */
+  private static LocalDate getShardDay(Path file) {
+    String fileName = file.getFileName().toString();
+    if (!fileName.endsWith(FILE_EXTENSION)) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(StringUtils.substringBefore(fileName, "."));
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static FileTime getLastModifiedTime(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Future<Integer> restoreFile(PostgresClient pgClient, Path file) {
+    return vertx.executeBlocking(() -> new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(Files.newInputStream(file)), UTF_8)))
+      .compose(reader -> restoreBatches(pgClient, reader, 0)
+        .eventually(() -> vertx.executeBlocking(() -> {
+          reader.close();
+          return null;
+        })));
+  }
+
+  private Future<Integer> restoreBatches(PostgresClient pgClient, BufferedReader reader,
+    int restored) {
+
+    return vertx.executeBlocking(() -> readBatch(reader))
+      .compose(emails -> emails.isEmpty()
+        ? Future.succeededFuture(restored)
+        : pgClient.upsertBatch(EMAIL_STATISTICS_TABLE_NAME, emails)
+          .compose(rows -> restoreBatches(pgClient, reader, restored + emails.size())));
+  }
+
+  /**
+   * Reads the next batch of emails. An email archived more than once, e.g. after a restore and
+   * another purge, is taken once per batch, because a batch upsert cannot update a row twice.
+   */
+  private static List<EmailEntity> readBatch(BufferedReader reader) throws IOException {
+    Map<String, EmailEntity> emails = new LinkedHashMap<>();
+    String line;
+    while (emails.size() < BATCH_SIZE && (line = reader.readLine()) != null) {
+      if (StringUtils.isNotBlank(line)) {
+        var email = new JsonObject(line).mapTo(EmailEntity.class);
+        emails.put(email.getId(), email);
+      }
+    }
+    return new ArrayList<>(emails.values());
+  }
+
+  /**
+   * The temporary files of a purge, one per shard.
+   */
+  private static final class Staging {
+
+    private final Path tenantPath;
+    private final String purgeId;
+    private final Map<Path, Path> files = new LinkedHashMap<>();
+
+    private Staging(Path tenantPath, String purgeId) {
+      this.tenantPath = tenantPath;
+      this.purgeId = purgeId;
+    }
+
+    private int write(Map<String, List<String>> shards) throws IOException {
+      Files.createDirectories(tenantPath);
+      int count = 0;
+      for (var shard : shards.entrySet()) {
+        Path file = tenantPath.resolve(shard.getKey() + "." + purgeId + FILE_EXTENSION);
+        Path stagingFile = files.computeIfAbsent(file,
+          f -> f.resolveSibling(f.getFileName() + STAGING_EXTENSION));
+        try (var writer = new BufferedWriter(new OutputStreamWriter(
+          new GZIPOutputStream(Files.newOutputStream(stagingFile, CREATE, APPEND)), UTF_8))) {
+
+          for (String email : shard.getValue()) {
+            writer.write(email);
+            writer.write('\n');
+            count++;
+          }
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Renames the temporary files once the deletion is committed. If a rename fails the emails
+     * are only in the temporary files left behind.
+     */
+    private int publish(int purged) throws IOException {
+      for (var file : files.entrySet()) {
+        try {
+          Files.move(file.getValue(), file.getKey(), ATOMIC_MOVE);
+        } catch (IOException e) {
+          log.error("publish:: Failed to publish the archived emails of {}, they are left in {}",
+            file.getKey(), file.getValue(), e);
+          throw e;
+        }
+      }
+      return purged;
+    }
+
+    /**
+     * Removes the temporary files of a rolled back deletion, the emails are still in the table.
+     */
+    private Void discard() throws IOException {
+      for (Path stagingFile : files.values()) {
+        Files.deleteIfExists(stagingFile);
+      }
+      return null;
+    }
+  }
+}
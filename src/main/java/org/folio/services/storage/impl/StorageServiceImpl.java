@@ -2,22 +2,44 @@ package org.folio.services.storage.impl;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_ROLLUP_TABLE_NAME;
 import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+import io.vertx.serviceproxy.ServiceException;
+import io.vertx.sqlclient.RowSet;
 import io.vertx.sqlclient.Tuple;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.cql2pgjson.CQL2PgJSON;
 import org.folio.cql2pgjson.exception.FieldException;
+import org.folio.rest.jaxrs.model.EmailCount;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.model.EmailEntries;
+import org.folio.rest.jaxrs.model.EmailStatistics;
+import org.folio.rest.persist.Conn;
 import org.folio.rest.persist.Criteria.Limit;
 import org.folio.rest.persist.Criteria.Offset;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.rest.persist.interfaces.Results;
 import org.folio.services.MailSettingsService;
+import org.folio.services.SettingsCache;
+import org.folio.services.SettingsChangeListener;
+import org.folio.services.storage.PersistencePolicy;
 import org.folio.services.storage.StorageService;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -27,15 +49,47 @@ public class StorageServiceImpl implements StorageService {
 
   private static final Logger logger = LogManager.getLogger(StorageServiceImpl.class);
 
-  private static final String DELETE_QUERY_BY_DATE = "DELETE FROM %s WHERE (jsonb->>'date')::date <= $1::text::date AND jsonb->>'status' = $2";
-  private static final String DELETE_QUERY_INTERVAL_BY_HOURS = "DELETE FROM %s WHERE (jsonb->>'date')::timestamp < CURRENT_TIMESTAMP - make_interval(hours => $1) AND jsonb->>'status' = $2";
+  private static final String EXPIRED_BY_DATE = "(jsonb->>'date')::date <= $1::text::date AND jsonb->>'status' = $2";
+  private static final String EXPIRED_BY_HOURS = "(jsonb->>'date')::timestamp < CURRENT_TIMESTAMP - make_interval(hours => $1) AND jsonb->>'status' = $2";
+  private static final String DELETE_QUERY = "DELETE FROM %s WHERE %s";
+  private static final String PURGE_QUERY = "DELETE FROM %1$s WHERE id IN "
+    + "(SELECT id FROM %1$s WHERE %2$s LIMIT $3) RETURNING jsonb::text, "
+    + "to_char(COALESCE((jsonb->>'date')::timestamptz, now()) AT TIME ZONE 'UTC', 'YYYY-MM-DD')";
+  private static final String FIND_EMAILS_FOR_RETRY_QUERY = "SELECT jsonb FROM %s "
+    + "WHERE jsonb->>'shouldRetry' = 'true' AND jsonb->'metadata'->>'createdDate' > $1 "
+    + "ORDER BY (jsonb->>'attemptCount')::integer LIMIT $2";
+  private static final String SELECT_PREVIOUS_COUNT_QUERY = "SELECT jsonb->>'date' AS date, "
+    + "jsonb->>'status' AS status FROM %s WHERE id = $1 FOR UPDATE";
+  private static final String SELECT_PREVIOUS_COUNTS_QUERY = "SELECT id, jsonb->>'date' AS date, "
+    + "jsonb->>'status' AS status FROM %s WHERE id = ANY($1) ORDER BY id FOR UPDATE";
+  private static final String UPDATE_ROLLUP_QUERY = "INSERT INTO %s AS rollup "
+    + "(hour, status, bucket, count) SELECT date_trunc('hour', COALESCE(sent::timestamptz, now()) AT TIME ZONE 'UTC'), "
+    + "email_status, $4::smallint, sum(delta) FROM unnest($1::text[], $2::text[], $3::integer[]) "
+    + "AS changes(sent, email_status, delta) GROUP BY 1, 2 "
+    + "ON CONFLICT (hour, status, bucket) DO UPDATE SET count = rollup.count + EXCLUDED.count";
+  private static final int ROLLUP_BUCKETS = 16;
+  private static final String SELECT_ROLLUP_QUERY = "SELECT date_trunc($1, hour) AS period, status, "
+    + "sum(count)::bigint AS count FROM %s "
+    + "WHERE ($2::text IS NULL OR hour >= $2::text::date) "
+    + "AND ($3::text IS NULL OR hour < $3::text::date + 1) "
+    + "GROUP BY 1, 2 HAVING sum(count) > 0 ORDER BY 1, 2";
+  private static final String ERROR_ARCHIVE_NOT_CONFIGURED = "Email archive is not configured, "
+    + "set " + EmailArchive.ARCHIVE_PATH_ENV_NAME + " to enable it";
   private static final String COLUMN_EXTENSION = ".jsonb";
   private static final int DEFAULT_EXPIRATION_HOURS = 24;
 
   private final Vertx vertx;
+  private final EmailArchive archive;
+  private final SettingsCache<PersistencePolicy> persistencePolicyCache;
 
   public StorageServiceImpl(Vertx vertx) {
+    this(vertx, new EmailArchive(vertx));
+  }
+
+  StorageServiceImpl(Vertx vertx, EmailArchive archive) {
     this.vertx = vertx;
+    this.archive = archive;
+    this.persistencePolicyCache = SettingsChangeListener.get(vertx).createCache();
   }
 
   @Override
@@ -45,7 +99,12 @@ public class StorageServiceImpl implements StorageService {
       logger.debug("saveEmailEntity:: parameters tenantId: {}", () -> tenantId);
       String emailId = emailEntity.getId();
       return PostgresClient.getInstance(vertx, tenantId)
-        .save(EMAIL_STATISTICS_TABLE_NAME, emailId, emailEntity, true, true)
+        .withTrans(conn -> findPreviousCount(conn, tenantId, emailId)
+          .compose(previous -> getPersistencePolicy(conn, tenantId)
+            .map(policy -> policy.apply(emailEntity))
+            .compose(storedEntity -> conn.upsert(EMAIL_STATISTICS_TABLE_NAME, emailId,
+              storedEntity))
+            .compose(id -> updateRollup(conn, tenantId, previous, emailEntity))))
         .onSuccess(id -> logger.info("Email saved"))
         .onFailure(t -> logger.error("Failed to save email: {}", t.getMessage()))
         .map(emailJson);
@@ -55,6 +114,159 @@ public class StorageServiceImpl implements StorageService {
     }
   }
 
+  @Override
+  public Future<Void> saveEmailEntities(String tenantId, List<JsonObject> emailJsons) {
+    try {
+      logger.debug("saveEmailEntities:: parameters tenantId: {}, count: {}", tenantId,
+        emailJsons.size());
+      Map<String, EmailEntity> emails = new LinkedHashMap<>();
+      for (JsonObject emailJson : emailJsons) {
+        EmailEntity email = emailJson.mapTo(EmailEntity.class);
+        if (StringUtils.isBlank(email.getId())) {
+          email.setId(UUID.randomUUID().toString());
+        }
+        emails.put(email.getId(), email);
+      }
+      if (emails.isEmpty()) {
+        return Future.succeededFuture();
+      }
+
+      return PostgresClient.getInstance(vertx, tenantId)
+        .withTrans(conn -> findPreviousCounts(conn, tenantId, emails.keySet())
+          .compose(previous -> getPersistencePolicy(conn, tenantId)
+            .compose(policy -> conn.upsertBatch(EMAIL_STATISTICS_TABLE_NAME,
+              emails.values().stream().map(policy::apply).toList()))
+            .compose(rows -> updateRollup(conn, tenantId, previous, emails.values()))))
+        .onSuccess(v -> logger.info("saveEmailEntities:: Saved {} emails", emails.size()))
+        .onFailure(cause -> logger.warn("saveEmailEntities:: Failed to save {} emails: ",
+          emails.size(), cause));
+    } catch (Exception ex) {
+      logger.warn("saveEmailEntities:: Failed to save emails", ex);
+      return Future.failedFuture(ex);
+    }
+  }
+
+  @Override
+  public Future<JsonObject> getEmailStatistics(String tenantId, String interval, String from,
+    String to) {
+
+    logger.debug("getEmailStatistics:: parameters tenantId: {}, interval: {}, from: {}, to: {}",
+      tenantId, interval, from, to);
+
+    try {
+      String sql = String.format(SELECT_ROLLUP_QUERY,
+        getFullTableName(EMAIL_STATISTICS_ROLLUP_TABLE_NAME, tenantId));
+      return PostgresClient.getInstance(vertx, tenantId)
+        .withReadConn(conn -> conn.execute(sql, Tuple.of(interval, from, to)))
+        .map(rows -> {
+          List<EmailCount> emailCounts = new ArrayList<>(rows.size());
+          rows.forEach(row -> emailCounts.add(new EmailCount()
+            .withDate(Date.from(row.getLocalDateTime("period").toInstant(ZoneOffset.UTC)))
+            .withStatus(row.getString("status"))
+            .withCount(row.getLong("count").intValue())));
+          return JsonObject.mapFrom(new EmailStatistics()
+            .withEmailCounts(emailCounts)
+            .withTotalRecords(emailCounts.size()));
+        })
+        .onFailure(cause -> logger.warn("getEmailStatistics:: Failed to get email statistics: ",
+          cause));
+    } catch (Exception ex) {
+      logger.warn("getEmailStatistics:: Failed to get email statistics", ex);
+      return Future.failedFuture(ex);
+    }
+  }
+
+  private Future<PersistencePolicy> getPersistencePolicy(Conn conn, String tenantId) {
+    return persistencePolicyCache.get(tenantId,
+      () -> new MailSettingsService().getPersistencePolicy(conn));
+  }
+
+  /**
+   * Finds the rollup bucket the email is counted in before it is saved again, e.g. after a retry.
+   * The email row is locked, so that concurrent saves of the email move its count in turn.
+   */
+  private static Future<RollupCount> findPreviousCount(Conn conn, String tenantId,
+    String emailId) {
+
+    if (StringUtils.isBlank(emailId)) {
+      return Future.succeededFuture();
+    }
+    String sql = String.format(SELECT_PREVIOUS_COUNT_QUERY,
+      getFullTableName(EMAIL_STATISTICS_TABLE_NAME, tenantId));
+    return conn.execute(sql, Tuple.of(UUID.fromString(emailId)))
+      .map(rows -> rows.size() == 0 ? null : new RollupCount(
+        rows.iterator().next().getString("date"), rows.iterator().next().getString("status")));
+  }
+
+  /**
+   * Moves the count of the email from the bucket of its previous save to the bucket of its
+   * current status and date. Purging emails does not touch the rollup, so the counts are kept
+   * after the emails themselves are gone.
+   */
+  private static Future<Void> updateRollup(Conn conn, String tenantId, RollupCount previous,
+    EmailEntity emailEntity) {
+
+    return updateRollup(conn, tenantId,
+      previous == null ? Map.of() : Map.of(emailEntity.getId(), previous), List.of(emailEntity));
+  }
+
+  /**
+   * Finds the rollup buckets of a batch of emails, see {@link #findPreviousCount}. The rows are
+   * locked in the order of their ids, so that concurrent batches do not deadlock.
+   */
+  private static Future<Map<String, RollupCount>> findPreviousCounts(Conn conn, String tenantId,
+    Collection<String> emailIds) {
+
+    String sql = String.format(SELECT_PREVIOUS_COUNTS_QUERY,
+      getFullTableName(EMAIL_STATISTICS_TABLE_NAME, tenantId));
+    UUID[] ids = emailIds.stream().map(UUID::fromString).toArray(UUID[]::new);
+    return conn.execute(sql, Tuple.tuple().addArrayOfUUID(ids))
+      .map(rows -> {
+        Map<String, RollupCount> previousCounts = new HashMap<>();
+        rows.forEach(row -> previousCounts.put(row.getUUID("id").toString(),
+          new RollupCount(row.getString("date"), row.getString("status"))));
+        return previousCounts;
+      });
+  }
+
+  /**
+   * Moves the counts of a batch of emails like {@link #updateRollup(Conn, String, RollupCount,
+   * EmailEntity)}, with a single statement summing the changes per hour and status.
+   *
+   * <p>Every hour and status is counted in {@code ROLLUP_BUCKETS} rows, and a transaction adds
+   * its changes to one of them picked at random, so concurrent saves of the current hour do not
+   * queue up on the lock of a single row. The statistics sum the rows of all buckets.
+   */
+  private static Future<Void> updateRollup(Conn conn, String tenantId,
+    Map<String, RollupCount> previousCounts, Collection<EmailEntity> emails) {
+
+    List<String> dates = new ArrayList<>();
+    List<String> statuses = new ArrayList<>();
+    List<Integer> deltas = new ArrayList<>();
+    for (EmailEntity email : emails) {
+      var previous = previousCounts.get(email.getId());
+      if (previous != null) {
+        dates.add(previous.date());
+        statuses.add(previous.status());
+        deltas.add(-1);
+      }
+      dates.add(email.getDate() == null ? null : email.getDate().toInstant().toString());
+      statuses.add(email.getStatus().value());
+      deltas.add(1);
+    }
+
+    String sql = String.format(UPDATE_ROLLUP_QUERY,
+      getFullTableName(EMAIL_STATISTICS_ROLLUP_TABLE_NAME, tenantId));
+    return conn.execute(sql, Tuple.tuple()
+        .addArrayOfString(dates.toArray(String[]::new))
+        .addArrayOfString(statuses.toArray(String[]::new))
+        .addArrayOfInteger(deltas.toArray(Integer[]::new))
+        .addShort((short) ThreadLocalRandom.current().nextInt(ROLLUP_BUCKETS)))
+      .mapEmpty();
+  }
+
+  private record RollupCount(String date, String status) {}
+
   @Override
   public Future<JsonObject> findEmailEntries(String tenantId, int limit, int offset, String query) {
     logger.debug("findEmailEntries:: parameters tenantId: {}, limit: {}, offset: {}, query: {}",
@@ -63,13 +275,7 @@ public class StorageServiceImpl implements StorageService {
       CQLWrapper cql = getCQL(query, limit, offset);
       PostgresClient pgClient = PostgresClient.getInstance(vertx, tenantId);
       return pgClient.get(EMAIL_STATISTICS_TABLE_NAME, EmailEntity.class, cql, true)
-        .map(result -> {
-          Integer totalRecords = result.getResultInfo().getTotalRecords();
-          EmailEntries emailEntries = new EmailEntries()
-            .withEmailEntity(result.getResults())
-            .withTotalRecords(totalRecords);
-          return JsonObject.mapFrom(emailEntries);
-        })
+        .map(StorageServiceImpl::toEmailEntries)
         .onFailure(cause -> logger.warn("findEmailEntries:: Failed to get email entries: ", cause));
     } catch (Exception ex) {
       logger.warn("findEmailEntries:: Failed to get email entries", ex);
@@ -77,6 +283,49 @@ public class StorageServiceImpl implements StorageService {
     }
   }
 
+  @Override
+  public Future<JsonObject> findFirstEmailEntry(String tenantId, String query) {
+    logger.debug("findFirstEmailEntry:: parameters tenantId: {}, query: {}", tenantId, query);
+    try {
+      CQLWrapper cql = getCQL(query, 1, 0);
+      PostgresClient pgClient = PostgresClient.getInstance(vertx, tenantId);
+      return pgClient.get(EMAIL_STATISTICS_TABLE_NAME, EmailEntity.class, cql, false)
+        .map(result -> JsonObject.mapFrom(new EmailEntries()
+          .withEmailEntity(result.getResults())
+          .withTotalRecords(result.getResults().size())))
+        .onFailure(cause -> logger.warn("findFirstEmailEntry:: Failed to get email entry: ",
+          cause));
+    } catch (Exception ex) {
+      logger.warn("findFirstEmailEntry:: Failed to get email entry", ex);
+      return Future.failedFuture(ex);
+    }
+  }
+
+  @Override
+  public Future<JsonObject> findEmailsForRetry(String tenantId, String createdAfter, int limit) {
+    logger.debug("findEmailsForRetry:: parameters tenantId: {}, createdAfter: {}, limit: {}",
+      tenantId, createdAfter, limit);
+
+    try {
+      String sql = String.format(FIND_EMAILS_FOR_RETRY_QUERY,
+        getFullTableName(EMAIL_STATISTICS_TABLE_NAME, tenantId));
+      return PostgresClient.getInstance(vertx, tenantId)
+        .execute(sql, Tuple.of(createdAfter, limit))
+        .map(rows -> {
+          List<EmailEntity> emails = new ArrayList<>(rows.size());
+          rows.forEach(row -> emails.add(row.getJsonObject(0).mapTo(EmailEntity.class)));
+          return JsonObject.mapFrom(new EmailEntries()
+            .withEmailEntity(emails)
+            .withTotalRecords(emails.size()));
+        })
+        .onFailure(cause -> logger.warn("findEmailsForRetry:: Failed to get emails for retry: ",
+          cause));
+    } catch (Exception ex) {
+      logger.warn("findEmailsForRetry:: Failed to get emails for retry", ex);
+      return Future.failedFuture(ex);
+    }
+  }
+
   @Override
   public Future<Void> deleteEmailEntriesByExpirationDateAndStatus(String tenantId, String expirationDate, String status) {
     logger.debug("deleteEmailEntriesByExpirationDateAndStatus:: parameters expirationDate: {}, status: {}", expirationDate, status);
@@ -88,16 +337,16 @@ public class StorageServiceImpl implements StorageService {
           if (StringUtils.isBlank(expirationDate)) {
             logger.info("deleteEmailEntriesByExpirationDateAndStatus:: parameters expirationHours: {}, status: {}",
               expirationHours, status);
-            return pgClient.execute(String.format(DELETE_QUERY_INTERVAL_BY_HOURS, fullTableName),
+            return deleteExpired(pgClient, tenantId, fullTableName, EXPIRED_BY_HOURS,
               Tuple.of(expirationHours, status));
           } else {
             logger.info("deleteEmailEntriesByExpirationDateAndStatus:: parameters expirationDate: {}, status: {}",
               expirationDate, status);
-            return pgClient.execute(String.format(DELETE_QUERY_BY_DATE, fullTableName),
+            return deleteExpired(pgClient, tenantId, fullTableName, EXPIRED_BY_DATE,
               Tuple.of(expirationDate, status));
           }
         })
-        .onSuccess(result -> logger.info("deleteEmailEntriesByExpirationDateAndStatus:: deleted {} entries", result.rowCount()))
+        .onSuccess(result -> logger.info("deleteEmailEntriesByExpirationDateAndStatus:: deleted {} entries", result))
         .onFailure(err -> logger.warn("deleteEmailEntriesByExpirationDateAndStatus:: Error while deleting entries", err))
         .mapEmpty();
     } catch (Exception ex) {
@@ -106,6 +355,44 @@ public class StorageServiceImpl implements StorageService {
     }
   }
 
+  /**
+   * Deletes the expired emails. With the archive enabled the emails are deleted in batches, and
+   * exactly the rows returned by the deletion are archived.
+   */
+  private Future<Integer> deleteExpired(PostgresClient pgClient, String tenantId,
+    String fullTableName, String condition, Tuple params) {
+
+    if (!archive.isEnabled()) {
+      return pgClient.execute(String.format(DELETE_QUERY, fullTableName, condition), params)
+        .map(RowSet::rowCount);
+    }
+    return archive.purge(pgClient, tenantId, String.format(PURGE_QUERY, fullTableName, condition),
+      params);
+  }
+
+  @Override
+  public Future<Integer> restoreArchivedEmails(String tenantId, String from, String to) {
+    logger.debug("restoreArchivedEmails:: parameters tenantId: {}, from: {}, to: {}", tenantId,
+      from, to);
+
+    if (!archive.isEnabled()) {
+      logger.warn("restoreArchivedEmails:: Email archive is not configured");
+      return Future.failedFuture(new ServiceException(ARCHIVE_NOT_CONFIGURED_FAILURE_CODE,
+        ERROR_ARCHIVE_NOT_CONFIGURED));
+    }
+    try {
+      LocalDate fromDate = LocalDate.parse(from);
+      LocalDate toDate = StringUtils.isBlank(to) ? fromDate : LocalDate.parse(to);
+      return archive.restore(PostgresClient.getInstance(vertx, tenantId), tenantId, fromDate,
+          toDate)
+        .onFailure(cause -> logger.warn("restoreArchivedEmails:: Failed to restore emails: ",
+          cause));
+    } catch (Exception ex) {
+      logger.warn("restoreArchivedEmails:: Failed to restore emails", ex);
+      return Future.failedFuture(ex);
+    }
+  }
+
   private Future<Integer> getExpirationHoursFromConfig(String tenantId) {
     return PostgresClient.getInstance(vertx, tenantId)
       .withConn(conn -> new MailSettingsService().getSmtpConfigSetting(conn))
@@ -120,6 +407,14 @@ public class StorageServiceImpl implements StorageService {
       });
   }
 
+  private static JsonObject toEmailEntries(Results<EmailEntity> result) {
+    Integer totalRecords = result.getResultInfo().getTotalRecords();
+    EmailEntries emailEntries = new EmailEntries()
+      .withEmailEntity(result.getResults())
+      .withTotalRecords(totalRecords);
+    return JsonObject.mapFrom(emailEntries);
+  }
+
   /**
    * Build CQL from request URL query
    *
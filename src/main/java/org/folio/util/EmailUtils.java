@@ -45,6 +45,7 @@ public class EmailUtils {
   public static final String MAIL_SERVICE_ADDRESS = "mail-service.queue";
   public static final String STORAGE_SERVICE_ADDRESS = "storage-service.queue";
   public static final String EMAIL_STATISTICS_TABLE_NAME = "email_statistics";
+  public static final String EMAIL_STATISTICS_ROLLUP_TABLE_NAME = "email_statistics_rollup";
   private static final String EMAIL_HEADERS_CONFIG_NAME = "email.headers";
   private static final String ERROR_MIN_REQUIREMENT_MOD_CONFIG = "The 'mod-config' module doesn't have a minimum config for SMTP server, the min config is: %s";
 
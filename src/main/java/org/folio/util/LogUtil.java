@@ -3,6 +3,8 @@ package org.folio.util;
 import static com.google.common.primitives.Ints.min;
 import static java.lang.String.format;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -15,18 +17,23 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.model.EmailEntries;
+import org.folio.dbschema.ObjectMapperTool;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
-import org.folio.rest.persist.PostgresClient;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
 
 public class LogUtil {
   private static final Logger log = LogManager.getLogger(LogUtil.class);
   private static final int MAX_OBJECT_JSON_LENGTH = 10 * 1024;
+  private static final int MAX_STRING_VALUE_LENGTH = 256;
   private static final int DEFAULT_NUM_OF_LIST_ELEMENTS_TO_LOG = 10;
 
   private LogUtil() {
@@ -48,7 +55,7 @@ public class LogUtil {
 
     if (object instanceof JsonObject) {
       try {
-        return crop(((JsonObject) object).encode());
+        return writeBounded(DatabindCodec.mapper(), object);
       } catch (Exception ex) {
         log.warn("logAsJson:: Error while logging JsonObject", ex);
         return null;
@@ -56,7 +63,9 @@ public class LogUtil {
     }
 
     try {
-      return crop(PostgresClient.pojo2JsonObject(object).encode());
+      String json = writeBounded(ObjectMapperTool.getMapper(), object);
+      // like PostgresClient.pojo2JsonObject, only objects serialized as JSON objects are logged
+      return json.startsWith("{") ? json : null;
     } catch (JsonProcessingException jsonProcessingException) {
       log.warn("logAsJson:: Error while logging an object of type {}",
         object.getClass().getCanonicalName(), jsonProcessingException);
@@ -123,12 +132,75 @@ public class LogUtil {
     }
   }
 
-  private static String crop(String str) {
-    try {
-      return str.substring(0, min(str.length(), MAX_OBJECT_JSON_LENGTH));
-    } catch (Exception ex) {
-      log.warn("crop:: Failed to crop a string", ex);
-      return null;
+  /**
+   * Serializes the object to JSON, writing at most {@link #MAX_OBJECT_JSON_LENGTH} characters.
+   * The serialization stops as soon as the limit is reached, and string values longer than
+   * {@link #MAX_STRING_VALUE_LENGTH} (e.g. email body, attachment data) are summarized, so large
+   * objects are never fully serialized just to be cropped.
+   */
+  private static String writeBounded(ObjectMapper mapper, Object object) throws IOException {
+    var writer = new BoundedWriter(MAX_OBJECT_JSON_LENGTH);
+    try (var generator = new SummarizingJsonGenerator(mapper.createGenerator(writer))) {
+      mapper.writeValue(generator, object);
+    } catch (IOException ex) {
+      if (!writer.isLimitReached()) {
+        throw ex;
+      }
+    }
+    return writer.toString();
+  }
+
+  private static final class BoundedWriter extends Writer {
+    private final StringBuilder output = new StringBuilder();
+    private final int limit;
+
+    private BoundedWriter(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+      int remaining = limit - output.length();
+      output.append(chars, offset, min(length, remaining));
+      if (length > remaining) {
+        throw new IOException("JSON length limit reached");
+      }
+    }
+
+    private boolean isLimitReached() {
+      return output.length() >= limit;
+    }
+
+    @Override
+    public void flush() {
+      // nothing to flush
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
+
+    @Override
+    public String toString() {
+      return output.toString();
+    }
+  }
+
+  private static final class SummarizingJsonGenerator extends JsonGeneratorDelegate {
+
+    private SummarizingJsonGenerator(JsonGenerator delegate) {
+      super(delegate, false);
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+      if (text != null && text.length() > MAX_STRING_VALUE_LENGTH) {
+        super.writeString(format("%s...(%d characters)",
+          text.substring(0, MAX_STRING_VALUE_LENGTH), text.length()));
+        return;
+      }
+      super.writeString(text);
     }
   }
 
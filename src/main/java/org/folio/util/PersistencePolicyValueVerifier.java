@@ -0,0 +1,49 @@
+package org.folio.util;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.UNPROCESSABLE_ENTITY;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.folio.exceptions.EmailSettingsException;
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Parameter;
+import org.folio.services.storage.PersistencePolicy;
+
+public class PersistencePolicyValueVerifier {
+
+  public static final String POLICY_FIELD = "policy";
+
+  private PersistencePolicyValueVerifier() {
+    throw new IllegalStateException("Utility class cannot be initialized");
+  }
+
+  /**
+   * Verifies the provided value to ensure it is a valid persistence policy setting, an object
+   * with the name of a {@link PersistencePolicy} in its {@code policy} field.
+   *
+   * @param value - the value to verify, expected to be a Map
+   * @throws EmailSettingsException if the value is invalid
+   */
+  public static void verify(Object value) {
+    if (!(value instanceof Map<?, ?> map)) {
+      throw getValidationException("value", "must be an object");
+    }
+
+    var policy = map.get(POLICY_FIELD);
+    boolean isKnownPolicy = Arrays.stream(PersistencePolicy.values())
+      .anyMatch(knownPolicy -> knownPolicy.name().equals(policy));
+    if (!isKnownPolicy) {
+      throw getValidationException("value." + POLICY_FIELD,
+        "must be one of: " + Arrays.toString(PersistencePolicy.values()));
+    }
+  }
+
+  private static EmailSettingsException getValidationException(String key, String message) {
+    var error = new Error()
+      .withCode("validation_error")
+      .withMessage("Invalid value in setting")
+      .withParameters(List.of(new Parameter().withKey(key).withValue(message)));
+    return new EmailSettingsException(error, UNPROCESSABLE_ENTITY.code());
+  }
+}
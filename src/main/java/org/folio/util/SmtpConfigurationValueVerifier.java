@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
@@ -18,6 +19,7 @@ import org.folio.exceptions.EmailSettingsException;
 import org.folio.rest.jaxrs.model.Error;
 import org.folio.rest.jaxrs.model.Identity;
 import org.folio.rest.jaxrs.model.Parameter;
+import org.folio.rest.jaxrs.model.Route;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
 
 public class SmtpConfigurationValueVerifier {
@@ -44,6 +46,7 @@ public class SmtpConfigurationValueVerifier {
       var parameters = new ArrayList<Parameter>(
         collectViolationsAsParameters(validator.getValidator().validate(smtpConfiguration)));
       parameters.addAll(collectDuplicateIdentityAddresses(smtpConfiguration));
+      parameters.addAll(collectDuplicateRouteDomains(smtpConfiguration));
       if (!parameters.isEmpty()) {
         throw new EmailSettingsException(getValidationError(parameters), UNPROCESSABLE_ENTITY.code());
       }
@@ -73,6 +76,28 @@ public class SmtpConfigurationValueVerifier {
       .toList();
   }
 
+  private static List<Parameter> collectDuplicateRouteDomains(SmtpConfiguration smtpConfiguration) {
+    List<Route> routes = smtpConfiguration.getRoutes();
+    if (CollectionUtils.isEmpty(routes)) {
+      return emptyList();
+    }
+    Set<String> seen = new HashSet<>();
+    Set<String> duplicates = new LinkedHashSet<>();
+    for (Route route : routes) {
+      for (String domain : CollectionUtils.emptyIfNull(route.getDomains())) {
+        String normalizedDomain = domain.trim().toLowerCase(Locale.ROOT);
+        if (!seen.add(normalizedDomain)) {
+          duplicates.add(normalizedDomain);
+        }
+      }
+    }
+    return duplicates.stream()
+      .map(domain -> new Parameter()
+        .withKey("value.routes")
+        .withValue("duplicate domain: " + domain))
+      .toList();
+  }
+
   private static Error getValidationError(List<Parameter> errors) {
     return getValidationError("Invalid value in setting", errors);
   }
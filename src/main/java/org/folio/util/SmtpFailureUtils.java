@@ -0,0 +1,258 @@
+package org.folio.util;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mail.SMTPException;
+import io.vertx.ext.mail.SMTPException.EnhancedStatus;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Classification of email sending failures by the SMTP reply of the relay.
+ *
+ * <p>The reply code of an {@link SMTPException} is passed through the event bus as the failure
+ * code of a {@link ServiceException}. Its debug info tags the failure as an SMTP reply and carries
+ * whether the reply is permanent and the enhanced status code (RFC 3463), so the classification
+ * is available to the caller of the mail service. Failure codes of other service exceptions, e.g.
+ * a {@code 500} of a local error, are never taken for SMTP replies.
+ */
+public final class SmtpFailureUtils {
+
+  public static final String SMTP_REPLY_KEY = "smtpReply";
+  public static final String PERMANENT_KEY = "permanent";
+  public static final String ENHANCED_STATUS_KEY = "enhancedStatus";
+  public static final String DELIVERED_RECIPIENTS_KEY = "deliveredRecipients";
+  public static final int SERVICE_NOT_AVAILABLE_REPLY_CODE = 421;
+  public static final int LOCAL_ERROR_REPLY_CODE = 451;
+
+  /**
+   * Messages of the mail client failing because the relay closed the connection.
+   */
+  private static final List<String> CONNECTION_CLOSED_MESSAGES = List.of(
+    "Connection was closed", "socket was closed unexpected");
+
+  /**
+   * Messages of the mail client failing on a reply before {@code MAIL FROM}: to the greeting,
+   * {@code EHLO}/{@code HELO}, {@code AUTH} or the {@code RSET} of a pooled connection.
+   */
+  private static final List<String> BEFORE_TRANSACTION_MESSAGES = List.of("got error response",
+    "HELO failed", "AUTH ", "reset command failed");
+
+  private SmtpFailureUtils() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Converts an {@link SMTPException} to a {@link ServiceException} carrying the SMTP reply code
+   * and the enhanced status code; other failures are returned unchanged.
+   *
+   * @param throwable - the failure of the mail client
+   * @return the failure to be sent through the event bus
+   */
+  public static Throwable toServiceException(Throwable throwable) {
+    if (!(throwable instanceof SMTPException smtpException)) {
+      return throwable;
+    }
+
+    var debugInfo = new JsonObject()
+      .put(SMTP_REPLY_KEY, true)
+      .put(PERMANENT_KEY, smtpException.isPermanent());
+    var enhancedStatus = formatEnhancedStatus(smtpException);
+    if (enhancedStatus != null) {
+      debugInfo.put(ENHANCED_STATUS_KEY, enhancedStatus);
+    }
+    return new ServiceException(smtpException.getReplyCode(), smtpException.getMessage(),
+      debugInfo);
+  }
+
+  /**
+   * Adds the recipients already delivered by other routes of the email to the failure, so the
+   * caller can retry only the others. The failure is converted to a {@link ServiceException}
+   * first, other exceptions lose their debug info on the event bus.
+   *
+   * @param throwable           - the failure of the mail service
+   * @param deliveredRecipients - the recipients accepted by the relays of the other routes
+   * @return the failure to be sent through the event bus
+   */
+  public static Throwable withDeliveredRecipients(Throwable throwable,
+    List<String> deliveredRecipients) {
+
+    if (deliveredRecipients.isEmpty()) {
+      return throwable;
+    }
+    var serviceException = toServiceException(throwable) instanceof ServiceException converted
+      ? converted
+      : new ServiceException(-1, throwable.getMessage());
+    serviceException.getDebugInfo()
+      .put(DELIVERED_RECIPIENTS_KEY, new JsonArray(deliveredRecipients));
+    return serviceException;
+  }
+
+  /**
+   * Returns the recipients already delivered by other routes of the failed email.
+   *
+   * @param throwable - the failure of the mail service
+   * @return the delivered recipients, empty if none
+   */
+  public static List<String> getDeliveredRecipients(Throwable throwable) {
+    if (throwable instanceof ServiceException serviceException
+      && serviceException.getDebugInfo() != null) {
+
+      var recipients = serviceException.getDebugInfo().getJsonArray(DELIVERED_RECIPIENTS_KEY);
+      if (recipients != null) {
+        return recipients.stream().map(String.class::cast).toList();
+      }
+    }
+    return List.of();
+  }
+
+  /**
+   * Returns the SMTP reply code of the failure.
+   *
+   * @param throwable - the failure of the mail service
+   * @return the SMTP reply code, or {@code null} if the failure is not an SMTP reply
+   */
+  public static Integer getReplyCode(Throwable throwable) {
+    if (throwable instanceof SMTPException smtpException) {
+      return smtpException.getReplyCode();
+    }
+    if (isSmtpReply(throwable)) {
+      return ((ServiceException) throwable).failureCode();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the enhanced status code (e.g. {@code 5.1.1}) of the failure.
+   *
+   * @param throwable - the failure of the mail service
+   * @return the enhanced status code, or {@code null} if the relay did not send one
+   */
+  public static String getEnhancedStatus(Throwable throwable) {
+    if (throwable instanceof SMTPException smtpException) {
+      return formatEnhancedStatus(smtpException);
+    }
+    if (isSmtpReply(throwable)) {
+      return ((ServiceException) throwable).getDebugInfo().getString(ENHANCED_STATUS_KEY);
+    }
+    return null;
+  }
+
+  /**
+   * A permanent failure (5xx reply, e.g. unknown recipient or rejected credentials) fails again
+   * when retried with the same message and configuration.
+   *
+   * @param throwable - the failure of the mail service
+   * @return true if the failure is permanent
+   */
+  public static boolean isPermanentFailure(Throwable throwable) {
+    if (throwable instanceof SMTPException smtpException) {
+      return smtpException.isPermanent();
+    }
+    return isSmtpReply(throwable)
+      && ((ServiceException) throwable).getDebugInfo().getBoolean(PERMANENT_KEY, false);
+  }
+
+  /**
+   * Tells whether the failure indicates that the relay itself is unavailable: the connection
+   * could not be established, timed out or was closed, or the relay replied {@code 421}. Replies
+   * rejecting a particular message and other failures, e.g. an invalid address or a local error,
+   * say nothing about the relay.
+   *
+   * @param throwable - the failure of the mail client
+   * @return true if the failure indicates an unavailable relay
+   */
+  public static boolean isRelayFailure(Throwable throwable) {
+    var replyCode = getReplyCode(throwable);
+    if (replyCode != null) {
+      return replyCode == SERVICE_NOT_AVAILABLE_REPLY_CODE;
+    }
+    return hasCause(throwable, cause -> isConnectFailure(cause)
+      || cause instanceof SocketException
+      || cause instanceof SocketTimeoutException
+      || cause instanceof ClosedChannelException
+      || cause instanceof TimeoutException
+      || cause instanceof io.netty.handler.timeout.TimeoutException
+      || cause.getMessage() != null && CONNECTION_CLOSED_MESSAGES.stream()
+        .anyMatch(message -> cause.getMessage().startsWith(message)));
+  }
+
+  /**
+   * Tells whether the relay failed before the mail transaction started, so it has surely not
+   * accepted the message: the connection could not be established (refused, unknown host or
+   * connect timeout), or the relay replied {@code 421} before {@code MAIL FROM}. A failure later
+   * on, e.g. the connection closed or timed out after {@code DATA}, may follow a delivery.
+   *
+   * @param throwable - the failure of the mail client
+   * @return true if the message was not handed to the relay
+   */
+  public static boolean isFailureBeforeTransaction(Throwable throwable) {
+    if (throwable instanceof SMTPException smtpException) {
+      return smtpException.getReplyCode() == SERVICE_NOT_AVAILABLE_REPLY_CODE
+        && BEFORE_TRANSACTION_MESSAGES.stream()
+          .anyMatch(message -> smtpException.getMessage().startsWith(message));
+    }
+    return hasCause(throwable, SmtpFailureUtils::isConnectFailure);
+  }
+
+  /**
+   * Tells whether the relay throttles the sender: {@code 421} (e.g. too many connections) or
+   * {@code 451} (e.g. rate exceeded, try again later).
+   *
+   * @param throwable - the failure of the mail client
+   * @return true if the failure is a throttling reply
+   */
+  public static boolean isThrottlingFailure(Throwable throwable) {
+    var replyCode = getReplyCode(throwable);
+    return replyCode != null
+      && (replyCode == SERVICE_NOT_AVAILABLE_REPLY_CODE || replyCode == LOCAL_ERROR_REPLY_CODE);
+  }
+
+  /**
+   * The connection could not be established; also covers the connect timeout of netty, a
+   * subclass of {@link ConnectException}.
+   */
+  private static boolean isConnectFailure(Throwable throwable) {
+    return throwable instanceof ConnectException || throwable instanceof UnknownHostException;
+  }
+
+  private static boolean hasCause(Throwable throwable, Predicate<Throwable> predicate) {
+    for (var cause = throwable; cause != null; cause = cause.getCause()) {
+      if (predicate.test(cause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tells whether the failure is a service exception converted from an {@link SMTPException} by
+   * {@link #toServiceException(Throwable)}.
+   */
+  private static boolean isSmtpReply(Throwable throwable) {
+    return throwable instanceof ServiceException serviceException
+      && serviceException.getDebugInfo() != null
+      && serviceException.getDebugInfo().getBoolean(SMTP_REPLY_KEY, false);
+  }
+
+  /**
+   * Formats the enhanced status code parsed by the mail client, the class is that of the reply
+   * code. The mail client parses it only when the relay announces {@code ENHANCEDSTATUSCODES}.
+   */
+  private static String formatEnhancedStatus(SMTPException smtpException) {
+    var enhancedStatus = smtpException.getEnhancedStatus();
+    if (enhancedStatus == null || enhancedStatus == EnhancedStatus.OTHER_UNKNOWN) {
+      return null;
+    }
+    return String.format("%d.%d.%d", smtpException.getReplyCode() / 100,
+      enhancedStatus.getSubject(), enhancedStatus.getDetail());
+  }
+}
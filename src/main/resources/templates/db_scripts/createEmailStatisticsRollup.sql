@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS email_statistics_rollup (
+  hour timestamp NOT NULL,
+  status text NOT NULL,
+  bucket smallint NOT NULL DEFAULT 0,
+  count bigint NOT NULL,
+  PRIMARY KEY (hour, status, bucket)
+);
+
+INSERT INTO email_statistics_rollup (hour, status, count)
+  SELECT date_trunc('hour', (jsonb->>'date')::timestamptz AT TIME ZONE 'UTC'), jsonb->>'status',
+    count(*)
+  FROM email_statistics
+  WHERE jsonb->>'date' IS NOT NULL
+    AND NOT EXISTS (SELECT 1 FROM email_statistics_rollup)
+  GROUP BY 1, 2;
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS email_statistics_retry_queue_idx ON email_statistics
+  (((jsonb->>'attemptCount')::integer), (jsonb->'metadata'->>'createdDate'))
+  WHERE jsonb->>'shouldRetry' = 'true';
@@ -0,0 +1,16 @@
+CREATE OR REPLACE FUNCTION notify_settings_changed() RETURNS trigger AS $$
+BEGIN
+  PERFORM pg_notify('mod_email_settings_changed', '${myuniversity}');
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS notify_settings_changed ON settings;
+CREATE TRIGGER notify_settings_changed
+  AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON settings
+  FOR EACH STATEMENT EXECUTE FUNCTION notify_settings_changed();
+
+DROP TRIGGER IF EXISTS notify_settings_changed ON smtp_configuration;
+CREATE TRIGGER notify_settings_changed
+  AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON smtp_configuration
+  FOR EACH STATEMENT EXECUTE FUNCTION notify_settings_changed();
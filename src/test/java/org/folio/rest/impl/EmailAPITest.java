@@ -1,19 +1,28 @@
 package org.folio.rest.impl;
 
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.folio.rest.jaxrs.model.EmailEntity.Status.DELIVERED;
 import static org.folio.util.StubUtils.getEmailEntity;
 import static org.folio.util.StubUtils.getIncorrectConfigurations;
+import static org.folio.util.StubUtils.getWiserMockConfigurations;
 import static org.folio.util.StubUtils.initFailModConfigStub;
 import static org.folio.util.StubUtils.initIncorrectConfigurations;
 import static org.folio.util.StubUtils.initModConfigStub;
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.util.List;
+
 import org.apache.http.HttpStatus;
 import org.folio.rest.impl.base.AbstractAPITest;
+import org.folio.rest.jaxrs.model.EmailSummary;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import io.restassured.http.ContentType;
 import io.restassured.response.Response;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
 @RunWith(VertxUnitRunner.class)
@@ -83,4 +92,100 @@ public class EmailAPITest extends AbstractAPITest {
     assertTrue(response.asString().contains(expectedResponse));
   }
 
+  @Test
+  public void shouldExcludeBodyFromEmailsByDefault() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    post(REST_PATH_EMAIL, getEmailEntity("user@user.com", "admin@admin.com", null))
+      .then()
+      .statusCode(HttpStatus.SC_OK);
+
+    String summary = get(REST_PATH_EMAIL)
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString();
+    String complete = get(REST_PATH_EMAIL + "?exclude=none")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString();
+
+    assertTrue(summary.contains("\"header\":\"Reset password\""));
+    assertFalse(summary.contains("\"body\""));
+    assertTrue(complete.contains("\"body\":\"Test message\""));
+  }
+
+  @Test
+  public void shouldListEmailSummariesByDefault() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    post(REST_PATH_EMAIL, getEmailEntity("user@user.com", "admin@admin.com", null))
+      .then()
+      .statusCode(HttpStatus.SC_OK);
+
+    JsonObject summaries = new JsonObject(getEmails(DELIVERED)
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .contentType(ContentType.JSON)
+      .extract()
+      .asString());
+
+    assertEquals(Integer.valueOf(1), summaries.getInteger("totalRecords"));
+    JsonObject summary = summaries.getJsonArray("emailEntity").getJsonObject(0);
+    assertTrue(summary.fieldNames().containsAll(
+      List.of("id", "notificationId", "from", "to", "header", "status", "message", "date")));
+    assertFalse(summary.containsKey("body"));
+    assertFalse(summary.containsKey("attachments"));
+    assertFalse(summary.containsKey("compressedContent"));
+    assertEquals("user@user.com", summary.mapTo(EmailSummary.class).getTo());
+  }
+
+  @Test
+  public void shouldStreamPagesWithTotalRecords() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    for (var recipient : List.of("first@user.com", "second@user.com")) {
+      post(REST_PATH_EMAIL, getEmailEntity(recipient, "admin@admin.com", null))
+        .then()
+        .statusCode(HttpStatus.SC_OK);
+    }
+
+    JsonObject firstPage = new JsonObject(get(REST_PATH_EMAIL + "?limit=1")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .contentType(ContentType.JSON)
+      .extract()
+      .asString());
+    JsonObject pastLastPage = new JsonObject(get(REST_PATH_EMAIL + "?offset=5")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString());
+
+    assertEquals(1, firstPage.getJsonArray("emailEntity").size());
+    assertEquals(2, firstPage.getInteger("totalRecords").intValue());
+    assertTrue(pastLastPage.getJsonArray("emailEntity").isEmpty());
+    assertEquals(2, pastLastPage.getInteger("totalRecords").intValue());
+  }
+
+  @Test
+  public void shouldNotStoreBodyOfDeliveredEmailsWithMetadataOnlyPolicy() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    post(REST_PATH_MAIL_SETTINGS,
+      EmailSettingsAPITest.buildPersistencePolicySettings("METADATA_ONLY").encode())
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+    post(REST_PATH_EMAIL, getEmailEntity("user@user.com", "admin@admin.com", null))
+      .then()
+      .statusCode(HttpStatus.SC_OK);
+
+    String complete = get(REST_PATH_EMAIL + "?exclude=none")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString();
+
+    assertTrue(complete.contains("\"status\":\"DELIVERED\""));
+    assertTrue(complete.contains("\"header\":\"Reset password\""));
+    assertFalse(complete.contains("\"body\""));
+  }
+
 }
@@ -94,7 +94,7 @@ public class EmailSettingsAPITest extends AbstractAPITest {
     var emailSetting = buildValidEmailSettings().put("key", "new-smtp-configuration");
 
     var expectedError = new JsonObject()
-      .put("message", "Key must be one of: [smtp-configuration]")
+      .put("message", "Key must be one of: [persistence-policy, smtp-configuration]")
       .put("code", "validation_error")
       .put("parameters", new JsonArray()
         .add(new JsonObject().put("key", "key").put("value", "invalid value")));
@@ -130,6 +130,35 @@ public class EmailSettingsAPITest extends AbstractAPITest {
       .body(matchesJson(expectedErrors));
   }
 
+  @Test
+  public void postEmailSettings_positive_persistencePolicy() {
+    var emailSetting = buildPersistencePolicySettings("METADATA_ONLY");
+    post(REST_PATH_MAIL_SETTINGS, emailSetting.encodePrettily())
+      .then()
+      .statusCode(SC_CREATED)
+      .contentType(ContentType.JSON)
+      .body(matchesJson(emailSetting, ignoredProperties()));
+  }
+
+  @Test
+  public void postEmailSettings_negative_unknownPersistencePolicy() {
+    var emailSetting = buildPersistencePolicySettings("BODY_ONLY");
+
+    var expectedError = new JsonObject()
+      .put("message", "Invalid value in setting")
+      .put("code", "validation_error")
+      .put("parameters", new JsonArray()
+        .add(new JsonObject().put("key", "value.policy")
+          .put("value", "must be one of: [FULL, METADATA_ONLY, COMPRESSED]")));
+    var expectedErrors = new JsonObject().put("errors", new JsonArray(List.of(expectedError)));
+
+    post(REST_PATH_MAIL_SETTINGS, emailSetting.encodePrettily())
+      .then()
+      .statusCode(SC_UNPROCESSABLE_ENTITY)
+      .contentType(ContentType.JSON)
+      .body(matchesJson(expectedErrors));
+  }
+
   @Test
   public void postEmailSettings_negative_withMissingScope() {
     JsonObject invalidEmailSetting = new JsonObject()
@@ -266,7 +295,7 @@ public class EmailSettingsAPITest extends AbstractAPITest {
     var emailSettingToPut = emailSetting.copy().put("key", "new-smtp-configuration");
 
     var expectedError = new JsonObject()
-      .put("message", "Key must be one of: [smtp-configuration]")
+      .put("message", "Key must be one of: [persistence-policy, smtp-configuration]")
       .put("code", "validation_error")
       .put("parameters", new JsonArray()
         .add(new JsonObject().put("key", "key").put("value", "invalid value")));
@@ -389,6 +418,15 @@ public class EmailSettingsAPITest extends AbstractAPITest {
       .put("_version", 1);
   }
 
+  public static JsonObject buildPersistencePolicySettings(String policy) {
+    return new JsonObject()
+      .put("id", CONFIG_ID)
+      .put("key", "persistence-policy")
+      .put("value", new JsonObject().put("policy", policy))
+      .put("scope", "mod-email")
+      .put("_version", 1);
+  }
+
   public static JsonObject buildValidEmailSettings() {
     return new JsonObject()
       .put("id", CONFIG_ID)
@@ -0,0 +1,140 @@
+package org.folio.rest.impl;
+
+import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.folio.cql2pgjson.CQL2PgJSON;
+import org.folio.rest.impl.base.AbstractAPITest;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.jaxrs.model.EmailEntries;
+import org.folio.rest.jaxrs.model.Metadata;
+import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.services.storage.impl.StorageServiceImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Future;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Checks that the queries run against email_statistics are served by an index. The
+ * table is empty in tests, so sequential scans are disabled to make the planner reveal whether a
+ * usable index exists at all. The retry queue is checked through its partial index definition
+ * and the result of the retry query.
+ */
+@RunWith(VertxUnitRunner.class)
+public class EmailStatisticsIndexTest extends AbstractAPITest {
+
+  private static final String EXPLAIN_QUERY = "EXPLAIN SELECT jsonb FROM %s.%s %s";
+  private static final String SELECT_INDEX_DEFINITION_QUERY = "SELECT indexdef FROM pg_indexes "
+    + "WHERE schemaname = '%s' AND indexname = '%s'";
+  private static final String RETRY_QUEUE_INDEX = "email_statistics_retry_queue_idx";
+
+  @Test
+  public void queryByStatusShouldUseIndex(TestContext context) {
+    assertIndexScan(context, "status==FAILURE");
+  }
+
+  @Test
+  public void queryByNotificationIdShouldUseIndex(TestContext context) {
+    assertIndexScan(context, "notificationId==1");
+  }
+
+  @Test
+  public void queryByRecipientShouldUseIndex(TestContext context) {
+    assertIndexScan(context, "to=\"*user@*\"");
+  }
+
+  @Test
+  public void queryByDateShouldUseIndex(TestContext context) {
+    assertIndexScan(context, "date>2024-01-01");
+  }
+
+  @Test
+  public void sortByDateShouldUseIndex(TestContext context) {
+    assertIndexScan(context, "cql.allRecords=1 sortBy date/sort.descending");
+  }
+
+  @Test
+  public void queryByStatusSortedByDateShouldUseIndex(TestContext context) {
+    assertIndexScan(context, "status==DELIVERED sortBy date/sort.descending");
+  }
+
+  @Test
+  public void retryQueueIndexShouldCoverOnlyEmailsToRetry(TestContext context) {
+    postgresClient.execute(String.format(SELECT_INDEX_DEFINITION_QUERY,
+        convertToPsqlStandard(OKAPI_TENANT), RETRY_QUEUE_INDEX))
+      .onComplete(context.asyncAssertSuccess(rows -> {
+        context.assertEquals(1, rows.size(), "Retry queue index is missing");
+        String definition = rows.iterator().next().getString(0);
+        context.assertTrue(definition.contains("attemptCount"), definition);
+        context.assertTrue(definition.contains("WHERE ((jsonb ->> 'shouldRetry'::text) = 'true'::text)"),
+          definition);
+      }));
+  }
+
+  @Test
+  public void findEmailsForRetryShouldReturnEmailsToRetryWithFewestAttemptsFirst(
+    TestContext context) {
+
+    EmailEntity retriedTwice = buildEmail(2, true);
+    EmailEntity retriedOnce = buildEmail(1, true);
+    EmailEntity exhausted = buildEmail(3, false);
+
+    Future.all(List.of(retriedTwice, retriedOnce, exhausted).stream()
+        .map(email -> postgresClient.save(EMAIL_STATISTICS_TABLE_NAME, email.getId(), email))
+        .toList())
+      .compose(v -> new StorageServiceImpl(vertx)
+        .findEmailsForRetry(OKAPI_TENANT, "2000-01-01T00:00:00Z", 10))
+      .map(json -> json.mapTo(EmailEntries.class).getEmailEntity().stream()
+        .map(EmailEntity::getId)
+        .toList())
+      .onComplete(context.asyncAssertSuccess(ids -> context.assertEquals(
+        List.of(retriedOnce.getId(), retriedTwice.getId()), ids)));
+  }
+
+  private static EmailEntity buildEmail(int attemptCount, boolean shouldRetry) {
+    return new EmailEntity()
+      .withId(UUID.randomUUID().toString())
+      .withNotificationId(UUID.randomUUID().toString())
+      .withTo("user@localhost")
+      .withFrom("admin@localhost")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withStatus(EmailEntity.Status.FAILURE)
+      .withAttemptCount(attemptCount)
+      .withShouldRetry(shouldRetry)
+      .withMetadata(new Metadata().withCreatedDate(new Date()));
+  }
+
+  private void assertIndexScan(TestContext context, String query) {
+    String sql;
+    try {
+      var cql = new CQLWrapper(new CQL2PgJSON(EMAIL_STATISTICS_TABLE_NAME + ".jsonb"), query);
+      sql = String.format(EXPLAIN_QUERY, convertToPsqlStandard(OKAPI_TENANT),
+        EMAIL_STATISTICS_TABLE_NAME, cql);
+    } catch (Exception e) {
+      context.fail(e);
+      return;
+    }
+
+    explain(sql)
+      .onComplete(context.asyncAssertSuccess(plan -> context.assertFalse(
+        plan.contains("Seq Scan"), "Query `" + query + "` is not served by an index:\n" + plan)));
+  }
+
+  private static Future<String> explain(String sql) {
+    return postgresClient.withTrans(conn -> conn.execute("SET LOCAL enable_seqscan = off")
+        .compose(v -> conn.execute(sql)))
+      .map(rows -> StreamSupport.stream(rows.spliterator(), false)
+        .map(row -> row.getString(0))
+        .collect(Collectors.joining("\n")));
+  }
+}
@@ -9,9 +9,16 @@ import static org.folio.util.StubUtils.getIncorrectWiserMockConfigurations;
 import static org.folio.util.StubUtils.getWiserMockConfigurations;
 import static org.folio.util.StubUtils.initModConfigStub;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.ws.rs.core.HttpHeaders;
+
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
@@ -23,6 +30,10 @@ import io.restassured.response.Response;
 
 public class GettingMetricsTest extends AbstractAPITest {
 
+  private static final String REST_PATH_EMAIL_STATISTICS = "/email/statistics";
+  private static final String REST_PATH_EMAIL_EXPORT = "/email/export";
+  private static final String REST_PATH_EMAIL_QUEUE = "/email/queue";
+
   @Test
   public void testDelayedTaskExpiredEmailWithDateAndDeliveredStatus() {
     Response response = getEmails(DELIVERED)
@@ -89,6 +100,80 @@ public class GettingMetricsTest extends AbstractAPITest {
       .response();
   }
 
+  @Test
+  public void testEmailStatisticsKeepCountsOfPurgedEmails() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    int deliveredBefore = getDeliveredCountForToday();
+
+    sendEmail(200);
+    sendEmail(200);
+    deleteEmailByDateAndStatus(generateExpirationDate(), DELIVERED.value())
+      .then()
+      .statusCode(HttpStatus.SC_NO_CONTENT);
+
+    assertEquals(deliveredBefore + 2, getDeliveredCountForToday());
+  }
+
+  @Test
+  public void testEmailStatisticsSumCountsOfAllBuckets() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    int deliveredBefore = getDeliveredCountForToday();
+
+    // the saves are spread over the buckets of the hour at random
+    for (int i = 0; i < 20; i++) {
+      sendEmail(200);
+    }
+
+    assertEquals(deliveredBefore + 20, getDeliveredCountForToday());
+  }
+
+  @Test
+  public void testEmailStatisticsWithIncorrectInterval() {
+    get(REST_PATH_EMAIL_STATISTICS + "?interval=week")
+      .then()
+      .statusCode(HttpStatus.SC_BAD_REQUEST);
+  }
+
+  @Test
+  public void testSendQueueCountsDispatchedSends() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    long dispatchedBefore = getDispatchedSends();
+
+    sendEmail(200);
+
+    assertEquals(dispatchedBefore + 1, getDispatchedSends());
+  }
+
+  @Test
+  public void testExportEmails() {
+    initModConfigStub(userMockServer.port(), getWiserMockConfigurations());
+    EmailEntity emailOne = sendEmail(200);
+    EmailEntity emailTwo = sendEmail(200);
+
+    String ndjson = get(REST_PATH_EMAIL_EXPORT + "?query=status==" + DELIVERED.value())
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+      .extract()
+      .asString();
+    List<String> exportedTo = ndjson.lines()
+      .map(JsonObject::new)
+      .map(email -> email.getString("to"))
+      .sorted()
+      .toList();
+    assertEquals(Stream.of(emailOne.getTo(), emailTwo.getTo()).sorted().toList(), exportedTo);
+
+    List<String> csv = get(REST_PATH_EMAIL_EXPORT + "?format=csv")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString()
+      .lines()
+      .toList();
+    assertEquals(3, csv.size());
+    assertTrue(csv.get(0).startsWith("id,notificationId,status,date,from,to"));
+  }
+
   @Test
   public void testSendEmailsWithDeliveredStatus() {
     int mockServerPort = userMockServer.port();
@@ -282,4 +367,34 @@ public class GettingMetricsTest extends AbstractAPITest {
     List<EmailEntity> actualEntries = convertEntriesToJson(response).getEmailEntity();
     assertEquals(1, actualEntries.size());
   }
+
+  private int getDeliveredCountForToday() {
+    String today = LocalDate.now(ZoneOffset.UTC).toString();
+    JsonArray emailCounts = new JsonObject(get(REST_PATH_EMAIL_STATISTICS
+      + "?interval=day&from=" + today + "&to=" + today)
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString())
+      .getJsonArray("emailCounts");
+
+    return emailCounts.stream()
+      .map(JsonObject.class::cast)
+      .filter(emailCount -> DELIVERED.value().equals(emailCount.getString("status")))
+      .mapToInt(emailCount -> emailCount.getInteger("count"))
+      .sum();
+  }
+
+  private long getDispatchedSends() {
+    JsonObject queue = new JsonObject(get(REST_PATH_EMAIL_QUEUE)
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract()
+      .asString());
+
+    return queue.getJsonArray("priorityLanes").stream()
+      .map(JsonObject.class::cast)
+      .mapToLong(lane -> lane.getLong("dispatchedSends"))
+      .sum();
+  }
 }
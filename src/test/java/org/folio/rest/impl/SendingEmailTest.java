@@ -326,6 +326,25 @@ public class SendingEmailTest extends AbstractAPITest {
     sendEmailAndAssertDelivered();
   }
 
+  @Test
+  public void shouldUseSettingsUpdatedThroughApiForNextEmail() throws Exception {
+    initFailModConfigStub(mockServerPort);
+    var incorrectSettings = EmailSettingsAPITest.buildIncorrectWiserEmailSettings();
+    post(REST_PATH_MAIL_SETTINGS, incorrectSettings.encodePrettily())
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+    sendEmailAndAssertFailure(HttpStatus.SC_OK);
+    assertTrue(getEnvelopeReceiversOnWiserServer().isEmpty());
+
+    var settingsId = incorrectSettings.getString("id");
+    put(REST_PATH_MAIL_SETTINGS + "/" + settingsId, EmailSettingsAPITest
+        .buildValidEmailSettings(settingsId, buildWiserSmtpConfiguration()).encodePrettily())
+      .then()
+      .statusCode(HttpStatus.SC_NO_CONTENT);
+
+    sendEmailAndAssertDelivered();
+  }
+
   @Test
   public void shouldSucceedWhenBothLocalAndRemoteConfigsExistAndRemoteIsInvalid() throws Exception {
     initModConfigStub(mockServerPort, getIncorrectConfigurations());
@@ -0,0 +1,75 @@
+package org.folio.rest.impl;
+
+import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.folio.rest.impl.base.AbstractAPITest;
+import org.folio.rest.jaxrs.model.TenantAttributes;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Future;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+
+/**
+ * Checks that upgrading from the previous release brings the email_statistics indexes up to
+ * date. The schema of the previous release is simulated by dropping the indexes added since
+ * and restoring the shouldRetry index removed since.
+ */
+@RunWith(VertxUnitRunner.class)
+public class TenantUpgradeTest extends AbstractAPITest {
+
+  private static final String PREVIOUS_VERSION = "mod-email-1.20.0";
+  private static final String CURRENT_VERSION = "mod-email-1.21.0";
+  private static final String SHOULD_RETRY_INDEX = "email_statistics_shouldretry_idx";
+  private static final String SELECT_INDEXES_QUERY = "SELECT lower(indexname) FROM pg_indexes "
+    + "WHERE schemaname = '%s' AND tablename = 'email_statistics' "
+    + "AND indexname <> 'email_statistics_pkey' ORDER BY 1";
+
+  @Test
+  public void upgradeFromPreviousVersionShouldUpdateEmailStatisticsIndexes(TestContext context) {
+    String schema = convertToPsqlStandard(OKAPI_TENANT);
+
+    findIndexes(schema)
+      .compose(indexes -> simulatePreviousVersion(schema, indexes)
+        .compose(v -> postTenant(new TenantAttributes()
+          .withModuleFrom(PREVIOUS_VERSION)
+          .withModuleTo(CURRENT_VERSION)))
+        .compose(v -> findIndexes(schema))
+        .onComplete(context.asyncAssertSuccess(upgraded -> {
+          context.assertFalse(indexes.isEmpty());
+          context.assertEquals(indexes, upgraded);
+          context.assertFalse(upgraded.contains(SHOULD_RETRY_INDEX));
+        })));
+  }
+
+  private static Future<List<String>> findIndexes(String schema) {
+    return postgresClient.execute(String.format(SELECT_INDEXES_QUERY, schema))
+      .map(TenantUpgradeTest::toNames);
+  }
+
+  private static Future<Void> simulatePreviousVersion(String schema, List<String> indexes) {
+    Future<RowSet<Row>> result = postgresClient.execute(String.format(
+      "DELETE FROM %s.rmb_internal_index WHERE name ILIKE 'email\\_statistics\\_%%'", schema));
+    for (String index : indexes) {
+      result = result.compose(v -> postgresClient.execute(
+        String.format("DROP INDEX %s.%s", schema, index)));
+    }
+    return result
+      .compose(v -> postgresClient.execute(String.format(
+        "CREATE INDEX %s ON %s.email_statistics ((jsonb->>'shouldRetry'))",
+        SHOULD_RETRY_INDEX, schema)))
+      .mapEmpty();
+  }
+
+  private static List<String> toNames(RowSet<Row> rows) {
+    List<String> names = new ArrayList<>();
+    rows.forEach(row -> names.add(row.getString(0)));
+    return names;
+  }
+}
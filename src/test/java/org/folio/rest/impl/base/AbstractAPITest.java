@@ -26,6 +26,7 @@ import javax.ws.rs.core.MediaType;
 
 import io.restassured.specification.RequestSpecification;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.web.client.HttpResponse;
 
@@ -43,6 +44,7 @@ import org.folio.rest.jaxrs.model.TenantJob;
 import org.folio.rest.persist.Criteria.Criterion;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.services.SettingsChangeListener;
 import org.folio.util.ClockUtil;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -85,7 +87,7 @@ public abstract class AbstractAPITest {
   private static final String HTTP_PORT = "http.port";
   private static final String TENANT_CLIENT_HOST = " http://%s:%s";
 
-  private static final String OKAPI_TENANT = "test_tenant";
+  protected static final String OKAPI_TENANT = "test_tenant";
   private static final String OKAPI_URL_HEADER = "x-okapi-url";
   private static final String OKAPI_HOST = "localhost";
   private static final String OKAPI_URL_TEMPLATE = "http://localhost:%s";
@@ -94,6 +96,7 @@ public abstract class AbstractAPITest {
   protected static final String REST_PATH_MAIL_SETTINGS = "/email/settings";
   protected static final String REST_PATH_SMTP_CONFIGURATION = "/smtp-configuration";
   private static final String PATH_WITH_QUERY_TEMPLATE = "%s?query=%s&limit=%s";
+  private static final String COMPLETE_EMAILS_TEMPLATE = PATH_WITH_QUERY_TEMPLATE + "&exclude=none";
   protected static final String ADDRESS_TEMPLATE = "%s@localhost";
   private static final String SUCCESS_SEND_EMAIL = "The message has been delivered to %s";
   protected static final String MESSAGE_NOT_FOUND = "The message for the sender: `%s` was not found on the SMTP server";
@@ -103,7 +106,7 @@ public abstract class AbstractAPITest {
   private static final String REST_PATH_DELETE_BATCH_EMAILS = "%s?expirationDate=%s&emailStatus=%s";
 
   private static Wiser wiser;
-  private static Vertx vertx;
+  protected static Vertx vertx;
   private static int port;
   protected static PostgresClient postgresClient;
 
@@ -207,9 +210,46 @@ public abstract class AbstractAPITest {
       });
   }
 
+  /**
+   * Posts the tenant attributes, e.g. to upgrade the module, and waits for the tenant job.
+   */
+  protected static Future<Void> postTenant(TenantAttributes tenantAttributes) {
+    Promise<Void> promise = Promise.promise();
+    TenantClient tenantClient = new TenantClient(String.format(TENANT_CLIENT_HOST, OKAPI_HOST, port), OKAPI_TENANT, null);
+    try {
+      tenantClient.postTenant(tenantAttributes, postResult -> {
+        if (postResult.failed()) {
+          promise.fail(postResult.cause());
+          return;
+        }
+        String jobId = postResult.result().bodyAsJson(TenantJob.class).getId();
+        tenantClient.getTenantByOperationId(jobId, POST_TENANT_TIMEOUT, getResult -> {
+          if (getResult.failed()) {
+            promise.fail(getResult.cause());
+            return;
+          }
+          TenantJob job = getResult.result().bodyAsJson(TenantJob.class);
+          if (Boolean.TRUE.equals(job.getComplete()) && job.getError() == null) {
+            promise.complete();
+          } else {
+            promise.fail("Tenant job failed: " + job.getError());
+          }
+        });
+      });
+    } catch (Exception e) {
+      promise.fail(e);
+    }
+    return promise.future();
+  }
+
+  /**
+   * Deletes the settings in the database directly, and invalidates the settings cache the way the
+   * settings APIs do, without waiting for the change notification.
+   */
   protected Future<RowSet<Row>> deleteLocalConfiguration() {
     return postgresClient.delete(SMTP_CONFIGURATION_TABLE_NAME, new Criterion())
-      .compose(rs -> postgresClient.delete(SETTINGS_TABLE, new Criterion()));
+      .compose(rs -> postgresClient.delete(SETTINGS_TABLE, new Criterion()))
+      .onComplete(rs -> SettingsChangeListener.get(vertx).invalidate(OKAPI_TENANT));
   }
 
   protected void deleteLocalConfigurationAndWait() {
@@ -231,6 +271,15 @@ public abstract class AbstractAPITest {
       .get(String.format(PATH_WITH_QUERY_TEMPLATE, REST_PATH_EMAIL, query, DEFAULT_LIMIT));
   }
 
+  /**
+   * Gets the emails with their body and attachments, left out of the emails by default.
+   */
+  protected Response getCompleteEmails(Status status) {
+    return getRequestSpecification()
+      .get(String.format(COMPLETE_EMAILS_TEMPLATE, REST_PATH_EMAIL, "status==" + status.value(),
+        DEFAULT_LIMIT));
+  }
+
   protected Response get(String path) {
     return getRequestSpecification()
       .get(path);
@@ -366,7 +415,7 @@ public abstract class AbstractAPITest {
    * Check stored emails in the database
    */
   protected void checkStoredEmailsInDb(EmailEntity emailEntity, Status status) {
-    Response responseDb = getEmails(status)
+    Response responseDb = getCompleteEmails(status)
       .then()
       .statusCode(HttpStatus.SC_OK)
       .extract()
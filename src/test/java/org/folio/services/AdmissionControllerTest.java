@@ -0,0 +1,47 @@
+package org.folio.services;
+
+import static org.folio.services.AdmissionController.MAX_RETRY_AFTER_SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.folio.exceptions.DeliveryOverloadedException;
+import org.junit.Test;
+
+public class AdmissionControllerTest {
+
+  @Test
+  public void execute_positive_submissionsAreAdmittedBelowLimit() {
+    var admissionController = new AdmissionController(2);
+
+    admissionController.execute(1, () -> Promise.<String>promise().future());
+    var second = admissionController.execute(1, () -> Future.succeededFuture("sent"));
+
+    assertTrue(second.succeeded());
+    assertEquals(1, admissionController.getPendingSends());
+  }
+
+  @Test
+  public void execute_negative_submissionIsRejectedWithRetryAfterAboveLimit() {
+    var admissionController = new AdmissionController(1);
+    admissionController.execute(1, () -> Promise.<String>promise().future());
+
+    var rejected = admissionController.execute(1, () -> Future.succeededFuture("sent"));
+
+    assertTrue(rejected.failed());
+    var exception = (DeliveryOverloadedException) rejected.cause();
+    assertEquals(MAX_RETRY_AFTER_SECONDS, exception.getRetryAfterSeconds());
+  }
+
+  @Test
+  public void admit_positive_batchLargerThanLimitIsAdmittedWhenIdle() {
+    var admissionController = new AdmissionController(10);
+
+    assertTrue(admissionController.admit(50).succeeded());
+    assertTrue(admissionController.admit(1).failed());
+
+    admissionController.release(50);
+    assertEquals(0, admissionController.getPendingSends());
+  }
+}
@@ -0,0 +1,60 @@
+package org.folio.services;
+
+import static org.folio.services.EmailExportService.ExportFormat.CSV;
+import static org.folio.services.EmailExportService.ExportFormat.NDJSON;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import io.vertx.core.json.JsonObject;
+import org.folio.services.EmailExportService.ExportFormat;
+import org.junit.Test;
+
+public class EmailExportServiceTest {
+
+  @Test
+  public void toCsvLine_positive_fieldsAreWrittenInColumnOrder() {
+    var email = new JsonObject()
+      .put("to", "user@localhost")
+      .put("id", "1e8ad1c5-6da8-4b5a-9b46-4bb0a3b3d2a7")
+      .put("status", "DELIVERED")
+      .put("attemptCount", 1);
+
+    assertEquals("1e8ad1c5-6da8-4b5a-9b46-4bb0a3b3d2a7,,DELIVERED,,,user@localhost,,,,,1,,,,\r\n",
+      EmailExportService.toCsvLine(email.encode()));
+  }
+
+  @Test
+  public void toCsvLine_positive_valuesWithSeparatorsAreQuoted() {
+    var email = new JsonObject()
+      .put("to", "first@localhost,second@localhost")
+      .put("header", "Say \"hello\"")
+      .put("message", "line one\nline two");
+
+    assertEquals(",,,,,\"first@localhost,second@localhost\",,\"Say \"\"hello\"\"\",,,,,"
+      + "\"line one\nline two\",,\r\n", EmailExportService.toCsvLine(email.encode()));
+  }
+
+  @Test
+  public void toCsvLine_positive_formulasAreWrittenAsText() {
+    var email = new JsonObject()
+      .put("to", "@SUM(1+1)")
+      .put("header", "=HYPERLINK(\"http://evil\",\"click\")")
+      .put("message", "+1")
+      .put("smtpEnhancedStatus", "-5.1.1");
+
+    assertEquals(",,,,,'@SUM(1+1),,\"'=HYPERLINK(\"\"http://evil\"\",\"\"click\"\")\",,,,,"
+      + "'+1,,'-5.1.1\r\n", EmailExportService.toCsvLine(email.encode()));
+  }
+
+  @Test
+  public void fromValue_positive_formatIsCaseInsensitiveAndDefaultsToNdjson() {
+    assertEquals(NDJSON, ExportFormat.fromValue(null));
+    assertEquals(NDJSON, ExportFormat.fromValue("ndjson"));
+    assertEquals(CSV, ExportFormat.fromValue("CSV"));
+  }
+
+  @Test
+  public void fromValue_negative_unknownFormat() {
+    assertThrows(IllegalArgumentException.class, () -> ExportFormat.fromValue("xml"));
+  }
+}
@@ -0,0 +1,216 @@
+package org.folio.services;
+
+import static io.vertx.core.Future.succeededFuture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.folio.services.storage.StorageService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class EmailWriteBehindBufferTest {
+
+  private static final String TENANT_ID = "test_tenant";
+  private static final long NO_FLUSH_INTERVAL = 60_000L;
+
+  private Vertx vertx;
+  private StorageService storageService;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    storageService = Mockito.mock(StorageService.class);
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(succeededFuture());
+  }
+
+  @After
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  public void add_positive_fullBatchIsSavedAtOnce() {
+    var buffer = createBuffer(2, NO_FLUSH_INTERVAL, 10);
+
+    buffer.add(email("1"));
+    verify(storageService, never()).saveEmailEntities(eq(TENANT_ID), anyList());
+    buffer.add(email("2"));
+
+    verify(storageService).saveEmailEntities(TENANT_ID, List.of(email("1"), email("2")));
+    assertEquals(0, buffer.getBufferedCount());
+  }
+
+  @Test
+  public void add_positive_partialBatchIsSavedAfterFlushInterval() throws Exception {
+    Promise<List<JsonObject>> saved = Promise.promise();
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenAnswer(invocation -> {
+        saved.complete(invocation.getArgument(1));
+        return succeededFuture();
+      });
+    var buffer = createBuffer(10, 50, 10);
+
+    var added = buffer.add(email("1"));
+
+    assertTrue(added.succeeded());
+    var batch = saved.future().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(List.of(email("1")), batch);
+    assertEquals(0, buffer.getBufferedCount());
+  }
+
+  @Test
+  public void add_positive_waitsForFlushWhenBufferIsFull() {
+    Promise<Void> saving = Promise.promise();
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(saving.future(), succeededFuture());
+    var buffer = createBuffer(1, NO_FLUSH_INTERVAL, 1);
+
+    buffer.add(email("1"));
+    var secondAdded = buffer.add(email("2"));
+    var thirdAdded = buffer.add(email("3"));
+
+    assertTrue(secondAdded.succeeded());
+    assertFalse(thirdAdded.isComplete());
+
+    saving.complete();
+
+    assertTrue(thirdAdded.succeeded());
+    verify(storageService, times(3)).saveEmailEntities(eq(TENANT_ID), anyList());
+  }
+
+  @Test
+  public void flush_positive_savesAllBufferedEmails() {
+    var buffer = createBuffer(2, NO_FLUSH_INTERVAL, 10);
+    buffer.add(email("1"));
+    buffer.add(email("2"));
+    buffer.add(email("3"));
+
+    var flushed = buffer.flush();
+
+    assertTrue(flushed.succeeded());
+    assertEquals(0, buffer.getBufferedCount());
+    verify(storageService).saveEmailEntities(TENANT_ID, List.of(email("3")));
+  }
+
+  @Test
+  public void flush_positive_failedBatchIsSavedOneByOne() {
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(Future.failedFuture("duplicate key"));
+    when(storageService.saveEmailEntity(eq(TENANT_ID), any()))
+      .thenAnswer(invocation -> succeededFuture(invocation.getArgument(1)));
+    var buffer = createBuffer(10, NO_FLUSH_INTERVAL, 10);
+    buffer.add(email("1"));
+    buffer.add(email("2"));
+
+    var flushed = buffer.flush();
+
+    assertTrue(flushed.succeeded());
+    verify(storageService).saveEmailEntity(TENANT_ID, email("1"));
+    verify(storageService).saveEmailEntity(TENANT_ID, email("2"));
+  }
+
+  @Test
+  public void flush_negative_emailsFailingToSaveStayBuffered() {
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(Future.failedFuture("Connection refused"));
+    when(storageService.saveEmailEntity(TENANT_ID, email("1")))
+      .thenReturn(succeededFuture(email("1")));
+    when(storageService.saveEmailEntity(TENANT_ID, email("2")))
+      .thenReturn(Future.failedFuture("Connection refused"));
+    var buffer = createBuffer(10, NO_FLUSH_INTERVAL, 10);
+    buffer.add(email("1"));
+    buffer.add(email("2"));
+
+    var flushed = buffer.flush();
+
+    assertTrue(flushed.failed());
+    assertEquals(1, buffer.getBufferedCount());
+    assertEquals(email("2"), buffer.findBuffered(email -> true));
+  }
+
+  @Test
+  public void add_positive_failedBatchIsRetried() throws Exception {
+    Promise<List<JsonObject>> retried = Promise.promise();
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(Future.failedFuture("Connection refused"))
+      .thenAnswer(invocation -> {
+        retried.complete(invocation.getArgument(1));
+        return succeededFuture();
+      });
+    when(storageService.saveEmailEntity(eq(TENANT_ID), any()))
+      .thenReturn(Future.failedFuture("Connection refused"));
+    var buffer = createBuffer(1, 10, 10);
+
+    buffer.add(email("1"));
+
+    var batch = retried.future().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(List.of(email("1")), batch);
+  }
+
+  @Test
+  public void add_positive_emailIsSavedDirectlyWhenBufferIsFullAndSavingFails() {
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(Future.failedFuture("Connection refused"));
+    when(storageService.saveEmailEntity(TENANT_ID, email("1")))
+      .thenReturn(Future.failedFuture("Connection refused"));
+    when(storageService.saveEmailEntity(TENANT_ID, email("2")))
+      .thenReturn(succeededFuture(email("2")));
+    var buffer = createBuffer(1, NO_FLUSH_INTERVAL, 1);
+
+    buffer.add(email("1"));
+    var added = buffer.add(email("2"));
+
+    assertTrue(added.succeeded());
+    verify(storageService).saveEmailEntity(TENANT_ID, email("2"));
+    assertEquals(1, buffer.getBufferedCount());
+  }
+
+  @Test
+  public void findBuffered_positive_emailsBeingSavedAreFound() {
+    Promise<Void> saving = Promise.promise();
+    when(storageService.saveEmailEntities(eq(TENANT_ID), anyList()))
+      .thenReturn(saving.future());
+    var buffer = createBuffer(1, NO_FLUSH_INTERVAL, 10);
+
+    buffer.add(email("1"));
+
+    assertEquals(0, buffer.getBufferedCount());
+    assertEquals(email("1"), buffer.findBuffered(email -> "1".equals(
+      email.getString("notificationId"))));
+    saving.complete();
+    assertNull(buffer.findBuffered(email -> true));
+  }
+
+  private EmailWriteBehindBuffer createBuffer(int batchSize, long flushIntervalMillis,
+    int capacity) {
+
+    return new EmailWriteBehindBuffer(vertx, TENANT_ID, storageService, true, batchSize,
+      flushIntervalMillis, capacity);
+  }
+
+  private static JsonObject email(String notificationId) {
+    return new JsonObject()
+      .put("notificationId", notificationId)
+      .put("to", "user@user.com")
+      .put("header", "Reset password")
+      .put("body", "Test message");
+  }
+}
@@ -0,0 +1,213 @@
+package org.folio.services;
+
+import static io.vertx.core.Future.succeededFuture;
+import static org.folio.rest.jaxrs.model.EmailEntity.Status.DELIVERED;
+import static org.folio.rest.jaxrs.model.EmailEntity.Status.FAILURE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.folio.exceptions.DeliveryOverloadedException;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.jaxrs.model.EmailEntries;
+import org.folio.services.storage.StorageService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class IdempotentSubmissionServiceTest {
+
+  private static final String TENANT_ID = "test_tenant";
+
+  private StorageService storageService;
+  private EmailWriteBehindBuffer writeBehindBuffer;
+  private IdempotentSubmissionService submissionService;
+
+  @Before
+  public void setUp() {
+    storageService = Mockito.mock(StorageService.class);
+    writeBehindBuffer = Mockito.mock(EmailWriteBehindBuffer.class);
+    submissionService = new IdempotentSubmissionService(TENANT_ID, storageService,
+      writeBehindBuffer);
+  }
+
+  @Test
+  public void submit_positive_concurrentSubmissionsAreProcessedOnce() {
+    mockDeliveredEmails(Collections.emptyList());
+    var email = buildEmail("recipient@localhost");
+    var processCount = new AtomicInteger();
+    Promise<EmailEntity> processing = Promise.promise();
+
+    var first = submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return processing.future();
+    });
+    var second = submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return processing.future();
+    });
+    processing.complete(email.withStatus(DELIVERED));
+
+    assertEquals(1, processCount.get());
+    assertSame(first.result(), second.result());
+  }
+
+  @Test
+  public void submit_positive_deliveredEmailIsNotProcessedAgain() {
+    var email = buildEmail("recipient@localhost");
+    var delivered = buildEmail("recipient@localhost")
+      .withStatus(DELIVERED)
+      .withMessage("The message has been delivered to recipient@localhost");
+    mockDeliveredEmails(List.of(delivered));
+    var processCount = new AtomicInteger();
+
+    var result = submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return succeededFuture(email);
+    });
+
+    assertEquals(0, processCount.get());
+    assertEquals(delivered.getMessage(), result.result().getMessage());
+    verify(storageService).findFirstEmailEntry(eq(TENANT_ID),
+      eq("notificationId==\"1\" and to==\"recipient@localhost\" and status==DELIVERED"));
+  }
+
+  @Test
+  public void submit_positive_notificationIsProcessedForEachRecipient() {
+    mockDeliveredEmails(Collections.emptyList());
+    var processCount = new AtomicInteger();
+    Promise<EmailEntity> processing = Promise.promise();
+
+    submissionService.submit(buildEmail("first@localhost"), () -> {
+      processCount.incrementAndGet();
+      return processing.future();
+    });
+    submissionService.submit(buildEmail("second@localhost"), () -> {
+      processCount.incrementAndGet();
+      return processing.future();
+    });
+
+    assertEquals(2, processCount.get());
+  }
+
+  @Test
+  public void submit_positive_submissionIsProcessedAgainAfterFailure() {
+    mockDeliveredEmails(Collections.emptyList());
+    var email = buildEmail("recipient@localhost").withId(UUID.randomUUID().toString());
+    var processCount = new AtomicInteger();
+
+    submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return Future.failedFuture("relay is not available");
+    });
+    var result = submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return succeededFuture(email);
+    });
+
+    assertEquals(2, processCount.get());
+    assertTrue(result.succeeded());
+  }
+
+  @Test
+  public void submit_positive_deliveredEmailIsReturnedWhileAdmissionIsSaturated() {
+    var email = buildEmail("recipient@localhost");
+    var delivered = buildEmail("recipient@localhost").withStatus(DELIVERED);
+    mockDeliveredEmails(List.of(delivered));
+    var admissionController = new AdmissionController(1);
+    admissionController.admit(1);
+
+    var result = submissionService.submit(email,
+      () -> admissionController.execute(1, () -> succeededFuture(email)));
+
+    assertTrue(result.succeeded());
+    assertEquals(DELIVERED, result.result().getStatus());
+  }
+
+  @Test
+  public void submit_negative_newSubmissionIsRejectedWhileAdmissionIsSaturated() {
+    mockDeliveredEmails(Collections.emptyList());
+    var email = buildEmail("recipient@localhost");
+    var admissionController = new AdmissionController(1);
+    admissionController.admit(1);
+
+    var result = submissionService.submit(email,
+      () -> admissionController.execute(1, () -> succeededFuture(email)));
+
+    assertTrue(result.failed());
+    assertTrue(result.cause() instanceof DeliveryOverloadedException);
+  }
+
+  @Test
+  public void submit_positive_deliveredEmailWaitingInBufferIsNotProcessedAgain() {
+    var email = buildEmail("recipient@localhost");
+    var buffered = List.of(
+      JsonObject.mapFrom(buildEmail("other@localhost").withStatus(DELIVERED)),
+      JsonObject.mapFrom(buildEmail("recipient@localhost").withStatus(DELIVERED)));
+    when(writeBehindBuffer.findBuffered(any())).thenAnswer(invocation -> {
+      Predicate<JsonObject> filter = invocation.getArgument(0);
+      return buffered.stream().filter(filter).findFirst().orElse(null);
+    });
+    var processCount = new AtomicInteger();
+
+    var result = submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return succeededFuture(email);
+    });
+
+    assertEquals(0, processCount.get());
+    assertEquals(DELIVERED, result.result().getStatus());
+    assertEquals("recipient@localhost", result.result().getTo());
+    verify(storageService, never()).findFirstEmailEntry(eq(TENANT_ID), anyString());
+  }
+
+  @Test
+  public void submit_positive_failedEmailWaitingInBufferIsProcessedAgain() {
+    mockDeliveredEmails(Collections.emptyList());
+    var email = buildEmail("recipient@localhost");
+    var buffered = JsonObject.mapFrom(buildEmail("recipient@localhost").withStatus(FAILURE));
+    when(writeBehindBuffer.findBuffered(any())).thenAnswer(invocation -> {
+      Predicate<JsonObject> filter = invocation.getArgument(0);
+      return filter.test(buffered) ? buffered : null;
+    });
+    var processCount = new AtomicInteger();
+
+    submissionService.submit(email, () -> {
+      processCount.incrementAndGet();
+      return succeededFuture(email);
+    });
+
+    assertEquals(1, processCount.get());
+  }
+
+  private void mockDeliveredEmails(List<EmailEntity> emails) {
+    var entries = new EmailEntries()
+      .withEmailEntity(emails)
+      .withTotalRecords(emails.size());
+    when(storageService.findFirstEmailEntry(eq(TENANT_ID), anyString()))
+      .thenReturn(succeededFuture(JsonObject.mapFrom(entries)));
+  }
+
+  private static EmailEntity buildEmail(String recipient) {
+    return new EmailEntity()
+      .withNotificationId("1")
+      .withTo(recipient)
+      .withFrom("sender@localhost")
+      .withHeader("Reset password")
+      .withBody("Test text for the message");
+  }
+}
@@ -0,0 +1,80 @@
+package org.folio.services;
+
+import static io.vertx.core.Future.failedFuture;
+import static io.vertx.core.Future.succeededFuture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class SettingsCacheTest {
+
+  private static final String TENANT_ID = "test_tenant";
+
+  private final AtomicInteger loadCount = new AtomicInteger();
+
+  @Test
+  public void get_positive_valueIsLoadedOnce() {
+    var cache = new SettingsCache<String>(() -> true);
+
+    cache.get(TENANT_ID, () -> load("smtp"));
+    var value = cache.get(TENANT_ID, () -> load("other"));
+
+    assertEquals("smtp", value.result());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  public void get_positive_concurrentLookupsShareTheLoad() {
+    var cache = new SettingsCache<String>(() -> true);
+    Promise<String> loading = Promise.promise();
+
+    var first = cache.get(TENANT_ID, loading::future);
+    var second = cache.get(TENANT_ID, () -> load("other"));
+
+    assertSame(first, second);
+    assertEquals(0, loadCount.get());
+  }
+
+  @Test
+  public void get_positive_valueIsLoadedAgainAfterInvalidation() {
+    var cache = new SettingsCache<String>(() -> true);
+    cache.get(TENANT_ID, () -> load("smtp"));
+    cache.get("other_tenant", () -> load("other"));
+
+    cache.invalidate(TENANT_ID);
+
+    assertEquals("changed", cache.get(TENANT_ID, () -> load("changed")).result());
+    assertEquals("other", cache.get("other_tenant", () -> load("not loaded")).result());
+    assertEquals(3, loadCount.get());
+  }
+
+  @Test
+  public void get_positive_failedLoadIsNotCached() {
+    var cache = new SettingsCache<String>(() -> true);
+
+    cache.get(TENANT_ID, () -> failedFuture("database is down"));
+    var value = cache.get(TENANT_ID, () -> load("smtp"));
+
+    assertEquals("smtp", value.result());
+  }
+
+  @Test
+  public void get_positive_valueIsNotCachedWhileDisabled() {
+    var cache = new SettingsCache<String>(() -> false);
+
+    cache.get(TENANT_ID, () -> load("smtp"));
+    var value = cache.get(TENANT_ID, () -> load("changed"));
+
+    assertEquals("changed", value.result());
+    assertEquals(2, loadCount.get());
+  }
+
+  private Future<String> load(String value) {
+    loadCount.incrementAndGet();
+    return succeededFuture(value);
+  }
+}
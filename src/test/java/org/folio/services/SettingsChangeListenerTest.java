@@ -0,0 +1,68 @@
+package org.folio.services;
+
+import static io.vertx.core.Future.succeededFuture;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.folio.rest.impl.EmailSettingsAPITest;
+import org.folio.rest.impl.base.AbstractAPITest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class SettingsChangeListenerTest extends AbstractAPITest {
+
+  private Vertx listenerVertx;
+  private SettingsChangeListener listener;
+
+  @Before
+  public void startListener() {
+    listenerVertx = Vertx.vertx();
+    listener = new SettingsChangeListener(listenerVertx, true);
+  }
+
+  @After
+  public void stopListener() {
+    listenerVertx.close();
+  }
+
+  @Test
+  public void settingsChangeInvalidatesCachedValuesOfTenant() {
+    SettingsCache<String> cache = listener.createCache();
+    listener.start();
+    await().atMost(10, TimeUnit.SECONDS).until(listener::isListening);
+    cache.get(OKAPI_TENANT, () -> succeededFuture("cached"));
+    cache.get("other_tenant", () -> succeededFuture("cached"));
+
+    post(REST_PATH_MAIL_SETTINGS,
+      EmailSettingsAPITest.buildPersistencePolicySettings("METADATA_ONLY").encode())
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+
+    await().atMost(10, TimeUnit.SECONDS).until(() -> "reloaded".equals(
+      cache.get(OKAPI_TENANT, () -> succeededFuture("reloaded")).result()));
+    cache.get("other_tenant", () -> succeededFuture("reloaded"))
+      .onSuccess(value -> assertEquals("cached", value));
+  }
+
+  @Test
+  public void listenerIsRemovedWhenVertxIsClosed(TestContext context) {
+    var otherVertx = Vertx.vertx();
+    SettingsChangeListener.get(otherVertx);
+    assertTrue(SettingsChangeListener.isRegistered(otherVertx));
+
+    otherVertx.close().onComplete(context.asyncAssertSuccess(v ->
+      assertFalse(SettingsChangeListener.isRegistered(otherVertx))));
+  }
+}
@@ -49,6 +49,7 @@ import org.mockito.junit.MockitoRule;
 @RunWith(VertxUnitRunner.class)
 public class SmtpConfigurationProviderTest {
 
+  private static final String TENANT_ID = "test_tenant";
   private static final String TEST_HOST = "smtp.test.com";
   private static final Integer TEST_PORT = 587;
   private static final String TEST_USERNAME = "test@test.com";
@@ -66,8 +67,8 @@ public class SmtpConfigurationProviderTest {
 
   @Before
   public void setUp() {
-    provider = new SmtpConfigurationProvider(settingsService, postgresClient,
-      ignored -> okapiClient, () -> smtpConfigurationService);
+    provider = new SmtpConfigurationProvider(TENANT_ID, new SettingsCache<>(() -> false),
+      settingsService, postgresClient, ignored -> okapiClient, () -> smtpConfigurationService);
   }
 
   @After
@@ -86,6 +87,24 @@ public class SmtpConfigurationProviderTest {
     verify(settingsService).getSmtpConfigSetting(any());
   }
 
+  @Test
+  public void lookup_positive_cachedUntilInvalidated(TestContext context) {
+    var cache = new SettingsCache<SmtpConfiguration>(() -> true);
+    var cachingProvider = new SmtpConfigurationProvider(TENANT_ID, cache, settingsService,
+      postgresClient, ignored -> okapiClient, () -> smtpConfigurationService);
+    when(postgresClient.withTrans(any())).then(this::withTransHandler);
+    when(settingsService.getSmtpConfigSetting(conn)).thenReturn(smtpConfigFuture());
+
+    cachingProvider.lookup(requestHeaders())
+      .compose(config -> cachingProvider.lookup(requestHeaders()))
+      .onSuccess(config -> cache.invalidate(TENANT_ID))
+      .compose(config -> cachingProvider.lookup(requestHeaders()))
+      .onComplete(context.asyncAssertSuccess(config -> {
+        context.assertEquals(config, smtpConfig());
+        verify(settingsService, times(2)).getSmtpConfigSetting(conn);
+      }));
+  }
+
   @Test
   public void lookup_positive_foundInSmtpRepository(TestContext context) {
     when(postgresClient.withTrans(any())).then(this::withTransHandler);
@@ -202,7 +221,8 @@ public class SmtpConfigurationProviderTest {
   @Test
   @SuppressWarnings("unchecked")
   public void defaultConstructor_positive() throws Exception{
-    var smtpConfigProvider = new SmtpConfigurationProvider(Vertx.vertx(), settingsService, postgresClient);
+    var smtpConfigProvider = new SmtpConfigurationProvider(Vertx.vertx(), TENANT_ID,
+      settingsService, postgresClient);
     assertNotNull(smtpConfigProvider);
 
     var field = SmtpConfigurationProvider.class.getDeclaredField("okapiClientSupplier");
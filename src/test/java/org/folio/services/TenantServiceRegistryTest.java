@@ -0,0 +1,70 @@
+package org.folio.services;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class TenantServiceRegistryTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void get_positive_servicesAreReusedForTenant() {
+    var first = TenantServiceRegistry.get(vertx, "tenant1");
+    var second = TenantServiceRegistry.get(vertx, "tenant1");
+
+    assertSame(first, second);
+    assertSame(first.mailService(), second.mailService());
+    assertSame(first.smtpConfigurationProvider(), second.smtpConfigurationProvider());
+  }
+
+  @Test
+  public void get_positive_servicesAreCreatedPerTenantAndVertx(TestContext context) {
+    var otherVertx = Vertx.vertx();
+
+    var services = TenantServiceRegistry.get(vertx, "tenant1");
+    assertNotSame(services, TenantServiceRegistry.get(vertx, "tenant2"));
+    assertNotSame(services, TenantServiceRegistry.get(otherVertx, "tenant1"));
+
+    otherVertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void remove_positive_servicesAreRecreatedAfterTenantIsRemoved(TestContext context) {
+    var services = TenantServiceRegistry.get(vertx, "tenant1");
+
+    TenantServiceRegistry.remove(vertx, "tenant1")
+      .onComplete(context.asyncAssertSuccess(v ->
+        assertNotSame(services, TenantServiceRegistry.get(vertx, "tenant1"))));
+  }
+
+  @Test
+  public void get_positive_servicesAreRemovedWhenVertxIsClosed(TestContext context) {
+    var otherVertx = Vertx.vertx();
+    TenantServiceRegistry.get(otherVertx, "tenant1");
+    assertTrue(TenantServiceRegistry.isRegistered(otherVertx));
+
+    otherVertx.close().onComplete(context.asyncAssertSuccess(v ->
+      assertFalse(TenantServiceRegistry.isRegistered(otherVertx))));
+  }
+}
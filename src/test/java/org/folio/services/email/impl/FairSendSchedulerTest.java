@@ -0,0 +1,155 @@
+package org.folio.services.email.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class FairSendSchedulerTest {
+
+  private static final String BULK_TENANT = "bulk_tenant";
+  private static final String OTHER_TENANT = "other_tenant";
+
+  private final SendDeadline deadline = SendDeadline.after(30000);
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void execute_positive_tenantSendsDoNotExceedTenantLimit() {
+    var scheduler = new FairSendScheduler(vertx, 10, 2, Map.of());
+
+    for (int i = 0; i < 5; i++) {
+      scheduler.execute(BULK_TENANT, deadline, () -> Promise.<String>promise().future());
+    }
+    var other = scheduler.execute(OTHER_TENANT, deadline, () -> Future.succeededFuture("sent"));
+
+    assertTrue(other.succeeded());
+    assertEquals(3, scheduler.getQueueDepth(BULK_TENANT));
+    assertEquals(0, scheduler.getQueueDepth(OTHER_TENANT));
+  }
+
+  @Test
+  public void execute_positive_slotsAreSharedBetweenWaitingTenants(TestContext context) {
+    var scheduler = new FairSendScheduler(vertx, 1, 1, Map.of());
+    List<String> started = new ArrayList<>();
+    List<Future<String>> sends = new ArrayList<>();
+    Promise<String> inFlight = Promise.promise();
+
+    scheduler.execute(BULK_TENANT, deadline, inFlight::future);
+    for (int i = 0; i < 3; i++) {
+      sends.add(scheduler.execute(BULK_TENANT, deadline, () -> {
+        started.add(BULK_TENANT);
+        return Future.succeededFuture("sent");
+      }));
+    }
+    sends.add(scheduler.execute(OTHER_TENANT, deadline, () -> {
+      started.add(OTHER_TENANT);
+      return Future.succeededFuture("sent");
+    }));
+    inFlight.complete("sent");
+
+    Future.all(sends).onComplete(context.asyncAssertSuccess(v -> assertEquals(
+      List.of(OTHER_TENANT, BULK_TENANT, BULK_TENANT, BULK_TENANT), started)));
+  }
+
+  @Test
+  public void execute_positive_slotsAreSharedInProportionToWeights(TestContext context) {
+    var scheduler = new FairSendScheduler(vertx, 1, 1, Map.of(OTHER_TENANT, 3.0));
+    List<String> started = new ArrayList<>();
+    List<Future<String>> sends = new ArrayList<>();
+    Promise<String> inFlight = Promise.promise();
+
+    scheduler.execute(BULK_TENANT, deadline, inFlight::future);
+    for (int i = 0; i < 4; i++) {
+      for (var tenantId : List.of(BULK_TENANT, OTHER_TENANT)) {
+        sends.add(scheduler.execute(tenantId, deadline, () -> {
+          started.add(tenantId);
+          return Future.succeededFuture("sent");
+        }));
+      }
+    }
+    inFlight.complete("sent");
+
+    Future.all(sends).onComplete(context.asyncAssertSuccess(v -> {
+      assertEquals(List.of(OTHER_TENANT, OTHER_TENANT, OTHER_TENANT), started.subList(0, 3));
+      assertEquals(8, started.size());
+    }));
+  }
+
+  @Test
+  public void execute_positive_queuesOfIdleTenantsAreRemoved(TestContext context) {
+    var scheduler = new FairSendScheduler(vertx, 1, 1, Map.of());
+    Promise<String> inFlight = Promise.promise();
+
+    scheduler.execute(BULK_TENANT, deadline, inFlight::future);
+    var other = scheduler.execute(OTHER_TENANT, deadline, () -> Future.succeededFuture("sent"));
+    assertEquals(2, scheduler.getQueueCount());
+    inFlight.complete("sent");
+
+    other.onComplete(context.asyncAssertSuccess(v ->
+      assertEquals(0, scheduler.getQueueCount())));
+  }
+
+  @Test
+  public void execute_positive_longQueueIsDrainedWithoutRecursion(TestContext context) {
+    var scheduler = new FairSendScheduler(vertx, 1, 1, Map.of());
+    List<Future<String>> sends = new ArrayList<>();
+    Promise<String> inFlight = Promise.promise();
+
+    scheduler.execute(BULK_TENANT, deadline, inFlight::future);
+    for (int i = 0; i < 20_000; i++) {
+      sends.add(scheduler.execute(BULK_TENANT, deadline, () -> Future.succeededFuture("sent")));
+    }
+    inFlight.complete("sent");
+
+    Future.all(sends).onComplete(context.asyncAssertSuccess(v ->
+      assertEquals(0, scheduler.getQueueCount())));
+  }
+
+  @Test
+  public void execute_negative_sendWaitingPastDeadlineIsNotStarted(TestContext context) {
+    var scheduler = new FairSendScheduler(vertx, 1, 1, Map.of());
+    Promise<String> inFlight = Promise.promise();
+    List<String> started = new ArrayList<>();
+
+    scheduler.execute(BULK_TENANT, deadline, inFlight::future);
+    scheduler.execute(OTHER_TENANT, SendDeadline.after(10), () -> {
+        started.add(OTHER_TENANT);
+        return Future.succeededFuture("sent");
+      })
+      .onComplete(context.asyncAssertFailure(t -> {
+        assertEquals(0, scheduler.getQueueDepth(OTHER_TENANT));
+        assertEquals(1, scheduler.getQueueCount());
+        inFlight.complete("sent");
+        assertTrue(started.isEmpty());
+      }));
+  }
+
+  @Test
+  public void parseWeights_positive() {
+    assertEquals(Map.of("diku", 2.0, "college", 0.5),
+      FairSendScheduler.parseWeights(" diku:2, college : 0.5 "));
+    assertEquals(Map.of(), FairSendScheduler.parseWeights(""));
+  }
+}
@@ -2,13 +2,19 @@ package org.folio.services.email.impl;
 
 import static org.folio.util.StubUtils.buildSmtpConfiguration;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.List;
+import org.folio.rest.jaxrs.model.EmailHeader;
+import org.folio.rest.jaxrs.model.Relay;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
+import org.folio.util.EmailUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -73,14 +79,93 @@ public class MailClientProviderTest {
     var tenantId1 = "tenant1";
     var tenantId2 = "tenant2";
 
-    provider.get(tenantId1, smtpConfiguration())
-      .compose(firstClient -> provider.get(tenantId2, smtpConfiguration())
+    provider.get(tenantId1, smtpConfiguration("password-1"))
+      .compose(firstClient -> provider.get(tenantId2, smtpConfiguration("password-2"))
         .map(secondClient -> Pair.of(firstClient, secondClient)))
       .onComplete(context.asyncAssertSuccess(clientPair ->
         assertNotSame(clientPair.getLeft(), clientPair.getRight())
       ));
   }
 
+  @Test
+  public void get_positive_shouldShareClientOfIdenticalSettings(TestContext context) {
+    var tenantId1 = "tenant1";
+    var tenantId2 = "tenant2";
+    var config = smtpConfiguration();
+    var configWithOtherHeaders = smtpConfiguration()
+      .withEmailHeaders(List.of(new EmailHeader().withName("Reply-To").withValue("a@b.org")));
+
+    provider.get(tenantId1, config)
+      .compose(firstClient -> provider.get(tenantId2, configWithOtherHeaders)
+        .map(secondClient -> Pair.of(firstClient, secondClient)))
+      .onComplete(context.asyncAssertSuccess(clientPair -> {
+        assertSame(clientPair.getLeft(), clientPair.getRight());
+        assertEquals(1, provider.getSharedClientCount());
+      }));
+  }
+
+  @Test
+  public void remove_positive_sharedClientIsKeptForOtherTenants(TestContext context) {
+    var tenantId1 = "tenant1";
+    var tenantId2 = "tenant2";
+
+    provider.get(tenantId1, smtpConfiguration())
+      .compose(firstClient -> provider.get(tenantId2, smtpConfiguration())
+        .compose(secondClient -> provider.remove(tenantId1))
+        .compose(v -> provider.get(tenantId2, smtpConfiguration()))
+        .map(secondClient -> Pair.of(firstClient, secondClient)))
+      .compose(clientPair -> {
+        assertSame(clientPair.getLeft(), clientPair.getRight());
+        assertEquals(1, provider.getSharedClientCount());
+        return provider.remove(tenantId2);
+      })
+      .onComplete(context.asyncAssertSuccess(v ->
+        assertEquals(0, provider.getSharedClientCount())));
+  }
+
+  @Test
+  public void get_positive_concurrentConfigChangeReleasesOldClientsOnce(TestContext context) {
+    var tenantId1 = "tenant1";
+    var tenantId2 = "tenant2";
+    var secondaryRelay = new Relay().withHost("localhost").withPort(588);
+    var config = smtpConfiguration().withRelays(List.of(secondaryRelay));
+    var changedConfig = smtpConfiguration("password-2");
+
+    // the client of the primary relay is shared with tenant2, the secondary one is closed with
+    // its last reference, so releasing the clients of tenant1 does not complete at once
+    provider.get(tenantId1, config)
+      .compose(client -> provider.get(tenantId1, config, secondaryRelay))
+      .compose(client -> provider.get(tenantId2, smtpConfiguration()))
+      .compose(sharedClient -> Future.all(provider.get(tenantId1, changedConfig),
+          provider.get(tenantId1, changedConfig))
+        .compose(changedClients -> {
+          assertSame(changedClients.resultAt(0), changedClients.resultAt(1));
+          assertEquals(2, provider.getSharedClientCount());
+          return provider.get(tenantId2, smtpConfiguration());
+        })
+        .map(client -> {
+          assertSame(sharedClient, client);
+          return client;
+        }))
+      .compose(client -> provider.remove(tenantId1))
+      .compose(v -> provider.remove(tenantId2))
+      .onComplete(context.asyncAssertSuccess(v ->
+        assertEquals(0, provider.getSharedClientCount())));
+  }
+
+  @Test
+  public void getPoolKey_positive_dependsOnConnectionSettingsOnly() {
+    var mailConfig = EmailUtils.getMailConfig(smtpConfiguration());
+    var sameMailConfig = EmailUtils.getMailConfig(smtpConfiguration()
+      .withFrom("noreply@folio.org"));
+    var otherMailConfig = EmailUtils.getMailConfig(smtpConfiguration("password-2"));
+
+    assertEquals(MailClientProvider.getPoolKey(mailConfig),
+      MailClientProvider.getPoolKey(sameMailConfig));
+    assertNotEquals(MailClientProvider.getPoolKey(mailConfig),
+      MailClientProvider.getPoolKey(otherMailConfig));
+  }
+
   @Test
   public void get_positive_shouldRemoveDifferentClients(TestContext context) {
     var config = smtpConfiguration();
@@ -94,6 +179,71 @@ public class MailClientProviderTest {
       }));
   }
 
+  @Test
+  public void get_positive_shouldCreateClientPerRelay(TestContext context) {
+    var primaryRelay = new Relay().withHost("localhost").withPort(587);
+    var secondaryRelay = new Relay().withHost("localhost").withPort(588);
+    var config = smtpConfiguration().withRelays(List.of(secondaryRelay));
+
+    provider.get(TENANT_ID, config, primaryRelay)
+      .compose(primaryClient -> provider.get(TENANT_ID, config, secondaryRelay)
+        .compose(secondaryClient -> provider.get(TENANT_ID, config)
+          .map(defaultClient -> {
+            assertSame(primaryClient, defaultClient);
+            return Pair.of(primaryClient, secondaryClient);
+          })))
+      .onComplete(context.asyncAssertSuccess(clientPair ->
+        assertNotSame(clientPair.getLeft(), clientPair.getRight())
+      ));
+  }
+
+  @Test
+  public void get_positive_relaysWithDifferentPasswordsGetDifferentClients(TestContext context) {
+    var relay = new Relay().withHost("localhost").withPort(25).withUsername("relay-user")
+      .withPassword("password-1");
+    var sameEndpointRelay = new Relay().withHost("localhost").withPort(25)
+      .withUsername("relay-user").withPassword("password-2");
+    var config = smtpConfiguration().withRelays(List.of(relay, sameEndpointRelay));
+
+    provider.get(TENANT_ID, config, relay)
+      .compose(client -> provider.get(TENANT_ID, config, sameEndpointRelay)
+        .map(sameEndpointClient -> Pair.of(client, sameEndpointClient)))
+      .onComplete(context.asyncAssertSuccess(clientPair ->
+        assertNotSame(clientPair.getLeft(), clientPair.getRight())));
+  }
+
+  @Test
+  public void getClientKey_positive_dependsOnPasswordAndAuthSettings() {
+    var mailConfig = EmailUtils.getMailConfig(smtpConfiguration());
+
+    assertEquals(MailClientProvider.getClientKey(mailConfig),
+      MailClientProvider.getClientKey(EmailUtils.getMailConfig(smtpConfiguration())));
+    assertNotEquals(MailClientProvider.getClientKey(mailConfig),
+      MailClientProvider.getClientKey(EmailUtils.getMailConfig(smtpConfiguration("password-2"))));
+    assertNotEquals(MailClientProvider.getClientKey(mailConfig),
+      MailClientProvider.getClientKey(EmailUtils.getMailConfig(smtpConfiguration()
+        .withAuthMethods("PLAIN"))));
+  }
+
+  @Test
+  public void warmUp_positive_relayAnswersGreeting(TestContext context) {
+    vertx.createNetServer()
+      .connectHandler(socket -> socket.write("220 localhost ESMTP\r\n"))
+      .listen(0)
+      .compose(server -> provider.warmUp(TENANT_ID, buildSmtpConfiguration(
+        "test-user", "test-password", "localhost", server.actualPort(), "")))
+      .onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void warmUp_negative_clientIsCachedWhenRelayIsUnreachable(TestContext context) {
+    var config = buildSmtpConfiguration("test-user", "test-password", "localhost", 1, "");
+
+    provider.warmUp(TENANT_ID, config)
+      .onComplete(context.asyncAssertFailure(t ->
+        assertEquals(config, provider.getConfiguration(TENANT_ID))));
+  }
+
   @Test
   public void remove_positive_emptyCache(TestContext context) {
     provider.remove(TENANT_ID).onComplete(context.asyncAssertSuccess());
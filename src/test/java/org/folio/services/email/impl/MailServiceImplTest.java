@@ -8,16 +8,36 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
-
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.ConnectException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.ws.rs.core.MediaType;
 
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.mail.MailClient;
+import io.vertx.ext.mail.MailResult;
+import io.vertx.ext.mail.SMTPException;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.folio.rest.jaxrs.model.Configurations;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.model.Identity;
+import org.folio.rest.jaxrs.model.Relay;
+import org.folio.rest.jaxrs.model.Route;
 import org.folio.rest.jaxrs.model.SmtpConfiguration;
+import org.folio.services.email.MailService;
+import org.folio.util.SmtpFailureUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -186,4 +206,275 @@ public class MailServiceImplTest {
         context.assertTrue(error.getMessage() != null || error.getMessage().isEmpty());
       }));
   }
+
+  @Test
+  public void sendEmail_positive_unavailableRelayFailsOverToNextRelay(TestContext context) {
+    var vertx = Vertx.vertx();
+    var primaryRelay = new Relay().withHost("relay-a").withPort(25);
+    var secondaryRelay = new Relay().withHost("relay-b").withPort(25);
+    var smtpConfiguration = buildSmtpConfiguration("user", "pws", "relay-a", 25, AUTH_METHODS)
+      .withRelays(List.of(secondaryRelay));
+    var mailClient = mock(MailClient.class);
+    when(mailClient.sendMail(any())).thenReturn(Future.succeededFuture(new MailResult()));
+    var mailClientProvider = mock(MailClientProvider.class);
+    when(mailClientProvider.get(TENANT_ID, smtpConfiguration, primaryRelay))
+      .thenReturn(Future.failedFuture(new ConnectException("Connection refused")));
+    when(mailClientProvider.get(TENANT_ID, smtpConfiguration, secondaryRelay))
+      .thenReturn(Future.succeededFuture(mailClient));
+    var mailServiceImpl = new MailServiceImpl(mailClientProvider, new PriorityDispatcher(vertx),
+      new SendRateLimiter(vertx), new FairSendScheduler(vertx), new SendConcurrencyLimiter(vertx),
+      new SmtpCircuitBreakerProvider(vertx));
+
+    var emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("recipient@localhost")
+      .withFrom("sender@localhost")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withOutputFormat(MediaType.TEXT_PLAIN);
+
+    mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration), mapFrom(emailEntity))
+      .onComplete(context.asyncAssertSuccess(result -> {
+        verify(mailClientProvider).get(TENANT_ID, smtpConfiguration, primaryRelay);
+        verify(mailClient).sendMail(any());
+        vertx.close();
+      }));
+  }
+
+  @Test
+  public void sendEmail_negative_connectionDroppedAfterDataIsNotFailedOver(TestContext context) {
+    var vertx = Vertx.vertx();
+    var deliveries = new AtomicInteger();
+
+    startRelay(vertx, true, deliveries)
+      .compose(droppingRelay -> startRelay(vertx, false, deliveries)
+        .compose(secondaryRelay -> {
+          var smtpConfiguration = buildSmtpConfiguration(null, null, "localhost",
+            droppingRelay.actualPort(), AUTH_METHODS)
+            .withRelays(List.of(new Relay()
+              .withHost("localhost")
+              .withPort(secondaryRelay.actualPort())));
+          var mailServiceImpl = new MailServiceImpl(new MailClientProvider(vertx),
+            new PriorityDispatcher(vertx), new SendRateLimiter(vertx), new FairSendScheduler(vertx),
+            new SendConcurrencyLimiter(vertx), new SmtpCircuitBreakerProvider(vertx));
+          var emailEntity = new EmailEntity()
+            .withNotificationId("1")
+            .withTo("recipient@localhost")
+            .withFrom("sender@localhost")
+            .withHeader("Reset password")
+            .withBody("Test message")
+            .withOutputFormat(MediaType.TEXT_PLAIN);
+
+          return mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration),
+            mapFrom(emailEntity));
+        }))
+      .onComplete(context.asyncAssertFailure(t -> {
+        // the first relay received the message, it must not be sent through the second one
+        assertEquals(1, deliveries.get());
+        vertx.close();
+      }));
+  }
+
+  @Test
+  public void sendEmail_positive_recipientsAreSentThroughTheirRoutes(TestContext context) {
+    var vertx = Vertx.vertx();
+    var defaultRelay = new Relay().withHost("relay-a").withPort(25);
+    var routeRelay = new Relay().withHost("on-prem").withPort(25);
+    var smtpConfiguration = buildSmtpConfiguration("user", "pws", "relay-a", 25, AUTH_METHODS)
+      .withRoutes(List.of(new Route()
+        .withDomains(List.of("staff.folio.org"))
+        .withHost("on-prem")
+        .withPort(25)));
+    var defaultClient = mock(MailClient.class);
+    when(defaultClient.sendMail(any())).thenReturn(Future.succeededFuture(new MailResult()));
+    var routeClient = mock(MailClient.class);
+    when(routeClient.sendMail(any())).thenReturn(Future.succeededFuture(new MailResult()));
+    var mailClientProvider = mock(MailClientProvider.class);
+    when(mailClientProvider.get(TENANT_ID, smtpConfiguration, defaultRelay))
+      .thenReturn(Future.succeededFuture(defaultClient));
+    when(mailClientProvider.get(TENANT_ID, smtpConfiguration, routeRelay))
+      .thenReturn(Future.succeededFuture(routeClient));
+    var mailServiceImpl = new MailServiceImpl(mailClientProvider, new PriorityDispatcher(vertx),
+      new SendRateLimiter(vertx), new FairSendScheduler(vertx), new SendConcurrencyLimiter(vertx),
+      new SmtpCircuitBreakerProvider(vertx));
+
+    var emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("jane@staff.folio.org, joe@gmail.com")
+      .withFrom("sender@localhost")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withOutputFormat(MediaType.TEXT_PLAIN);
+
+    mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration), mapFrom(emailEntity))
+      .onComplete(context.asyncAssertSuccess(result -> {
+        verify(routeClient).sendMail(argThat(message ->
+          message.getTo().equals(List.of("jane@staff.folio.org"))));
+        verify(defaultClient).sendMail(argThat(message ->
+          message.getTo().equals(List.of("joe@gmail.com"))));
+        vertx.close();
+      }));
+  }
+
+  @Test
+  public void sendEmail_positive_retryIsSentToFailedRoutesOnly(TestContext context) {
+    var vertx = Vertx.vertx();
+    var defaultRelay = new Relay().withHost("relay-a").withPort(25);
+    var routeRelay = new Relay().withHost("on-prem").withPort(25);
+    var smtpConfiguration = buildSmtpConfiguration("user", "pws", "relay-a", 25, AUTH_METHODS)
+      .withRoutes(List.of(new Route()
+        .withDomains(List.of("staff.folio.org"))
+        .withHost("on-prem")
+        .withPort(25)));
+    var defaultClient = mock(MailClient.class);
+    when(defaultClient.sendMail(any())).thenReturn(Future.succeededFuture(new MailResult()));
+    var routeClient = mock(MailClient.class);
+    when(routeClient.sendMail(any()))
+      .thenReturn(Future.failedFuture(new SMTPException("DATA command not accepted", 451,
+        List.of("451 4.3.0 Try again later"), false)))
+      .thenReturn(Future.succeededFuture(new MailResult()));
+    var mailClientProvider = mock(MailClientProvider.class);
+    when(mailClientProvider.get(TENANT_ID, smtpConfiguration, defaultRelay))
+      .thenReturn(Future.succeededFuture(defaultClient));
+    when(mailClientProvider.get(TENANT_ID, smtpConfiguration, routeRelay))
+      .thenReturn(Future.succeededFuture(routeClient));
+    var mailServiceImpl = new MailServiceImpl(mailClientProvider, new PriorityDispatcher(vertx),
+      new SendRateLimiter(vertx), new FairSendScheduler(vertx), new SendConcurrencyLimiter(vertx),
+      new SmtpCircuitBreakerProvider(vertx));
+
+    var emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("jane@staff.folio.org, joe@gmail.com")
+      .withFrom("sender@localhost")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withOutputFormat(MediaType.TEXT_PLAIN);
+
+    mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration), mapFrom(emailEntity))
+      .recover(t -> {
+        var deliveredRecipients = SmtpFailureUtils.getDeliveredRecipients(t);
+        assertEquals(List.of("joe@gmail.com"), deliveredRecipients);
+        return mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration),
+          mapFrom(emailEntity.withDeliveredRecipients(deliveredRecipients)));
+      })
+      .onComplete(context.asyncAssertSuccess(result -> {
+        verify(routeClient, times(2)).sendMail(argThat(message ->
+          message.getTo().equals(List.of("jane@staff.folio.org"))));
+        verify(defaultClient).sendMail(any());
+        vertx.close();
+      }));
+  }
+
+  @Test
+  public void getSendQueue_positive_reportsSendsWaitingInPipeline(TestContext context) {
+    var vertx = Vertx.vertx();
+    var smtpConfiguration = buildSmtpConfiguration("user", "pws", "relay-a", 25, AUTH_METHODS);
+    var mailClient = mock(MailClient.class);
+    when(mailClient.sendMail(any())).thenReturn(Promise.<MailResult>promise().future());
+    var mailClientProvider = mock(MailClientProvider.class);
+    when(mailClientProvider.get(any(), any(), any()))
+      .thenReturn(Future.succeededFuture(mailClient));
+    var mailServiceImpl = new MailServiceImpl(mailClientProvider,
+      new PriorityDispatcher(vertx, 1, 1), new SendRateLimiter(vertx), new FairSendScheduler(vertx),
+      new SendConcurrencyLimiter(vertx, 3, 10, 10000, 100), new SmtpCircuitBreakerProvider(vertx));
+
+    var emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("recipient@localhost")
+      .withFrom("sender@localhost")
+      .withHeader("Overdue notice")
+      .withBody("Test message")
+      .withOutputFormat(MediaType.TEXT_PLAIN)
+      .withPriority(EmailEntity.Priority.BULK);
+    for (int i = 0; i < 3; i++) {
+      mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration), mapFrom(emailEntity));
+    }
+
+    mailServiceImpl.getSendQueue(TENANT_ID)
+      .onComplete(context.asyncAssertSuccess(queue -> {
+        var bulkLane = queue.getJsonArray("priorityLanes").stream()
+          .map(JsonObject.class::cast)
+          .filter(lane -> "BULK".equals(lane.getString("priority")))
+          .findFirst()
+          .orElseThrow();
+        assertEquals(2, bulkLane.getInteger("queueDepth").intValue());
+        assertEquals(1, bulkLane.getInteger("inFlight").intValue());
+        assertEquals(1L, bulkLane.getLong("dispatchedSends").longValue());
+        assertEquals(0, queue.getJsonObject("rateLimiter").getInteger("queueDepth").intValue());
+        assertEquals(0, queue.getInteger("schedulerQueueDepth").intValue());
+        assertEquals(3, queue.getInteger("concurrencyLimit").intValue());
+        vertx.close();
+      }));
+  }
+
+  @Test
+  public void sendEmail_negative_sendQueuedPastTimeoutNeverReachesRelay(TestContext context) {
+    var vertx = Vertx.vertx();
+    var smtpConfiguration = buildSmtpConfiguration("user", "pws", "relay-a", 25, AUTH_METHODS);
+    var mailClient = mock(MailClient.class);
+    when(mailClient.sendMail(any())).thenReturn(Promise.<MailResult>promise().future());
+    var mailClientProvider = mock(MailClientProvider.class);
+    when(mailClientProvider.get(any(), any(), any()))
+      .thenReturn(Future.succeededFuture(mailClient));
+    System.setProperty(MailService.SEND_TIMEOUT_PROPERTY_NAME, "100");
+    MailServiceImpl mailServiceImpl;
+    try {
+      mailServiceImpl = new MailServiceImpl(mailClientProvider, new PriorityDispatcher(vertx),
+        new SendRateLimiter(vertx), new FairSendScheduler(vertx),
+        new SendConcurrencyLimiter(vertx, 1, 1, 10000, 100), new SmtpCircuitBreakerProvider(vertx));
+    } finally {
+      System.clearProperty(MailService.SEND_TIMEOUT_PROPERTY_NAME);
+    }
+
+    var emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("recipient@localhost")
+      .withFrom("sender@localhost")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withOutputFormat(MediaType.TEXT_PLAIN);
+    mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration), mapFrom(emailEntity));
+
+    mailServiceImpl.sendEmail(TENANT_ID, mapFrom(smtpConfiguration), mapFrom(emailEntity))
+      .onComplete(context.asyncAssertFailure(t -> {
+        verify(mailClient).sendMail(any());
+        vertx.close();
+      }));
+  }
+
+  /**
+   * Starts a minimal SMTP relay counting the messages it receives. A dropping relay closes the
+   * connection once the message is received instead of replying to it.
+   */
+  private static Future<NetServer> startRelay(Vertx vertx, boolean dropAfterData,
+    AtomicInteger deliveries) {
+
+    return vertx.createNetServer()
+      .connectHandler(socket -> {
+        var inData = new AtomicBoolean();
+        socket.handler(RecordParser.newDelimited("\r\n", line -> {
+          var command = line.toString();
+          if (inData.get()) {
+            if (command.equals(".")) {
+              inData.set(false);
+              deliveries.incrementAndGet();
+              if (dropAfterData) {
+                socket.close();
+              } else {
+                socket.write("250 2.0.0 OK\r\n");
+              }
+            }
+          } else if (command.startsWith("DATA")) {
+            inData.set(true);
+            socket.write("354 End data with <CR><LF>.<CR><LF>\r\n");
+          } else if (command.startsWith("QUIT")) {
+            socket.write("221 Bye\r\n").onComplete(v -> socket.close());
+          } else {
+            socket.write("250 OK\r\n");
+          }
+        }));
+        socket.write("220 localhost ESMTP\r\n");
+      })
+      .listen(0, "localhost");
+  }
 }
@@ -0,0 +1,177 @@
+package org.folio.services.email.impl;
+
+import static org.folio.rest.jaxrs.model.EmailEntity.Priority.BULK;
+import static org.folio.rest.jaxrs.model.EmailEntity.Priority.HIGH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class PriorityDispatcherTest {
+
+  private static final String TENANT_ID = "test_tenant";
+
+  private final SendDeadline deadline = SendDeadline.after(30000);
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void execute_positive_bulkSendsDoNotExceedLaneBudget() {
+    var dispatcher = new PriorityDispatcher(vertx, 10, 2);
+    List<Promise<String>> sends = new ArrayList<>();
+
+    for (int i = 0; i < 5; i++) {
+      Promise<String> send = Promise.promise();
+      sends.add(send);
+      dispatcher.execute(TENANT_ID, BULK, deadline, send::future);
+    }
+
+    var stats = dispatcher.getStats(TENANT_ID).get(BULK);
+    assertEquals(2, stats.inFlight());
+    assertEquals(3, stats.queueDepth());
+  }
+
+  @Test
+  public void execute_positive_highPrioritySendIsNotBlockedByBulkSends() {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+    dispatcher.execute(TENANT_ID, BULK, deadline, () -> Promise.<String>promise().future());
+    dispatcher.execute(TENANT_ID, BULK, deadline, () -> Future.succeededFuture("bulk"));
+
+    var high = dispatcher.execute(TENANT_ID, HIGH, deadline, () -> Future.succeededFuture("high"));
+
+    assertTrue(high.succeeded());
+    assertEquals(1, dispatcher.getStats(TENANT_ID).get(BULK).queueDepth());
+  }
+
+  @Test
+  public void execute_positive_waitingHighPrioritySendPreemptsBulkSends() {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+    Promise<String> inFlightHigh = Promise.promise();
+    List<String> started = new ArrayList<>();
+
+    dispatcher.execute(TENANT_ID, HIGH, deadline, inFlightHigh::future);
+    dispatcher.execute(TENANT_ID, HIGH, deadline, () -> {
+      started.add("high");
+      return Promise.<String>promise().future();
+    });
+    var bulk = dispatcher.execute(TENANT_ID, BULK, deadline, () -> {
+      started.add("bulk");
+      return Future.succeededFuture("bulk");
+    });
+
+    assertFalse(bulk.isComplete());
+    inFlightHigh.complete("high");
+    assertEquals(List.of("high", "bulk"), started);
+    assertTrue(bulk.succeeded());
+  }
+
+  @Test
+  public void execute_positive_sendWithoutPriorityUsesBulkLane() {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+
+    dispatcher.execute(TENANT_ID, null, deadline, () -> Promise.<String>promise().future());
+    var high = dispatcher.execute(TENANT_ID, HIGH, deadline, () -> Future.succeededFuture("high"));
+
+    assertTrue(high.succeeded());
+    assertEquals(1, dispatcher.getStats(TENANT_ID).get(BULK).inFlight());
+    assertEquals(BULK, new EmailEntity().getPriority());
+  }
+
+  @Test
+  public void execute_negative_sendWaitingPastDeadlineIsNotStarted(TestContext context) {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+    Promise<String> inFlight = Promise.promise();
+    List<String> started = new ArrayList<>();
+
+    dispatcher.execute(TENANT_ID, BULK, deadline, inFlight::future);
+    dispatcher.execute(TENANT_ID, BULK, SendDeadline.after(10), () -> {
+        started.add("bulk");
+        return Future.succeededFuture("bulk");
+      })
+      .onComplete(context.asyncAssertFailure(t -> {
+        assertEquals(0, dispatcher.getStats(TENANT_ID).get(BULK).queueDepth());
+        inFlight.complete("bulk");
+        assertTrue(started.isEmpty());
+      }));
+  }
+
+  @Test
+  public void execute_positive_bulkLaneIsNotLimitedByDefault() {
+    var dispatcher = new PriorityDispatcher(vertx, 10,
+      PriorityDispatcher.BULK_PRIORITY_CONCURRENCY_DEFAULT);
+
+    for (int i = 0; i < 20; i++) {
+      dispatcher.execute(TENANT_ID, null, deadline, () -> Promise.<String>promise().future());
+    }
+
+    var stats = dispatcher.getStats(TENANT_ID).get(BULK);
+    assertEquals(20, stats.inFlight());
+    assertEquals(0, stats.queueDepth());
+  }
+
+  @Test
+  public void execute_negative_throwingSendReleasesItsSlot() {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+
+    var failed = dispatcher.execute(TENANT_ID, BULK, deadline, () -> {
+      throw new IllegalStateException("no mail client");
+    });
+    var next = dispatcher.execute(TENANT_ID, BULK, deadline, () -> Future.succeededFuture("bulk"));
+
+    assertTrue(failed.failed());
+    assertEquals("no mail client", failed.cause().getMessage());
+    assertTrue(next.succeeded());
+    assertEquals(0, dispatcher.getStats(TENANT_ID).get(BULK).inFlight());
+  }
+
+  @Test
+  public void execute_positive_idleLanesAreRemoved() {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+    Promise<String> inFlight = Promise.promise();
+
+    dispatcher.execute(TENANT_ID, BULK, deadline, inFlight::future);
+    var waiting = dispatcher.execute(TENANT_ID, BULK, deadline, () -> Future.succeededFuture("bulk"));
+    dispatcher.execute("other_tenant", HIGH, deadline, () -> Future.succeededFuture("high"));
+
+    assertEquals(1, dispatcher.getTenantCount());
+    inFlight.complete("bulk");
+    assertTrue(waiting.succeeded());
+    assertEquals(0, dispatcher.getTenantCount());
+  }
+
+  @Test
+  public void execute_negative_lanesAreRemovedAfterLastWaiterExpires(TestContext context) {
+    var dispatcher = new PriorityDispatcher(vertx, 1, 1);
+    Promise<String> inFlight = Promise.promise();
+
+    dispatcher.execute(TENANT_ID, BULK, deadline, inFlight::future);
+    dispatcher.execute(TENANT_ID, BULK, SendDeadline.after(10), () -> Future.succeededFuture("bulk"))
+      .onComplete(context.asyncAssertFailure(t -> {
+        assertEquals(1, dispatcher.getTenantCount());
+        inFlight.complete("bulk");
+        assertEquals(0, dispatcher.getTenantCount());
+      }));
+  }
+}
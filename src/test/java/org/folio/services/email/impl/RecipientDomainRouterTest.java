@@ -0,0 +1,135 @@
+package org.folio.services.email.impl;
+
+import static org.folio.util.StubUtils.buildSmtpConfiguration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.vertx.ext.mail.MailMessage;
+import java.util.List;
+import java.util.Set;
+import org.folio.rest.jaxrs.model.Route;
+import org.folio.rest.jaxrs.model.SmtpConfiguration;
+import org.junit.Test;
+
+public class RecipientDomainRouterTest {
+
+  @Test
+  public void route_positive_messageIsNotSplitWithoutRoutes() {
+    var message = new MailMessage().setTo(List.of("jane@staff.folio.org", "joe@gmail.com"));
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration());
+
+    assertEquals(1, routed.size());
+    assertNull(routed.getFirst().relay());
+    assertSame(message, routed.getFirst().message());
+  }
+
+  @Test
+  public void route_positive_messageIsNotSplitWhenAllRecipientsShareRoute() {
+    var message = new MailMessage().setTo("jane@staff.folio.org, john@staff.folio.org");
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration()
+      .withRoutes(List.of(route("on-prem", "staff.folio.org"))));
+
+    assertEquals(1, routed.size());
+    assertEquals("on-prem", routed.getFirst().relay().getHost());
+    assertSame(message, routed.getFirst().message());
+  }
+
+  @Test
+  public void route_positive_recipientsAreSplitPerRoute() {
+    var message = new MailMessage()
+      .setTo("jane@staff.folio.org, joe@gmail.com")
+      .setBcc(List.of("\"Circulation\" <circulation@Staff.Folio.org>"));
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration()
+      .withRoutes(List.of(route("on-prem", "staff.folio.org"))));
+
+    assertEquals(2, routed.size());
+    assertEquals("on-prem", routed.get(0).relay().getHost());
+    assertEquals(List.of("jane@staff.folio.org"), routed.get(0).message().getTo());
+    assertEquals(List.of("\"Circulation\" <circulation@Staff.Folio.org>"),
+      routed.get(0).message().getBcc());
+    assertNull(routed.get(1).relay());
+    assertEquals(List.of("joe@gmail.com"), routed.get(1).message().getTo());
+    assertEquals(List.of(), routed.get(1).message().getBcc());
+  }
+
+  @Test
+  public void route_positive_mostSpecificDomainWins() {
+    var message = new MailMessage()
+      .setTo(List.of("jane@it.staff.folio.org", "joe@lib.folio.org"));
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration()
+      .withRoutes(List.of(route("cloud", "folio.org"), route("on-prem", "staff.folio.org"))));
+
+    assertEquals(2, routed.size());
+    assertEquals("on-prem", routed.get(0).relay().getHost());
+    assertEquals(List.of("jane@it.staff.folio.org"), routed.get(0).message().getTo());
+    assertEquals("cloud", routed.get(1).relay().getHost());
+    assertEquals(List.of("joe@lib.folio.org"), routed.get(1).message().getTo());
+  }
+
+  @Test
+  public void route_positive_routeCredentialsArePassedToRelay() {
+    var message = new MailMessage().setTo("jane@staff.folio.org");
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration()
+      .withRoutes(List.of(route("on-prem", "staff.folio.org")
+        .withUsername("relay-user")
+        .withPassword("relay-password"))));
+
+    var relay = routed.getFirst().relay();
+    assertEquals(25, relay.getPort().intValue());
+    assertEquals("relay-user", relay.getUsername());
+    assertEquals("relay-password", relay.getPassword());
+  }
+
+  @Test
+  public void route_positive_deliveredRecipientsAreLeftOut() {
+    var message = new MailMessage()
+      .setTo("jane@staff.folio.org, joe@gmail.com")
+      .setBcc("circulation@staff.folio.org");
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration()
+        .withRoutes(List.of(route("on-prem", "staff.folio.org"))),
+      Set.of("jane@staff.folio.org", "circulation@staff.folio.org"));
+
+    assertEquals(1, routed.size());
+    assertNull(routed.getFirst().relay());
+    assertEquals(List.of("joe@gmail.com"), routed.getFirst().message().getTo());
+    assertEquals(List.of(), routed.getFirst().message().getBcc());
+  }
+
+  @Test
+  public void route_positive_nothingIsRoutedWhenAllRecipientsAreDelivered() {
+    var message = new MailMessage().setTo("jane@staff.folio.org, joe@gmail.com");
+
+    var routed = RecipientDomainRouter.route(message, smtpConfiguration(),
+      Set.of("jane@staff.folio.org", "joe@gmail.com"));
+
+    assertEquals(List.of(), routed);
+  }
+
+  @Test
+  public void listRecipients_positive_addressesAreSplit() {
+    var message = new MailMessage()
+      .setTo("jane@staff.folio.org, joe@gmail.com")
+      .setBcc(List.of("circulation@staff.folio.org"));
+
+    assertEquals(List.of("jane@staff.folio.org", "joe@gmail.com", "circulation@staff.folio.org"),
+      RecipientDomainRouter.listRecipients(message));
+  }
+
+  private static SmtpConfiguration smtpConfiguration() {
+    return buildSmtpConfiguration("user", "password", "default-relay", 587, "");
+  }
+
+  private static Route route(String host, String... domains) {
+    return new Route()
+      .withDomains(List.of(domains))
+      .withHost(host)
+      .withPort(25);
+  }
+}
@@ -0,0 +1,130 @@
+package org.folio.services.email.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.mail.SMTPException;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class SendConcurrencyLimiterTest {
+
+  private static final String TENANT_ID = "test_tenant";
+
+  private final SendDeadline deadline = SendDeadline.after(30000);
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void execute_positive_limitGrowsWhileSendsSucceed() {
+    var limiter = new SendConcurrencyLimiter(vertx, 2, 4, 10000, 100);
+
+    for (int i = 0; i < 20; i++) {
+      limiter.execute(TENANT_ID, deadline, () -> Future.succeededFuture("sent"));
+    }
+
+    assertEquals(4, limiter.getLimit(TENANT_ID));
+  }
+
+  @Test
+  public void execute_positive_limitIsHalvedOnThrottlingReply() {
+    var limiter = new SendConcurrencyLimiter(vertx, 8, 10, 10000, 100);
+
+    limiter.execute(TENANT_ID, deadline, () -> Future.failedFuture(
+      new SMTPException("too many connections", 421, List.of("421 4.7.0 Try again later"), false)));
+
+    assertEquals(4, limiter.getLimit(TENANT_ID));
+  }
+
+  @Test
+  public void execute_positive_limitIsNotChangedByPermanentFailure() {
+    var limiter = new SendConcurrencyLimiter(vertx, 4, 10, 10000, 100);
+
+    limiter.execute(TENANT_ID, deadline, () -> Future.failedFuture(
+      new SMTPException("recipient address not accepted", 550, List.of("550 5.1.1"), false)));
+
+    assertEquals(4, limiter.getLimit(TENANT_ID));
+  }
+
+  @Test
+  public void execute_positive_throttledSendsStartedBeforeCutDecreaseLimitOnce() {
+    var limiter = new SendConcurrencyLimiter(vertx, 8, 10, 10000, 100);
+    Promise<String> first = Promise.promise();
+    Promise<String> second = Promise.promise();
+    var throttled = new SMTPException("rate exceeded", 451, List.of("451 4.7.1"), false);
+
+    limiter.execute(TENANT_ID, deadline, first::future);
+    limiter.execute(TENANT_ID, deadline, second::future);
+    first.fail(throttled);
+    second.fail(throttled);
+
+    assertEquals(4, limiter.getLimit(TENANT_ID));
+  }
+
+  @Test
+  public void execute_positive_sendsAboveLimitWaitForInFlightSend() {
+    var limiter = new SendConcurrencyLimiter(vertx, 1, 1, 10000, 100);
+    Promise<String> inFlight = Promise.promise();
+    var secondStarted = new AtomicBoolean();
+
+    limiter.execute(TENANT_ID, deadline, inFlight::future);
+    var second = limiter.execute(TENANT_ID, deadline, () -> {
+      secondStarted.set(true);
+      return Future.succeededFuture("sent");
+    });
+
+    assertFalse(secondStarted.get());
+    inFlight.complete("sent");
+    assertTrue(secondStarted.get());
+    assertTrue(second.succeeded());
+  }
+
+  @Test
+  public void execute_negative_sendsBeyondQueueSizeAreRejected() {
+    var limiter = new SendConcurrencyLimiter(vertx, 1, 1, 10000, 1);
+
+    limiter.execute(TENANT_ID, deadline, () -> Promise.<String>promise().future());
+    var waiting = limiter.execute(TENANT_ID, deadline, () -> Future.succeededFuture("sent"));
+    var rejected = limiter.execute(TENANT_ID, deadline, () -> Future.succeededFuture("sent"));
+
+    assertFalse(waiting.isComplete());
+    assertTrue(rejected.failed());
+  }
+
+  @Test
+  public void execute_negative_sendWaitingPastDeadlineIsNotStarted(TestContext context) {
+    var limiter = new SendConcurrencyLimiter(vertx, 1, 1, 10000, 100);
+    Promise<String> inFlight = Promise.promise();
+    var secondStarted = new AtomicBoolean();
+
+    limiter.execute(TENANT_ID, deadline, inFlight::future);
+    limiter.execute(TENANT_ID, SendDeadline.after(10), () -> {
+        secondStarted.set(true);
+        return Future.succeededFuture("sent");
+      })
+      .onComplete(context.asyncAssertFailure(t -> {
+        inFlight.complete("sent");
+        assertFalse(secondStarted.get());
+      }));
+  }
+}
@@ -0,0 +1,84 @@
+package org.folio.services.email.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.stream.IntStream;
+import org.folio.rest.jaxrs.model.RateLimit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class SendRateLimiterTest {
+
+  private static final String TENANT_ID = "test_tenant";
+
+  private final SendDeadline deadline = SendDeadline.after(30000);
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void acquire_positive_noRateLimit(TestContext context) {
+    var limiter = new SendRateLimiter(vertx, 1000);
+
+    Future.all(IntStream.range(0, 100)
+        .mapToObj(i -> limiter.acquire(TENANT_ID, null, deadline))
+        .toList())
+      .onComplete(context.asyncAssertSuccess(
+        r -> assertEquals(0, limiter.getStats(TENANT_ID).waitedSends())));
+  }
+
+  @Test
+  public void acquire_positive_sendsAboveBurstWaitForTokens(TestContext context) {
+    var limiter = new SendRateLimiter(vertx, 1000);
+    var rateLimit = new RateLimit().withMessagesPerSecond(20.0).withBurst(2);
+    long start = System.currentTimeMillis();
+
+    var sends = IntStream.range(0, 6)
+      .mapToObj(i -> limiter.acquire(TENANT_ID, rateLimit, deadline))
+      .toList();
+    assertEquals(4, limiter.getStats(TENANT_ID).queueDepth());
+
+    Future.all(sends).onComplete(context.asyncAssertSuccess(r -> {
+      var stats = limiter.getStats(TENANT_ID);
+      assertEquals(0, stats.queueDepth());
+      assertEquals(4, stats.waitedSends());
+      assertTrue(System.currentTimeMillis() - start >= 150);
+    }));
+  }
+
+  @Test
+  public void acquire_negative_expectedWaitExceedsMaxWait(TestContext context) {
+    var limiter = new SendRateLimiter(vertx, 1000);
+    var rateLimit = new RateLimit().withMessagesPerSecond(1.0);
+
+    limiter.acquire(TENANT_ID, rateLimit, deadline).onComplete(context.asyncAssertSuccess());
+    limiter.acquire(TENANT_ID, rateLimit, deadline).onComplete(context.asyncAssertSuccess());
+    limiter.acquire(TENANT_ID, rateLimit, deadline).onComplete(context.asyncAssertFailure());
+  }
+
+  @Test
+  public void acquire_negative_expectedWaitExceedsDeadline(TestContext context) {
+    var limiter = new SendRateLimiter(vertx, 10000);
+    var rateLimit = new RateLimit().withMessagesPerSecond(1.0);
+
+    limiter.acquire(TENANT_ID, rateLimit, deadline).onComplete(context.asyncAssertSuccess());
+    limiter.acquire(TENANT_ID, rateLimit, SendDeadline.after(100))
+      .onComplete(context.asyncAssertFailure());
+  }
+}
@@ -0,0 +1,130 @@
+package org.folio.services.email.impl;
+
+import static org.folio.services.email.MailService.RELAY_UNAVAILABLE_FAILURE_CODE;
+import static org.folio.util.StubUtils.buildSmtpConfiguration;
+import static org.junit.Assert.assertEquals;
+
+import io.vertx.circuitbreaker.CircuitBreakerState;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.ext.mail.SMTPException;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.folio.rest.jaxrs.model.SmtpConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class SmtpCircuitBreakerProviderTest {
+
+  private static final int MAX_FAILURES = 2;
+  private static final long RESET_TIMEOUT = 200;
+
+  private Vertx vertx;
+  private SmtpCircuitBreakerProvider provider;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    provider = new SmtpCircuitBreakerProvider(vertx, MAX_FAILURES, RESET_TIMEOUT);
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void execute_negative_failsFastWhenCircuitIsOpen(TestContext context) {
+    var config = smtpConfiguration("relay.down");
+    var sendCount = new AtomicInteger();
+
+    failingSend(config, sendCount)
+      .recover(t -> failingSend(config, sendCount))
+      .recover(t -> failingSend(config, sendCount))
+      .onComplete(context.asyncAssertFailure(t -> {
+        assertEquals(MAX_FAILURES, sendCount.get());
+        assertEquals(CircuitBreakerState.OPEN, provider.getState(config));
+        assertEquals(RELAY_UNAVAILABLE_FAILURE_CODE, ((ReplyException) t).failureCode());
+      }));
+  }
+
+  @Test
+  public void execute_positive_halfOpenProbeClosesCircuit(TestContext context) {
+    var config = smtpConfiguration("relay.recovering");
+    var sendCount = new AtomicInteger();
+
+    failingSend(config, sendCount)
+      .recover(t -> failingSend(config, sendCount))
+      .recover(t -> Future.future(promise -> vertx.setTimer(RESET_TIMEOUT * 2,
+        id -> promise.complete())))
+      .compose(v -> provider.execute(config, () -> Future.succeededFuture("sent")))
+      .onComplete(context.asyncAssertSuccess(result -> {
+        assertEquals("sent", result);
+        assertEquals(CircuitBreakerState.CLOSED, provider.getState(config));
+      }));
+  }
+
+  @Test
+  public void execute_positive_circuitIsPerEndpoint(TestContext context) {
+    var failingConfig = smtpConfiguration("relay.down");
+    var healthyConfig = smtpConfiguration("relay.up");
+    var sendCount = new AtomicInteger();
+
+    failingSend(failingConfig, sendCount)
+      .recover(t -> failingSend(failingConfig, sendCount))
+      .recover(t -> provider.execute(healthyConfig, () -> Future.succeededFuture("sent")))
+      .onComplete(context.asyncAssertSuccess(result -> {
+        assertEquals(CircuitBreakerState.OPEN, provider.getState(failingConfig));
+        assertEquals(CircuitBreakerState.CLOSED, provider.getState(healthyConfig));
+      }));
+  }
+
+  @Test
+  public void execute_positive_messageRejectionsDoNotOpenCircuit(TestContext context) {
+    var config = smtpConfiguration("relay.rejecting");
+    Supplier<Future<String>> rejectedSend = () -> Future.failedFuture(
+      new SMTPException("recipient address not accepted", 550, List.of("550 5.1.1"), false));
+
+    provider.execute(config, rejectedSend)
+      .recover(t -> provider.execute(config, rejectedSend))
+      .recover(t -> provider.execute(config, rejectedSend))
+      .onComplete(context.asyncAssertFailure(t -> {
+        assertEquals(550, ((SMTPException) t).getReplyCode());
+        assertEquals(CircuitBreakerState.CLOSED, provider.getState(config));
+      }));
+  }
+
+  @Test
+  public void execute_positive_localFailuresDoNotOpenCircuit(TestContext context) {
+    var config = smtpConfiguration("relay.shared");
+    Supplier<Future<String>> invalidSend = () -> Future.failedFuture(
+      new IllegalArgumentException("invalid email address"));
+
+    provider.execute(config, invalidSend)
+      .recover(t -> provider.execute(config, invalidSend))
+      .recover(t -> provider.execute(config, invalidSend))
+      .onComplete(context.asyncAssertFailure(t -> {
+        assertEquals(IllegalArgumentException.class, t.getClass());
+        assertEquals(CircuitBreakerState.CLOSED, provider.getState(config));
+      }));
+  }
+
+  private Future<String> failingSend(SmtpConfiguration config, AtomicInteger sendCount) {
+    return provider.execute(config, () -> {
+      sendCount.incrementAndGet();
+      return Future.failedFuture(new ConnectException("Connection refused"));
+    });
+  }
+
+  private static SmtpConfiguration smtpConfiguration(String host) {
+    return buildSmtpConfiguration("user", "password", host, 2500, "LOGIN");
+  }
+}
@@ -0,0 +1,116 @@
+package org.folio.services.email.impl;
+
+import static org.folio.util.StubUtils.buildSmtpConfiguration;
+import static org.junit.Assert.assertEquals;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.net.ConnectException;
+import java.util.List;
+import org.folio.rest.jaxrs.model.Relay;
+import org.folio.rest.jaxrs.model.SmtpConfiguration;
+import org.folio.rest.jaxrs.model.SmtpConfiguration.RelayStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class SmtpRelaySelectorTest {
+
+  private static final String TENANT_ID = "test_tenant";
+  private static final int MAX_FAILURES = 1;
+
+  private Vertx vertx;
+  private SmtpCircuitBreakerProvider circuitBreakerProvider;
+  private SmtpRelaySelector selector;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    circuitBreakerProvider = new SmtpCircuitBreakerProvider(vertx, MAX_FAILURES, 60_000);
+    selector = new SmtpRelaySelector(circuitBreakerProvider);
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void select_positive_singleRelayWithoutRelays() {
+    var config = buildSmtpConfiguration("user", "password", "relay-a", 25, "");
+
+    assertEquals(List.of(relay("relay-a")), selector.select(TENANT_ID, config));
+  }
+
+  @Test
+  public void select_positive_priorityKeepsConfiguredOrder() {
+    var config = smtpConfiguration(null);
+
+    assertEquals(relays("relay-a", "relay-b", "relay-c"), selector.select(TENANT_ID, config));
+    assertEquals(relays("relay-a", "relay-b", "relay-c"), selector.select(TENANT_ID, config));
+  }
+
+  @Test
+  public void select_positive_roundRobinRotatesFirstRelay() {
+    var config = smtpConfiguration(RelayStrategy.ROUND_ROBIN);
+
+    assertEquals(relays("relay-a", "relay-b", "relay-c"), selector.select(TENANT_ID, config));
+    assertEquals(relays("relay-b", "relay-c", "relay-a"), selector.select(TENANT_ID, config));
+    assertEquals(relays("relay-c", "relay-a", "relay-b"), selector.select(TENANT_ID, config));
+    assertEquals(relays("relay-a", "relay-b", "relay-c"), selector.select(TENANT_ID, config));
+  }
+
+  @Test
+  public void select_positive_leastLatencyPrefersFastestRelay() {
+    var config = smtpConfiguration(RelayStrategy.LEAST_LATENCY);
+    selector.recordLatency(relay("relay-a"), 300);
+    selector.recordLatency(relay("relay-b"), 100);
+
+    assertEquals(relays("relay-c", "relay-b", "relay-a"), selector.select(TENANT_ID, config));
+
+    selector.recordLatency(relay("relay-c"), 200);
+
+    assertEquals(relays("relay-b", "relay-c", "relay-a"), selector.select(TENANT_ID, config));
+  }
+
+  @Test
+  public void recordLatency_positive_averageIsSmoothed() {
+    var config = smtpConfiguration(RelayStrategy.LEAST_LATENCY);
+    selector.recordLatency(relay("relay-a"), 100);
+    selector.recordLatency(relay("relay-b"), 150);
+    selector.recordLatency(relay("relay-c"), 200);
+
+    // a single slow send moves the average of relay-a only by the smoothing factor
+    selector.recordLatency(relay("relay-a"), 300);
+
+    assertEquals(relays("relay-a", "relay-b", "relay-c"), selector.select(TENANT_ID, config));
+  }
+
+  @Test
+  public void select_positive_relayWithOpenCircuitIsTriedLast(TestContext context) {
+    var config = smtpConfiguration(null);
+
+    circuitBreakerProvider.execute("relay-a:25",
+        () -> Future.failedFuture(new ConnectException("Connection refused")))
+      .onComplete(context.asyncAssertFailure(t ->
+        assertEquals(relays("relay-b", "relay-c", "relay-a"), selector.select(TENANT_ID, config))));
+  }
+
+  private static SmtpConfiguration smtpConfiguration(RelayStrategy strategy) {
+    return buildSmtpConfiguration("user", "password", "relay-a", 25, "")
+      .withRelays(relays("relay-b", "relay-c"))
+      .withRelayStrategy(strategy);
+  }
+
+  private static List<Relay> relays(String... hosts) {
+    return List.of(hosts).stream().map(SmtpRelaySelectorTest::relay).toList();
+  }
+
+  private static Relay relay(String host) {
+    return new Relay().withHost(host).withPort(25);
+  }
+}
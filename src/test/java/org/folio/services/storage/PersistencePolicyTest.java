@@ -0,0 +1,100 @@
+package org.folio.services.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.folio.rest.jaxrs.model.Attachment;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.jaxrs.model.EmailEntity.Status;
+import org.junit.Test;
+
+public class PersistencePolicyTest {
+
+  @Test
+  public void apply_positive_fullPolicyKeepsContent() {
+    var email = PersistencePolicy.FULL.apply(buildEmail(Status.DELIVERED, false));
+
+    assertEquals("Test message", email.getBody());
+    assertEquals(1, email.getAttachments().size());
+    assertNull(email.getCompressedContent());
+  }
+
+  @Test
+  public void apply_positive_metadataOnlyPolicyStripsContentOfDeliveredEmail() {
+    var email = PersistencePolicy.METADATA_ONLY.apply(buildEmail(Status.DELIVERED, false));
+
+    assertNull(email.getBody());
+    assertTrue(email.getAttachments().isEmpty());
+    assertNull(email.getCompressedContent());
+    assertEquals("Reset password", email.getHeader());
+  }
+
+  @Test
+  public void apply_positive_metadataOnlyPolicyStripsContentOfFinallyFailedEmail() {
+    var email = PersistencePolicy.METADATA_ONLY.apply(buildEmail(Status.FAILURE, false));
+
+    assertNull(email.getBody());
+    assertTrue(email.getAttachments().isEmpty());
+  }
+
+  @Test
+  public void apply_positive_contentOfRetryableEmailIsKept() {
+    var failed = PersistencePolicy.METADATA_ONLY.apply(buildEmail(Status.FAILURE, true));
+    var processing = PersistencePolicy.COMPRESSED.apply(buildEmail(Status.PROCESSING, false));
+
+    assertEquals("Test message", failed.getBody());
+    assertEquals("Test message", processing.getBody());
+    assertNull(processing.getCompressedContent());
+  }
+
+  @Test
+  public void apply_positive_compressedPolicyReplacesContentOfDeliveredEmail() throws IOException {
+    var email = PersistencePolicy.COMPRESSED.apply(buildEmail(Status.DELIVERED, false));
+
+    assertNull(email.getBody());
+    assertTrue(email.getAttachments().isEmpty());
+    var content = decompress(email.getCompressedContent());
+    assertEquals("Test message", content.getString("body"));
+    assertEquals("report.txt", content.getJsonArray("attachments").getJsonObject(0)
+      .getString("name"));
+  }
+
+  @Test
+  public void apply_positive_compressedContentIsNotCompressedAgain() {
+    var email = PersistencePolicy.COMPRESSED.apply(buildEmail(Status.DELIVERED, false));
+    String compressedContent = email.getCompressedContent();
+
+    PersistencePolicy.COMPRESSED.apply(email);
+
+    assertEquals(compressedContent, email.getCompressedContent());
+  }
+
+  private static EmailEntity buildEmail(Status status, boolean shouldRetry) {
+    return new EmailEntity()
+      .withNotificationId("1")
+      .withTo("user@user.com")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withAttachments(List.of(new Attachment()
+        .withName("report.txt")
+        .withContentType("text/plain")
+        .withData("dGVzdA==")))
+      .withStatus(status)
+      .withShouldRetry(shouldRetry);
+  }
+
+  private static JsonObject decompress(String compressedContent) throws IOException {
+    byte[] gzip = Base64.getDecoder().decode(compressedContent);
+    try (var input = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+      return new JsonObject(new String(input.readAllBytes(), UTF_8));
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.folio.services.storage.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.folio.rest.persist.PostgresClient.convertToPsqlStandard;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import org.folio.rest.impl.base.AbstractAPITest;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class EmailArchivePurgeTest extends AbstractAPITest {
+
+  private static final String SELECT_IDS_QUERY = "SELECT id::text FROM %s.%s";
+
+  @Rule
+  public TemporaryFolder archiveFolder = new TemporaryFolder();
+
+  @Test
+  public void purgeShouldArchiveExactlyTheDeletedEmails(TestContext context) {
+    // more expired emails than fit into one batch of the purge
+    List<EmailEntity> expired = IntStream.range(0, EmailArchive.BATCH_SIZE + 1)
+      .mapToObj(i -> buildEmail("2024-01-31T10:00:00Z", EmailEntity.Status.DELIVERED))
+      .toList();
+    List<EmailEntity> kept = List.of(
+      buildEmail("2024-02-02T10:00:00Z", EmailEntity.Status.DELIVERED),
+      buildEmail("2024-01-31T10:00:00Z", EmailEntity.Status.FAILURE));
+    List<EmailEntity> emails = new ArrayList<>(expired);
+    emails.addAll(kept);
+    var storageService = new StorageServiceImpl(vertx,
+      new EmailArchive(vertx, archiveFolder.getRoot().getPath()));
+
+    postgresClient.saveBatch(EMAIL_STATISTICS_TABLE_NAME, emails)
+      .compose(v -> storageService.deleteEmailEntriesByExpirationDateAndStatus(OKAPI_TENANT,
+        "2024-02-01", EmailEntity.Status.DELIVERED.value()))
+      .compose(v -> postgresClient.execute(String.format(SELECT_IDS_QUERY,
+        convertToPsqlStandard(OKAPI_TENANT), EMAIL_STATISTICS_TABLE_NAME)))
+      .onComplete(context.asyncAssertSuccess(rows -> {
+        Set<String> remainingIds = StreamSupport.stream(rows.spliterator(), false)
+          .map(row -> row.getString(0))
+          .collect(Collectors.toSet());
+        context.assertEquals(toIds(kept), remainingIds);
+
+        List<Path> files = listArchiveFiles();
+        context.assertTrue(files.stream().allMatch(file -> file.getFileName().toString()
+          .matches("2024-01-31\\.[0-9a-f-]+\\.ndjson\\.gz")), files.toString());
+        List<String> archivedIds = files.stream()
+          .flatMap(EmailArchivePurgeTest::readIds)
+          .toList();
+        context.assertEquals(expired.size(), archivedIds.size());
+        context.assertEquals(toIds(expired), new HashSet<>(archivedIds));
+      }));
+  }
+
+  private List<Path> listArchiveFiles() {
+    try (Stream<Path> files = Files.list(archiveFolder.getRoot().toPath().resolve(OKAPI_TENANT))) {
+      return files.toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Stream<String> readIds(Path file) {
+    try (var reader = new BufferedReader(new InputStreamReader(
+      new GZIPInputStream(Files.newInputStream(file)), UTF_8))) {
+
+      return reader.lines()
+        .map(line -> new JsonObject(line).getString("id"))
+        .toList()
+        .stream();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Set<String> toIds(List<EmailEntity> emails) {
+    return emails.stream().map(EmailEntity::getId).collect(Collectors.toSet());
+  }
+
+  private static EmailEntity buildEmail(String date, EmailEntity.Status status) {
+    return new EmailEntity()
+      .withId(UUID.randomUUID().toString())
+      .withNotificationId(UUID.randomUUID().toString())
+      .withTo("user@localhost")
+      .withFrom("admin@localhost")
+      .withHeader("Reset password")
+      .withBody("Test message")
+      .withStatus(status)
+      .withDate(Date.from(Instant.parse(date)));
+  }
+}
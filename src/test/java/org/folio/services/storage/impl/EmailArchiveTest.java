@@ -0,0 +1,247 @@
+package org.folio.services.storage.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.folio.util.EmailUtils.EMAIL_STATISTICS_TABLE_NAME;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.folio.rest.jaxrs.model.EmailEntity;
+import org.folio.rest.persist.Conn;
+import org.folio.rest.persist.PostgresClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+@RunWith(VertxUnitRunner.class)
+public class EmailArchiveTest {
+
+  private static final String TENANT_ID = "test_tenant";
+
+  @Rule
+  public TemporaryFolder archiveFolder = new TemporaryFolder();
+
+  private static final String DELETE_SQL = "DELETE FROM email_statistics";
+
+  private Vertx vertx;
+  private PostgresClient pgClient;
+  private Conn conn;
+  private final List<EmailEntity> restoredEmails = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    pgClient = mock(PostgresClient.class);
+    conn = mock(Conn.class);
+    when(pgClient.upsertBatch(eq(EMAIL_STATISTICS_TABLE_NAME), anyList()))
+      .thenAnswer(invocation -> {
+        restoredEmails.addAll(invocation.getArgument(1));
+        return Future.succeededFuture();
+      });
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void restore_positive_emailsOfAllGzipMembersAreRestoredOnce(TestContext context)
+    throws IOException {
+
+    Path tenantPath = archiveFolder.newFolder(TENANT_ID).toPath();
+    appendMember(tenantPath.resolve("2024-01-31.ndjson.gz"), email("1"), email("2"));
+    appendMember(tenantPath.resolve("2024-01-31.ndjson.gz"), email("1"));
+    appendMember(tenantPath.resolve("2024-02-01.ndjson.gz"), email("3"));
+    appendMember(tenantPath.resolve("2024-01-31.ndjson.gz.tmp"), email("4"));
+    var archive = new EmailArchive(vertx, archiveFolder.getRoot().getPath());
+
+    archive.restore(pgClient, TENANT_ID, LocalDate.parse("2024-01-30"),
+        LocalDate.parse("2024-01-31"))
+      .onComplete(context.asyncAssertSuccess(count -> {
+        context.assertEquals(2, count);
+        context.assertEquals(List.of("1", "2"),
+          restoredEmails.stream().map(EmailEntity::getId).toList());
+      }));
+  }
+
+  @Test
+  public void restore_positive_filesOfAllPurgesOfTheDayAreRestored(TestContext context)
+    throws IOException {
+
+    Path tenantPath = archiveFolder.newFolder(TENANT_ID).toPath();
+    appendMember(tenantPath.resolve("2024-01-31.ndjson.gz"), email("1"));
+    appendMember(tenantPath.resolve("2024-01-31.0d9c5a8e.ndjson.gz"), email("2"));
+    appendMember(tenantPath.resolve("2024-01-31.5f2b7c1d.ndjson.gz.tmp"), email("3"));
+    var archive = new EmailArchive(vertx, archiveFolder.getRoot().getPath());
+
+    archive.restore(pgClient, TENANT_ID, LocalDate.parse("2024-01-31"),
+        LocalDate.parse("2024-01-31"))
+      .onComplete(context.asyncAssertSuccess(count -> {
+        context.assertEquals(2, count);
+        context.assertEquals(Set.of("1", "2"),
+          restoredEmails.stream().map(EmailEntity::getId).collect(Collectors.toSet()));
+      }));
+  }
+
+  @Test
+  public void purge_positive_deletedEmailsArePublishedOnceCommitted(TestContext context) {
+    mockDeletion(Future.succeededFuture());
+    var archive = new EmailArchive(vertx, archiveFolder.getRoot().getPath());
+
+    archive.purge(pgClient, TENANT_ID, DELETE_SQL, Tuple.of("2024-02-01", "DELIVERED"))
+      .compose(count -> archive.restore(pgClient, TENANT_ID, LocalDate.parse("2024-01-31"),
+          LocalDate.parse("2024-02-01"))
+        .map(restored -> {
+          context.assertEquals(2, count);
+          return restored;
+        }))
+      .onComplete(context.asyncAssertSuccess(restored -> {
+        context.assertEquals(2, restored);
+        context.assertEquals(List.of("1", "2"),
+          restoredEmails.stream().map(EmailEntity::getId).toList());
+        context.assertEquals(List.of(), listStagingFiles());
+        var params = ArgumentCaptor.forClass(Tuple.class);
+        verify(conn).execute(eq(DELETE_SQL), params.capture());
+        context.assertEquals(EmailArchive.BATCH_SIZE, params.getValue().getInteger(2));
+      }));
+  }
+
+  @Test
+  public void purge_negative_rolledBackEmailsAreNotArchived(TestContext context) {
+    mockDeletion(Future.failedFuture("Commit failed"));
+    var archive = new EmailArchive(vertx, archiveFolder.getRoot().getPath());
+
+    archive.purge(pgClient, TENANT_ID, DELETE_SQL, Tuple.of("2024-02-01", "DELIVERED"))
+      .onComplete(context.asyncAssertFailure(cause -> {
+        context.assertEquals("Commit failed", cause.getMessage());
+        context.assertEquals(List.of(), listArchiveFiles());
+      }));
+  }
+
+  @Test
+  public void restore_positive_nothingIsRestoredWithoutArchiveFiles(TestContext context) {
+    var archive = new EmailArchive(vertx, archiveFolder.getRoot().getPath());
+
+    archive.restore(pgClient, TENANT_ID, LocalDate.parse("2024-01-01"),
+        LocalDate.parse("2024-01-31"))
+      .onComplete(context.asyncAssertSuccess(count -> {
+        context.assertEquals(0, count);
+        verify(pgClient, never()).upsertBatch(eq(EMAIL_STATISTICS_TABLE_NAME), anyList());
+      }));
+  }
+
+  @Test
+  public void isEnabled_negative_archivePathIsNotSet() {
+    assertFalse(new EmailArchive(vertx, " ").isEnabled());
+  }
+
+  /**
+   * Mocks a deletion of two emails of different days, the transaction completes with the
+   * commit result.
+   */
+  @SuppressWarnings("unchecked")
+  private void mockDeletion(Future<Void> commit) {
+    RowSet<Row> rows = mock(RowSet.class);
+    List<Row> deleted = List.of(row(email("1"), "2024-01-31"), row(email("2"), "2024-02-01"));
+    when(rows.iterator()).thenAnswer(invocation -> iterator(deleted));
+    when(conn.execute(eq(DELETE_SQL), any(Tuple.class)))
+      .thenReturn(Future.succeededFuture(rows));
+    when(pgClient.withTrans(any())).thenAnswer(invocation -> {
+      Function<Conn, Future<Integer>> function = invocation.getArgument(0);
+      return function.apply(conn).compose(count -> commit.map(count));
+    });
+  }
+
+  private static RowIterator<Row> iterator(List<Row> rows) {
+    var iterator = rows.iterator();
+    return new RowIterator<>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Row next() {
+        return iterator.next();
+      }
+    };
+  }
+
+  private static Row row(String email, String day) {
+    Row row = mock(Row.class);
+    when(row.getString(0)).thenReturn(email);
+    when(row.getString(1)).thenReturn(day);
+    return row;
+  }
+
+  private List<Path> listArchiveFiles() {
+    Path tenantPath = archiveFolder.getRoot().toPath().resolve(TENANT_ID);
+    if (!Files.isDirectory(tenantPath)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(tenantPath)) {
+      return files.toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private List<Path> listStagingFiles() {
+    return listArchiveFiles().stream()
+      .filter(file -> file.getFileName().toString().endsWith(EmailArchive.STAGING_EXTENSION))
+      .toList();
+  }
+
+  private static String email(String id) {
+    return new JsonObject()
+      .put("id", id)
+      .put("notificationId", "1")
+      .put("to", "user@localhost")
+      .put("from", "admin@localhost")
+      .put("header", "Reset password")
+      .put("body", "Test message")
+      .encode();
+  }
+
+  private static void appendMember(Path file, String... emails) throws IOException {
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file, CREATE, APPEND))) {
+      for (String email : emails) {
+        out.write((email + "\n").getBytes(UTF_8));
+      }
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package org.folio.services.storage.impl;
 
+import static org.folio.services.storage.StorageService.ARCHIVE_NOT_CONFIGURED_FAILURE_CODE;
+
 import org.folio.services.storage.StorageService;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +10,7 @@ import org.junit.runner.RunWith;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.serviceproxy.ServiceException;
 
 @RunWith(VertxUnitRunner.class)
 public class StorageServiceImplTest {
@@ -27,12 +30,38 @@ public class StorageServiceImplTest {
       .onComplete(context.asyncAssertFailure());
   }
 
+  @Test
+  public void saveEmailEntitiesShouldFail(TestContext context) {
+    storageService.saveEmailEntities(null, null)
+      .onComplete(context.asyncAssertFailure());
+  }
+
   @Test
   public void findEmailEntriesShouldFail(TestContext context) {
     storageService.findEmailEntries(null, 0, 0, null)
       .onComplete(context.asyncAssertFailure());
   }
 
+  @Test
+  public void findFirstEmailEntryShouldFail(TestContext context) {
+    storageService.findFirstEmailEntry(null, null)
+      .onComplete(context.asyncAssertFailure());
+  }
+
+  @Test
+  public void restoreArchivedEmailsShouldFailWithoutArchive(TestContext context) {
+    new StorageServiceImpl(vertx, new EmailArchive(vertx, null))
+      .restoreArchivedEmails("test_tenant", "2024-01-01", null)
+      .onComplete(context.asyncAssertFailure(cause -> context.assertEquals(
+        ARCHIVE_NOT_CONFIGURED_FAILURE_CODE, ((ServiceException) cause).failureCode())));
+  }
+
+  @Test
+  public void findEmailsForRetryShouldFail(TestContext context) {
+    storageService.findEmailsForRetry(null, null, 0)
+      .onComplete(context.asyncAssertFailure());
+  }
+
   @Test
   public void deleteEmailEntriesByExpirationDateAndStatusEmailEntriesShouldFail(TestContext context) {
     storageService.deleteEmailEntriesByExpirationDateAndStatus(null, null, null)
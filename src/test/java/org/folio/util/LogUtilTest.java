@@ -2,6 +2,7 @@ package org.folio.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
 import java.util.HashMap;
@@ -9,7 +10,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
+import org.folio.rest.jaxrs.model.Attachment;
 import org.folio.rest.jaxrs.model.EmailEntity;
 import org.folio.rest.jaxrs.model.EmailEntries;
 import org.junit.Test;
@@ -107,4 +110,32 @@ public class LogUtilTest {
   public void emailAsJsonShouldReturnNullIfEmailIsNull() {
     assertNull(LogUtil.emailAsJson(null));
   }
+
+  @Test
+  public void asJsonShouldSummarizeLongStringValues() {
+    String body = "a".repeat(100_000);
+    EmailEntity emailEntity = new EmailEntity()
+      .withNotificationId("1")
+      .withTo("test recipient")
+      .withHeader("header")
+      .withBody(body)
+      .withAttachments(List.of(new Attachment().withName("file").withData(body)));
+
+    String json = LogUtil.asJson(emailEntity);
+
+    assertTrue(json.contains("\"notificationId\":\"1\""));
+    assertTrue(json.contains("...(100000 characters)"));
+    assertTrue(json.length() < 2 * 1024);
+  }
+
+  @Test
+  public void asJsonShouldStopWritingWhenLengthLimitIsReached() {
+    JsonObject json = new JsonObject();
+    IntStream.range(0, 10_000).forEach(i -> json.put("key" + i, "value" + i));
+
+    String result = LogUtil.asJson(json);
+
+    assertEquals(10 * 1024, result.length());
+    assertTrue(json.encode().startsWith(result));
+  }
 }
@@ -128,6 +128,25 @@ public class SmtpConfigurationValueVerifierTest {
     assertEquals("duplicate address: notices@folio.org", parameter.getValue());
   }
 
+  @Test
+  public void verify_negative_duplicateRouteDomain() {
+    var value = new LinkedHashMap<String, Object>();
+    value.put("username", "test-username");
+    value.put("password", "test-password");
+    value.put("port", "557");
+    value.put("host", "test-mail.sample.org");
+    value.put("routes", List.of(
+      Map.of("domains", List.of("staff.folio.org"), "host", "smtp.staff.folio.org", "port", 25),
+      Map.of("domains", List.of("Staff.Folio.org"), "host", "smtp.folio.org", "port", 25)));
+
+    var exception = assertThrows(EmailSettingsException.class, () ->
+      SmtpConfigurationValueVerifier.verify(value));
+
+    var parameter = exception.getError().getParameters().getFirst();
+    assertEquals("value.routes", parameter.getKey());
+    assertEquals("duplicate domain: staff.folio.org", parameter.getValue());
+  }
+
   @Test
   public void constructor_isPrivateAndThrows() throws Exception {
     var ctor = SmtpConfigurationValueVerifier.class.getDeclaredConstructor();
@@ -0,0 +1,169 @@
+package org.folio.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.VertxException;
+import io.vertx.ext.mail.SMTPException;
+import io.vertx.serviceproxy.ServiceException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.List;
+import org.junit.Test;
+
+public class SmtpFailureUtilsTest {
+
+  @Test
+  public void toServiceException_positive_replyCodeAndEnhancedStatusArePreserved() {
+    var smtpException = smtpException(550, "550 5.1.1 <nobody@localhost>: User unknown");
+
+    var serviceException = (ServiceException) SmtpFailureUtils.toServiceException(smtpException);
+
+    assertEquals(550, serviceException.failureCode());
+    assertEquals(smtpException.getMessage(), serviceException.getMessage());
+    assertEquals(Integer.valueOf(550), SmtpFailureUtils.getReplyCode(serviceException));
+    assertEquals("5.1.1", SmtpFailureUtils.getEnhancedStatus(serviceException));
+    assertTrue(SmtpFailureUtils.isPermanentFailure(serviceException));
+    assertFalse(SmtpFailureUtils.isRelayFailure(serviceException));
+  }
+
+  @Test
+  public void toServiceException_positive_otherFailuresAreNotConverted() {
+    var exception = new VertxException("Connection refused");
+
+    assertSame(exception, SmtpFailureUtils.toServiceException(exception));
+  }
+
+  @Test
+  public void isPermanentFailure_negative_transientReply() {
+    var failure = SmtpFailureUtils.toServiceException(
+      smtpException(452, "452 Error: too many recipients"));
+
+    assertEquals(Integer.valueOf(452), SmtpFailureUtils.getReplyCode(failure));
+    assertNull(SmtpFailureUtils.getEnhancedStatus(failure));
+    assertFalse(SmtpFailureUtils.isPermanentFailure(failure));
+    assertFalse(SmtpFailureUtils.isRelayFailure(failure));
+  }
+
+  @Test
+  public void isPermanentFailure_negative_failureWithoutReply() {
+    var failure = new ServiceException(-1, "Connection refused");
+
+    assertNull(SmtpFailureUtils.getReplyCode(failure));
+    assertFalse(SmtpFailureUtils.isPermanentFailure(failure));
+  }
+
+  @Test
+  public void isRelayFailure_positive_connectionFailures() {
+    assertTrue(SmtpFailureUtils.isRelayFailure(new ConnectException("Connection refused")));
+    assertTrue(SmtpFailureUtils.isRelayFailure(new UnknownHostException("relay.unknown")));
+    assertTrue(SmtpFailureUtils.isRelayFailure(new SocketTimeoutException("Read timed out")));
+    assertTrue(SmtpFailureUtils.isRelayFailure(
+      new IOException("socket was closed unexpected.")));
+  }
+
+  @Test
+  public void isRelayFailure_negative_localFailures() {
+    assertFalse(SmtpFailureUtils.isRelayFailure(
+      new IllegalArgumentException("invalid email address")));
+    assertFalse(SmtpFailureUtils.isRelayFailure(new NullPointerException()));
+    assertFalse(SmtpFailureUtils.isRelayFailure(
+      new ServiceException(500, "Internal server error")));
+  }
+
+  @Test
+  public void getReplyCode_negative_localServiceFailureIsNotSmtpReply() {
+    var failure = new ServiceException(500, "NullPointerException");
+
+    assertNull(SmtpFailureUtils.getReplyCode(failure));
+    assertNull(SmtpFailureUtils.getEnhancedStatus(failure));
+    assertFalse(SmtpFailureUtils.isPermanentFailure(failure));
+  }
+
+  @Test
+  public void getEnhancedStatus_negative_relayWithoutEnhancedStatusCodes() {
+    var failure = SmtpFailureUtils.toServiceException(new SMTPException("sender rejected", 550,
+      List.of("550 5.7.1 Sender rejected"), false));
+
+    assertEquals(Integer.valueOf(550), SmtpFailureUtils.getReplyCode(failure));
+    assertNull(SmtpFailureUtils.getEnhancedStatus(failure));
+    assertTrue(SmtpFailureUtils.isPermanentFailure(failure));
+  }
+
+  @Test
+  public void isRelayFailure_positive_serviceNotAvailableReply() {
+    var failure = smtpException(421, "421 4.3.2 Service not available");
+
+    assertEquals("4.3.2", SmtpFailureUtils.getEnhancedStatus(failure));
+    assertTrue(SmtpFailureUtils.isRelayFailure(failure));
+  }
+
+  @Test
+  public void isFailureBeforeTransaction_positive_connectionRefused() {
+    var failure = new VertxException(new ConnectException("Connection refused"));
+
+    assertTrue(SmtpFailureUtils.isFailureBeforeTransaction(failure));
+  }
+
+  @Test
+  public void isFailureBeforeTransaction_positive_serviceNotAvailableGreeting() {
+    var failure = new SMTPException("got error response", 421,
+      List.of("421 4.3.2 Too many connections"), false);
+
+    assertTrue(SmtpFailureUtils.isFailureBeforeTransaction(failure));
+  }
+
+  @Test
+  public void isFailureBeforeTransaction_negative_serviceNotAvailableReplyInTransaction() {
+    var failure = smtpException(421, "421 4.3.2 Service not available");
+
+    assertFalse(SmtpFailureUtils.isFailureBeforeTransaction(failure));
+  }
+
+  @Test
+  public void isFailureBeforeTransaction_negative_connectionClosedAfterData() {
+    var failure = new VertxException("Connection was closed.");
+
+    assertTrue(SmtpFailureUtils.isRelayFailure(failure));
+    assertFalse(SmtpFailureUtils.isFailureBeforeTransaction(failure));
+  }
+
+  @Test
+  public void withDeliveredRecipients_positive_recipientsAreAddedToSmtpReply() {
+    var failure = SmtpFailureUtils.withDeliveredRecipients(
+      smtpException(550, "550 5.1.1 User unknown"), List.of("jane@staff.folio.org"));
+
+    assertEquals(Integer.valueOf(550), SmtpFailureUtils.getReplyCode(failure));
+    assertTrue(SmtpFailureUtils.isPermanentFailure(failure));
+    assertEquals(List.of("jane@staff.folio.org"),
+      SmtpFailureUtils.getDeliveredRecipients(failure));
+  }
+
+  @Test
+  public void withDeliveredRecipients_positive_otherFailureIsConverted() {
+    var failure = SmtpFailureUtils.withDeliveredRecipients(
+      new VertxException("Connection was closed."), List.of("jane@staff.folio.org"));
+
+    assertNull(SmtpFailureUtils.getReplyCode(failure));
+    assertEquals("Connection was closed.", failure.getMessage());
+    assertEquals(List.of("jane@staff.folio.org"),
+      SmtpFailureUtils.getDeliveredRecipients(failure));
+  }
+
+  @Test
+  public void withDeliveredRecipients_negative_failureWithoutDeliveredRecipientsIsKept() {
+    var exception = new VertxException("Connection was closed.");
+
+    assertSame(exception, SmtpFailureUtils.withDeliveredRecipients(exception, List.of()));
+    assertEquals(List.of(), SmtpFailureUtils.getDeliveredRecipients(exception));
+  }
+
+  private static SMTPException smtpException(int replyCode, String reply) {
+    return new SMTPException("recipient address not accepted", replyCode, List.of(reply), true);
+  }
+}